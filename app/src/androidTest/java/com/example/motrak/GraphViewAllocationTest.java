@@ -0,0 +1,89 @@
+package com.example.motrak;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented test checking that steady-state GraphView frames do not allocate.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GraphViewAllocationTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 700;
+    private static final int ACCELEROMETER = 1;
+    private static final long PERIOD_NANOS = 5_000_000L; // 200 Hz
+    private static final long FRAME_NANOS = 16_666_667L;
+    private static final int SAMPLES_PER_FRAME = 3;
+    private static final int FRAMES = 200;
+
+    private long timestamp = 0;
+
+    // One live frame: the sensor thread's samples arrive, then the frame drains and redraws.
+    // updateFrame() leaves out the Choreographer callback, which can't run while the main
+    // thread is held here.
+    private void runFrame(GraphView graphView, SpscSampleQueue queue, Canvas canvas, int frame) {
+        for (int i = 0; i < SAMPLES_PER_FRAME; i++) {
+            float t = timestamp / 1e9f;
+            queue.offer(ACCELEROMETER, timestamp, (float) Math.sin(t), (float) Math.cos(t), 9.81f);
+            timestamp += PERIOD_NANOS;
+        }
+        graphView.updateFrame(frame * FRAME_NANOS);
+        graphView.draw(canvas);
+    }
+
+    // The alloc counters are deprecated but still the only per-thread measure; the runtime
+    // stats count every thread in the process
+    @Test
+    @SuppressWarnings("deprecation")
+    public void liveFrames_doNotAllocateInSteadyState() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        int[] allocated = new int[1];
+
+        // GraphView needs a Looper for its Choreographer, so build and draw it on the main thread
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            GraphView graphView = new GraphView(context);
+            graphView.setSensorType("Accelerometer");
+            graphView.setMaxDataPoints(400);
+            graphView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            graphView.layout(0, 0, WIDTH, HEIGHT);
+
+            SpscSampleQueue queue = new SpscSampleQueue(1024);
+            graphView.startLiveUpdates(queue, ACCELEROMETER);
+            Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+
+            // Warm up past a full window, so the cached shaders and labels exist and the
+            // graph scrolls instead of growing
+            int frame = 0;
+            for (; frame < 400; frame++) {
+                runFrame(graphView, queue, canvas, frame);
+            }
+
+            Debug.resetThreadAllocCount();
+            Debug.resetThreadAllocSize();
+            Debug.startAllocCounting();
+            for (int end = frame + FRAMES; frame < end; frame++) {
+                runFrame(graphView, queue, canvas, frame);
+            }
+            Debug.stopAllocCounting();
+            allocated[0] = Debug.getThreadAllocSize();
+
+            graphView.stopLiveUpdates();
+            bitmap.recycle();
+        });
+
+        assertEquals("Bytes allocated over " + FRAMES + " live frames", 0, allocated[0]);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.motrak;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener2;
+import android.hardware.SensorManager;
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// SensorSource backed by the device sensors. All sensors are registered with this single
+// listener on the handler's thread, so samples of different sensors arrive in order.
+// A non-zero max report latency lets the sensor hub batch events in its FIFO and deliver
+// them together, so the application processor does not wake for every sample.
+public class AndroidSensorSource implements SensorSource, SensorEventListener2 {
+    private final SensorManager sensorManager;
+    private final Handler handler;
+
+    private SensorDataListener listener;
+    private int samplingPeriodUs;
+    private int maxReportLatencyUs = 0;
+
+    // Sensors registered by the last start(), for re-registration
+    private final List<Sensor> activeSensors = new ArrayList<>();
+    private volatile boolean running = false;
+
+    // Latency change waiting for the FIFO flush to complete (handler thread only)
+    private int pendingFlushes = 0;
+    private int pendingReportLatencyUs = 0;
+
+    public AndroidSensorSource(SensorManager sensorManager, Handler handler) {
+        this.sensorManager = sensorManager;
+        this.handler = handler;
+    }
+
+    @Override
+    public boolean isAvailable(int sensorType) {
+        return sensorManager.getDefaultSensor(sensorType) != null;
+    }
+
+    @Override
+    public boolean start(int[] sensorTypes, int samplingPeriodUs, SensorDataListener listener) {
+        if (running) {
+            sensorManager.unregisterListener(this);
+        }
+        this.samplingPeriodUs = samplingPeriodUs;
+        this.listener = listener;
+
+        activeSensors.clear();
+        for (int type : sensorTypes) {
+            Sensor sensor = sensorManager.getDefaultSensor(type);
+            if (sensor != null) {
+                activeSensors.add(sensor);
+            }
+        }
+        if (activeSensors.isEmpty()) {
+            running = false;
+            return false;
+        }
+
+        running = true;
+        return registerActiveSensors(maxReportLatencyUs);
+    }
+
+    // Start with an explicit batching latency (0 = deliver every event right away)
+    public boolean start(int[] sensorTypes, int samplingPeriodUs, int maxReportLatencyUs,
+                         SensorDataListener listener) {
+        this.maxReportLatencyUs = maxReportLatencyUs;
+        return start(sensorTypes, samplingPeriodUs, listener);
+    }
+
+    private boolean registerActiveSensors(int latencyUs) {
+        boolean registered = true;
+        for (Sensor sensor : activeSensors) {
+            registered &= sensorManager.registerListener(this, sensor,
+                    samplingPeriodUs, latencyUs, handler);
+        }
+        return registered;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        sensorManager.unregisterListener(this);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Change the batching latency, also of a running capture. A listener can't be re-registered
+    // in place, and unregistering drops whatever is waiting in the hardware FIFO, so the FIFO
+    // is flushed first and the sensors are re-registered once every flush has completed.
+    public void setMaxReportLatency(int maxReportLatencyUs) {
+        if (maxReportLatencyUs == this.maxReportLatencyUs) {
+            return;
+        }
+        this.maxReportLatencyUs = maxReportLatencyUs;
+        if (!running) {
+            return;
+        }
+
+        int sensorCount = activeSensors.size();
+        handler.post(() -> {
+            pendingReportLatencyUs = maxReportLatencyUs;
+            pendingFlushes = sensorCount;
+            if (!sensorManager.flush(this)) {
+                // Nothing to flush (e.g. no FIFO); switch right away
+                pendingFlushes = 0;
+                reregister(maxReportLatencyUs);
+            }
+        });
+    }
+
+    public int getMaxReportLatencyUs() {
+        return maxReportLatencyUs;
+    }
+
+    // Handler thread
+    private void reregister(int latencyUs) {
+        if (!running) {
+            return;
+        }
+        sensorManager.unregisterListener(this);
+        registerActiveSensors(latencyUs);
+    }
+
+    // Ask the sensor hub to deliver any batched events now
+    public void flush() {
+        sensorManager.flush(this);
+    }
+
+    // Number of events the hardware FIFO can hold for the primary sensor (0 = no batching)
+    public int getFifoMaxEventCount() {
+        return activeSensors.isEmpty() ? 0 : activeSensors.get(0).getFifoMaxEventCount();
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        listener.onSensorDataUpdated(event.sensor.getType(), event.timestamp,
+                event.values[0], event.values[1], event.values[2]);
+    }
+
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        if (pendingFlushes > 0 && --pendingFlushes == 0) {
+            reregister(pendingReportLatencyUs);
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Not used in this implementation
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.motrak;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Writes samples in the binary session format (see BinarySessionFormat)
+public class BinaryRecordEncoder implements SessionRecorder.RecordEncoder {
+    private final int sensorType;
+    private final float nominalRateHz;
+    private final long startTimeNanos;
+    private final long startWallClockMs;
+    private final boolean deltaTime;
+    private final boolean multiSensor;
+
+    private long previousMicros = 0;
+
+    public BinaryRecordEncoder(int sensorType, float nominalRateHz, long startTimeNanos,
+                               long startWallClockMs, boolean deltaTime) {
+        this(sensorType, nominalRateHz, startTimeNanos, startWallClockMs, deltaTime, false);
+    }
+
+    public BinaryRecordEncoder(int sensorType, float nominalRateHz, long startTimeNanos,
+                               long startWallClockMs, boolean deltaTime, boolean multiSensor) {
+        this.sensorType = sensorType;
+        this.nominalRateHz = nominalRateHz;
+        this.startTimeNanos = startTimeNanos;
+        this.startWallClockMs = startWallClockMs;
+        this.deltaTime = deltaTime;
+        this.multiSensor = multiSensor;
+    }
+
+    @Override
+    public int maxRecordBytes() {
+        return BinarySessionFormat.RECORD_SIZE;
+    }
+
+    @Override
+    public void writeHeader(ByteBuffer out) {
+        short flags = 0;
+        if (deltaTime) {
+            flags |= BinarySessionFormat.FLAG_DELTA_TIME;
+        }
+        if (multiSensor) {
+            flags |= BinarySessionFormat.FLAG_MULTI_SENSOR;
+        }
+        BinarySessionFormat.writeHeader(out, BinarySessionFormat.VERSION, flags, sensorType, nominalRateHz,
+                startTimeNanos, startWallClockMs);
+    }
+
+    @Override
+    public void encode(ByteBuffer out, int sensorType, long timestampNanos, float x, float y, float z)
+            throws IOException {
+        // Round the absolute time first so deltas never accumulate rounding error
+        long micros = Math.round((timestampNanos - startTimeNanos) / 1000.0);
+        long time = deltaTime ? micros - previousMicros : micros;
+        if (time != (int) time) {
+            throw new IOException(deltaTime
+                    ? "Gap of " + time + " us between samples exceeds the 32-bit time field"
+                    : "Time offset " + time + " us exceeds the 32-bit time field; use delta time for long sessions");
+        }
+        previousMicros = micros;
+
+        out.order(BinarySessionFormat.BYTE_ORDER);
+        out.putInt((int) time);
+        out.putInt(sensorType);
+        out.putFloat(x);
+        out.putFloat(y);
+        out.putFloat(z);
+    }
+
+    @Override
+    public void finish(ByteBuffer out) {
+        // Every record is complete once encoded
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.motrak;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Layout of the binary session file (.mtrk), little-endian:
+//
+//   Header (32 bytes)
+//     int    magic            'MTRK'
+//     short  version
+//     short  flags            FLAG_DELTA_TIME, FLAG_MULTI_SENSOR
+//     int    sensorType       android.hardware.Sensor type constant (primary sensor)
+//     float  nominalRateHz    requested sampling rate
+//     long   startTimeNanos   elapsedRealtimeNanos at session start (sensor timestamp base)
+//     long   startWallClockMs System.currentTimeMillis at session start
+//
+//   Records (20 bytes each, back to back until end of file)
+//     int    time             microseconds; offset from startTimeNanos, or from the
+//                             previous record when FLAG_DELTA_TIME is set
+//     int    sensorType       sensor that produced the sample
+//     float  x, y, z
+//
+// Version 1 records had no sensorType field (16 bytes); the header type applies to all.
+//
+// Fixed-width records make sample i live at HEADER_SIZE + i * RECORD_SIZE, so a reader
+// can map the file and seek without parsing anything in between.
+//
+// Version 3 (written by CompressedRecordEncoder) has the same header, FLAG_DELTA_TIME
+// unset, followed by compressed blocks of up to MAX_BLOCK_SAMPLES samples:
+//
+//   Block header (16 bytes + 4 per sensor type)
+//     int    size             bytes in the block, header included
+//     short  sampleCount
+//     short  typeCount        sensor types in the block, at most MAX_BLOCK_TYPES
+//     long   startMicros      time of the first sample, offset from startTimeNanos
+//     int[]  types            sensor type constants, in order of first appearance
+//
+//   Bit stream, most significant bit first, padded to a whole byte; one column after the other:
+//     types       index into types[] per sample, in just enough bits (none for one type)
+//     time        per sample after the first, the change in the microsecond delta:
+//                 '0' for none, or '10', '110', '1110' or '1111' followed by 7, 9, 12 or
+//                 32 bits of it in two's complement
+//     x, y, z     per sample, the XOR with the previous value of the same sensor type in
+//                 the block: the first one raw in 32 bits, then '0' if equal, '10' and the
+//                 bits that differ if they fall within the previous one's window, or '11',
+//                 5 bits of leading zeros, 5 bits of length - 1 and the differing bits
+//
+// Each block starts afresh, so it can be decoded without the ones before it.
+public final class BinarySessionFormat {
+    public static final int MAGIC = 0x4B52544D; // "MTRK" read as little-endian
+    public static final short VERSION = 2;
+    public static final short VERSION_SINGLE_SENSOR = 1;
+    public static final short VERSION_COMPRESSED = 3;
+
+    // Time field holds the delta to the previous record instead of the offset from start.
+    // Deltas tolerate gaps of up to ~35 minutes between samples; offsets limit the session
+    // itself to ~35 minutes but keep timestamps O(1) to read. Past either limit the encoder
+    // fails the recording rather than write a wrong time.
+    public static final short FLAG_DELTA_TIME = 1;
+    // Records come from more than one sensor
+    public static final short FLAG_MULTI_SENSOR = 2;
+
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 20;
+    public static final int RECORD_SIZE_SINGLE_SENSOR = 16;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int BLOCK_HEADER_SIZE = 16;
+    public static final int MAX_BLOCK_SAMPLES = 1024;
+    public static final int MAX_BLOCK_TYPES = 16;
+    // Worst case per sample: 4 bits of type, 36 of time and 44 per axis
+    public static final int MAX_BLOCK_SIZE =
+            BLOCK_HEADER_SIZE + MAX_BLOCK_TYPES * 4 + (MAX_BLOCK_SAMPLES * (4 + 36 + 3 * 44) + 7) / 8;
+
+    public static final String FILE_EXTENSION = ".mtrk";
+
+    // Header field offsets
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_FLAGS = 6;
+    static final int OFFSET_SENSOR_TYPE = 8;
+    static final int OFFSET_RATE = 12;
+    static final int OFFSET_START_NANOS = 16;
+    static final int OFFSET_START_WALL_CLOCK = 24;
+
+    // Block header field offsets
+    static final int BLOCK_OFFSET_SIZE = 0;
+    static final int BLOCK_OFFSET_SAMPLES = 4;
+    static final int BLOCK_OFFSET_TYPE_COUNT = 6;
+    static final int BLOCK_OFFSET_START_MICROS = 8;
+    static final int BLOCK_OFFSET_TYPES = 16;
+
+    private BinarySessionFormat() {
+    }
+
+    static void writeHeader(ByteBuffer out, short version, short flags, int sensorType, float nominalRateHz,
+                            long startTimeNanos, long startWallClockMs) {
+        out.order(BYTE_ORDER);
+        out.putInt(MAGIC);
+        out.putShort(version);
+        out.putShort(flags);
+        out.putInt(sensorType);
+        out.putFloat(nominalRateHz);
+        out.putLong(startTimeNanos);
+        out.putLong(startWallClockMs);
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.motrak;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Random-access reader for binary session files (see BinarySessionFormat).
+// The file is memory-mapped, so opening a recording costs no parsing and samples are
+// read straight from the page cache. Files are limited to 2 GB (~134M samples).
+// Compressed files are indexed by block when opened; reading a sample decodes its block
+// unless it is the one decoded last, so sequential reads decode every block once. This
+// makes the reader of a compressed file unsafe to share between threads.
+public class BinarySessionReader implements Closeable {
+    // With delta-encoded time, an absolute timestamp is kept every this many records
+    private static final int CHECKPOINT_INTERVAL = 1024;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int sensorType;
+    private final float nominalRateHz;
+    private final long startTimeNanos;
+    private final long startWallClockMs;
+    private final boolean deltaTime;
+    private final boolean multiSensor;
+    private final boolean compressed;
+    private final int recordSize;
+    private final int valuesOffset;
+    private final int sampleCount;
+
+    // Absolute time in microseconds of every CHECKPOINT_INTERVAL-th record (delta mode only)
+    private final long[] checkpoints;
+
+    // Compressed files: file offset and first sample of every block, plus the sample count
+    // at the end of blockStarts
+    private int[] blockOffsets;
+    private int[] blockStarts;
+    private CompressedBlockDecoder decoder;
+    private int decodedBlock = -1;
+
+    public BinarySessionReader(File source) throws IOException {
+        file = new RandomAccessFile(source, "r");
+        try {
+            long length = file.length();
+            if (length < BinarySessionFormat.HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a session file: " + source.getName());
+            }
+
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(BinarySessionFormat.BYTE_ORDER);
+
+            if (buffer.getInt(BinarySessionFormat.OFFSET_MAGIC) != BinarySessionFormat.MAGIC) {
+                throw new IOException("Not a session file: " + source.getName());
+            }
+            short version = buffer.getShort(BinarySessionFormat.OFFSET_VERSION);
+            compressed = version == BinarySessionFormat.VERSION_COMPRESSED;
+            if (version == BinarySessionFormat.VERSION) {
+                recordSize = BinarySessionFormat.RECORD_SIZE;
+                valuesOffset = 8;
+            } else if (version == BinarySessionFormat.VERSION_SINGLE_SENSOR) {
+                recordSize = BinarySessionFormat.RECORD_SIZE_SINGLE_SENSOR;
+                valuesOffset = 4;
+            } else if (compressed) {
+                recordSize = 0;
+                valuesOffset = 0;
+            } else {
+                throw new IOException("Unsupported session version " + version);
+            }
+
+            short flags = buffer.getShort(BinarySessionFormat.OFFSET_FLAGS);
+            deltaTime = (flags & BinarySessionFormat.FLAG_DELTA_TIME) != 0;
+            multiSensor = (flags & BinarySessionFormat.FLAG_MULTI_SENSOR) != 0;
+            sensorType = buffer.getInt(BinarySessionFormat.OFFSET_SENSOR_TYPE);
+            nominalRateHz = buffer.getFloat(BinarySessionFormat.OFFSET_RATE);
+            startTimeNanos = buffer.getLong(BinarySessionFormat.OFFSET_START_NANOS);
+            startWallClockMs = buffer.getLong(BinarySessionFormat.OFFSET_START_WALL_CLOCK);
+
+            // A trailing partial record or block (e.g. from a crash mid-write) is ignored
+            if (compressed) {
+                sampleCount = indexBlocks((int) length);
+                decoder = new CompressedBlockDecoder();
+                checkpoints = null;
+            } else {
+                sampleCount = (int) ((length - BinarySessionFormat.HEADER_SIZE) / recordSize);
+                checkpoints = deltaTime ? buildCheckpoints() : null;
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private long[] buildCheckpoints() {
+        long[] result = new long[(sampleCount + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL];
+        long micros = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            micros += buffer.getInt(recordOffset(i));
+            if (i % CHECKPOINT_INTERVAL == 0) {
+                result[i / CHECKPOINT_INTERVAL] = micros;
+            }
+        }
+        return result;
+    }
+
+    // Walk the block headers of a compressed file; returns the number of samples in
+    // complete, well-formed blocks
+    private int indexBlocks(int length) {
+        int capacity = 16;
+        blockOffsets = new int[capacity];
+        blockStarts = new int[capacity + 1];
+        int blocks = 0;
+        int samples = 0;
+        int offset = BinarySessionFormat.HEADER_SIZE;
+        while (length - offset >= BinarySessionFormat.BLOCK_HEADER_SIZE) {
+            int size = buffer.getInt(offset + BinarySessionFormat.BLOCK_OFFSET_SIZE);
+            int count = buffer.getShort(offset + BinarySessionFormat.BLOCK_OFFSET_SAMPLES);
+            int typeCount = buffer.getShort(offset + BinarySessionFormat.BLOCK_OFFSET_TYPE_COUNT);
+            if (count < 1 || count > BinarySessionFormat.MAX_BLOCK_SAMPLES
+                    || typeCount < 1 || typeCount > BinarySessionFormat.MAX_BLOCK_TYPES
+                    || size < BinarySessionFormat.BLOCK_HEADER_SIZE + typeCount * 4 || size > length - offset) {
+                break;
+            }
+            if (blocks == capacity) {
+                capacity *= 2;
+                blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+                blockStarts = Arrays.copyOf(blockStarts, capacity + 1);
+            }
+            blockOffsets[blocks] = offset;
+            blockStarts[blocks++] = samples;
+            samples += count;
+            offset += size;
+        }
+        blockOffsets = Arrays.copyOf(blockOffsets, blocks);
+        blockStarts = Arrays.copyOf(blockStarts, blocks + 1);
+        blockStarts[blocks] = samples;
+        return samples;
+    }
+
+    // Decode the block holding sample index unless it is the current one; returns the
+    // sample's index within the block
+    private int decodeBlockOf(int index) {
+        if (decodedBlock < 0 || index < blockStarts[decodedBlock] || index >= blockStarts[decodedBlock + 1]) {
+            int block = Arrays.binarySearch(blockStarts, 0, blockOffsets.length, index);
+            decodedBlock = block >= 0 ? block : -block - 2;
+            decoder.decode(buffer, blockOffsets[decodedBlock]);
+        }
+        return index - blockStarts[decodedBlock];
+    }
+
+    private int recordOffset(int index) {
+        return BinarySessionFormat.HEADER_SIZE + index * recordSize;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= sampleCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for size " + sampleCount);
+        }
+    }
+
+    public int size() {
+        return sampleCount;
+    }
+
+    // Sensor timestamp (elapsedRealtimeNanos base) of sample i, at microsecond resolution
+    public long getTimestampNanos(int index) {
+        checkIndex(index);
+        long micros;
+        if (compressed) {
+            micros = decoder.getMicros(decodeBlockOf(index));
+        } else if (deltaTime) {
+            int checkpoint = index / CHECKPOINT_INTERVAL;
+            micros = checkpoints[checkpoint];
+            for (int i = checkpoint * CHECKPOINT_INTERVAL + 1; i <= index; i++) {
+                micros += buffer.getInt(recordOffset(i));
+            }
+        } else {
+            micros = buffer.getInt(recordOffset(index));
+        }
+        return startTimeNanos + micros * 1000;
+    }
+
+    // Timestamp of sample i given that of sample i - 1 (ignored for i = 0), in O(1) for
+    // sequential reads where getTimestampNanos() walks from the last checkpoint
+    public long getTimestampNanos(int index, long previousTimestampNanos) {
+        if (compressed) {
+            return getTimestampNanos(index);
+        }
+        checkIndex(index);
+        int time = buffer.getInt(recordOffset(index));
+        if (deltaTime && index > 0) {
+            return previousTimestampNanos + time * 1000L;
+        }
+        return startTimeNanos + time * 1000L;
+    }
+
+    // Sensor that produced sample i
+    public int getSensorType(int index) {
+        checkIndex(index);
+        if (compressed) {
+            return decoder.getSensorType(decodeBlockOf(index));
+        }
+        return valuesOffset > 4 ? buffer.getInt(recordOffset(index) + 4) : sensorType;
+    }
+
+    public float getX(int index) {
+        return get(index, 0);
+    }
+
+    public float getY(int index) {
+        return get(index, 1);
+    }
+
+    public float getZ(int index) {
+        return get(index, 2);
+    }
+
+    // Axis 0 = x, 1 = y, 2 = z
+    public float get(int index, int axis) {
+        checkIndex(index);
+        if (compressed) {
+            return decoder.get(decodeBlockOf(index), axis);
+        }
+        return buffer.getFloat(recordOffset(index) + valuesOffset + axis * 4);
+    }
+
+    // Primary sensor of the session
+    public int getSensorType() {
+        return sensorType;
+    }
+
+    public float getNominalRateHz() {
+        return nominalRateHz;
+    }
+
+    public long getStartTimeNanos() {
+        return startTimeNanos;
+    }
+
+    public long getStartWallClockMs() {
+        return startWallClockMs;
+    }
+
+    public boolean isDeltaTime() {
+        return deltaTime;
+    }
+
+    public boolean isMultiSensor() {
+        return multiSensor;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    // Convert the session to the CSV layout written by CsvRecordEncoder
+    public void exportCsv(File destination) throws IOException {
+        CsvRecordEncoder encoder = new CsvRecordEncoder(multiSensor);
+        ByteBuffer chunk = ByteBuffer.allocate(SessionRecorder.DEFAULT_CHUNK_SIZE);
+
+        try (FileOutputStream out = new FileOutputStream(destination)) {
+            FileChannel channel = out.getChannel();
+            encoder.writeHeader(chunk);
+
+            long timestamp = startTimeNanos;
+            for (int i = 0; i < sampleCount; i++) {
+                if (chunk.remaining() < encoder.maxRecordBytes()) {
+                    writeFully(channel, chunk);
+                }
+
+                // Walk the records sequentially rather than seeking every timestamp
+                timestamp = getTimestampNanos(i, timestamp);
+                encoder.encode(chunk, getSensorType(i), timestamp, getX(i), getY(i), getZ(i));
+            }
+            writeFully(channel, chunk);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
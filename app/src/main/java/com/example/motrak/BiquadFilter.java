@@ -0,0 +1,87 @@
+package com.example.motrak;
+
+// Second-order IIR low-pass or high-pass filter on each axis, with coefficients from the
+// RBJ Audio EQ Cookbook (Q = 1/sqrt(2) gives a Butterworth response). Runs in transposed
+// direct form II with double-precision state, which stays stable for cutoffs far below
+// the sample rate (e.g. a 0.5 Hz high-pass at 400 Hz).
+public class BiquadFilter implements SampleFilter {
+    public static final double BUTTERWORTH_Q = Math.sqrt(0.5);
+
+    private final int sensorType;
+    private final double b0, b1, b2, a1, a2;
+
+    // Per-axis delay line
+    private final double[] z1 = new double[3];
+    private final double[] z2 = new double[3];
+
+    public static BiquadFilter lowPass(int sensorType, float sampleRateHz, float cutoffHz) {
+        return lowPass(sensorType, sampleRateHz, cutoffHz, BUTTERWORTH_Q);
+    }
+
+    public static BiquadFilter lowPass(int sensorType, float sampleRateHz, float cutoffHz, double q) {
+        double w0 = angularFrequency(sampleRateHz, cutoffHz);
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        return new BiquadFilter(sensorType,
+                (1 - cos) / 2, 1 - cos, (1 - cos) / 2,
+                1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    public static BiquadFilter highPass(int sensorType, float sampleRateHz, float cutoffHz) {
+        return highPass(sensorType, sampleRateHz, cutoffHz, BUTTERWORTH_Q);
+    }
+
+    public static BiquadFilter highPass(int sensorType, float sampleRateHz, float cutoffHz, double q) {
+        double w0 = angularFrequency(sampleRateHz, cutoffHz);
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        return new BiquadFilter(sensorType,
+                (1 + cos) / 2, -(1 + cos), (1 + cos) / 2,
+                1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    private static double angularFrequency(float sampleRateHz, float cutoffHz) {
+        if (sampleRateHz <= 0 || cutoffHz <= 0 || cutoffHz >= sampleRateHz / 2) {
+            throw new IllegalArgumentException("Cutoff must be between 0 and half the sample rate: "
+                    + cutoffHz + " Hz at " + sampleRateHz + " Hz");
+        }
+        return 2 * Math.PI * cutoffHz / sampleRateHz;
+    }
+
+    // Coefficients are normalized by a0
+    private BiquadFilter(int sensorType, double b0, double b1, double b2, double a0, double a1, double a2) {
+        this.sensorType = sensorType;
+        this.b0 = b0 / a0;
+        this.b1 = b1 / a0;
+        this.b2 = b2 / a0;
+        this.a1 = a1 / a0;
+        this.a2 = a2 / a0;
+    }
+
+    @Override
+    public void process(int type, long timestampNanos, float[] values) {
+        if (sensorType != ANY_SENSOR && type != sensorType) {
+            return;
+        }
+        for (int axis = 0; axis < 3; axis++) {
+            double x = values[axis];
+            double y = b0 * x + z1[axis];
+            z1[axis] = b1 * x - a1 * y + z2[axis];
+            z2[axis] = b2 * x - a2 * y;
+            values[axis] = (float) y;
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (int axis = 0; axis < 3; axis++) {
+            z1[axis] = 0;
+            z2[axis] = 0;
+        }
+    }
+
+    // Normalized coefficients {b0, b1, b2, a1, a2}
+    double[] getCoefficients() {
+        return new double[]{b0, b1, b2, a1, a2};
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.motrak;
+
+// Fuses gyroscope and accelerometer into roll, pitch and yaw (radians).
+// The gyroscope is integrated for fast, smooth response and the angles are pulled toward
+// the accelerometer's tilt estimate with the given time constant, which cancels gyro
+// drift in roll and pitch. Yaw has no absolute reference and is gyro-only.
+// Accelerometer samples pass through unchanged; gyroscope samples are replaced by the
+// fused roll, pitch and yaw, so this stage needs both sensors in the session.
+public class ComplementaryFilter implements SampleFilter {
+    private final int accelerometerType;
+    private final int gyroscopeType;
+    private final float timeConstantSeconds;
+
+    private boolean hasTilt = false;
+    private float accelRoll;
+    private float accelPitch;
+
+    private long lastGyroTimestamp = -1;
+    private float roll;
+    private float pitch;
+    private float yaw;
+
+    public ComplementaryFilter(int accelerometerType, int gyroscopeType, float timeConstantSeconds) {
+        if (timeConstantSeconds <= 0) {
+            throw new IllegalArgumentException("Time constant must be positive: " + timeConstantSeconds);
+        }
+        this.accelerometerType = accelerometerType;
+        this.gyroscopeType = gyroscopeType;
+        this.timeConstantSeconds = timeConstantSeconds;
+    }
+
+    @Override
+    public void process(int type, long timestampNanos, float[] values) {
+        if (type == accelerometerType) {
+            float ax = values[0];
+            float ay = values[1];
+            float az = values[2];
+            accelRoll = (float) Math.atan2(ay, az);
+            accelPitch = (float) Math.atan2(-ax, Math.sqrt(ay * ay + az * az));
+            hasTilt = true;
+        } else if (type == gyroscopeType) {
+            updateFromGyroscope(timestampNanos, values);
+            values[0] = roll;
+            values[1] = pitch;
+            values[2] = yaw;
+        }
+    }
+
+    private void updateFromGyroscope(long timestampNanos, float[] rates) {
+        if (lastGyroTimestamp < 0) {
+            // Start from the measured tilt instead of converging from zero
+            roll = hasTilt ? accelRoll : 0;
+            pitch = hasTilt ? accelPitch : 0;
+            lastGyroTimestamp = timestampNanos;
+            return;
+        }
+
+        float dt = Math.max(0, timestampNanos - lastGyroTimestamp) / 1e9f;
+        lastGyroTimestamp = timestampNanos;
+
+        roll += rates[0] * dt;
+        pitch += rates[1] * dt;
+        yaw += rates[2] * dt;
+
+        if (hasTilt) {
+            float alpha = timeConstantSeconds / (timeConstantSeconds + dt);
+            roll = alpha * roll + (1 - alpha) * accelRoll;
+            pitch = alpha * pitch + (1 - alpha) * accelPitch;
+        }
+    }
+
+    @Override
+    public void reset() {
+        hasTilt = false;
+        lastGyroTimestamp = -1;
+        roll = 0;
+        pitch = 0;
+        yaw = 0;
+    }
+
+    public float getRoll() {
+        return roll;
+    }
+
+    public float getPitch() {
+        return pitch;
+    }
+
+    public float getYaw() {
+        return yaw;
+    }
+}
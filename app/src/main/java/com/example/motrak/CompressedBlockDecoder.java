@@ -0,0 +1,135 @@
+package com.example.motrak;
+
+import java.nio.ByteBuffer;
+
+// Decodes one block of a compressed session file (see CompressedRecordEncoder and
+// BinarySessionFormat) into arrays that are reused for every block, so reading a session
+// sequentially decodes each block once and allocates nothing.
+public class CompressedBlockDecoder {
+    private static final int SAMPLES = BinarySessionFormat.MAX_BLOCK_SAMPLES;
+    private static final int TYPES = BinarySessionFormat.MAX_BLOCK_TYPES;
+
+    private final long[] micros = new long[SAMPLES];
+    private final int[] sensorTypes = new int[SAMPLES];
+    private final float[] values = new float[SAMPLES * 3];
+    private final int[] types = new int[TYPES];
+    private int count = 0;
+
+    private final int[] previousBits = new int[TYPES];
+    private final int[] previousLeading = new int[TYPES];
+    private final int[] previousTrailing = new int[TYPES];
+    private final int[] typeIndices = new int[SAMPLES];
+
+    private ByteBuffer source;
+    private int position;
+    private long accumulator;
+    private int available;
+
+    // Decode the block starting at offset in source (little-endian, already checked to lie
+    // within it); returns its sample count
+    public int decode(ByteBuffer source, int offset) {
+        count = source.getShort(offset + BinarySessionFormat.BLOCK_OFFSET_SAMPLES);
+        int typeCount = source.getShort(offset + BinarySessionFormat.BLOCK_OFFSET_TYPE_COUNT);
+        long startMicros = source.getLong(offset + BinarySessionFormat.BLOCK_OFFSET_START_MICROS);
+        for (int type = 0; type < typeCount; type++) {
+            types[type] = source.getInt(offset + BinarySessionFormat.BLOCK_OFFSET_TYPES + type * 4);
+        }
+
+        this.source = source;
+        position = offset + BinarySessionFormat.BLOCK_OFFSET_TYPES + typeCount * 4;
+        accumulator = 0;
+        available = 0;
+
+        int typeBits = 32 - Integer.numberOfLeadingZeros(typeCount - 1);
+        for (int i = 0; i < count; i++) {
+            typeIndices[i] = typeBits > 0 ? (int) readBits(typeBits) : 0;
+            sensorTypes[i] = types[typeIndices[i]];
+        }
+
+        micros[0] = startMicros;
+        long delta = 0;
+        for (int i = 1; i < count; i++) {
+            delta += readTimeChange();
+            micros[i] = micros[i - 1] + delta;
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            for (int type = 0; type < typeCount; type++) {
+                previousLeading[type] = -1;
+            }
+            for (int i = 0; i < count; i++) {
+                values[i * 3 + axis] = Float.intBitsToFloat(readValue(typeIndices[i]));
+            }
+        }
+        this.source = null;
+        return count;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Offset of sample i of the block from the session's startTimeNanos
+    public long getMicros(int index) {
+        return micros[index];
+    }
+
+    public int getSensorType(int index) {
+        return sensorTypes[index];
+    }
+
+    public float get(int index, int axis) {
+        return values[index * 3 + axis];
+    }
+
+    private long readTimeChange() {
+        if (readBits(1) == 0) {
+            return 0;
+        }
+        if (readBits(1) == 0) {
+            return signed(readBits(7), 7);
+        }
+        if (readBits(1) == 0) {
+            return signed(readBits(9), 9);
+        }
+        if (readBits(1) == 0) {
+            return signed(readBits(12), 12);
+        }
+        return signed(readBits(32), 32);
+    }
+
+    private int readValue(int type) {
+        if (previousLeading[type] < 0) {
+            previousBits[type] = (int) readBits(32);
+            previousLeading[type] = 32;
+            previousTrailing[type] = 0;
+            return previousBits[type];
+        }
+        if (readBits(1) == 0) {
+            return previousBits[type];
+        }
+        if (readBits(1) == 1) {
+            previousLeading[type] = (int) readBits(5);
+            int length = (int) readBits(5) + 1;
+            previousTrailing[type] = 32 - previousLeading[type] - length;
+        }
+        int length = 32 - previousLeading[type] - previousTrailing[type];
+        int xor = (int) readBits(length) << previousTrailing[type];
+        previousBits[type] ^= xor;
+        return previousBits[type];
+    }
+
+    private static long signed(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+
+    // Next count bits of the stream, count <= 32
+    private long readBits(int count) {
+        while (available < count) {
+            accumulator = (accumulator << 8) | (source.get(position++) & 0xFF);
+            available += 8;
+        }
+        available -= count;
+        return (accumulator >>> available) & ((1L << count) - 1);
+    }
+}
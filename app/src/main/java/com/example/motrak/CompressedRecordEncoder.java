@@ -0,0 +1,229 @@
+package com.example.motrak;
+
+import java.nio.ByteBuffer;
+
+// Writes samples in the compressed session format (version 3, see BinarySessionFormat).
+// Samples are gathered into blocks and each block is written column by column, in the
+// manner of Facebook's Gorilla time series store: timestamps as the change in the delta,
+// which is zero for most samples at a steady rate, and each axis as the XOR with the
+// previous value of the same sensor, which leaves only the low mantissa bits of a slowly
+// changing reading. A block goes out whole once full or from finish(); encode() costs an
+// array store otherwise. Allocation-free once constructed.
+public class CompressedRecordEncoder implements SessionRecorder.RecordEncoder {
+    private static final int SAMPLES = BinarySessionFormat.MAX_BLOCK_SAMPLES;
+    private static final int TYPES = BinarySessionFormat.MAX_BLOCK_TYPES;
+
+    private final int sensorType;
+    private final float nominalRateHz;
+    private final long startTimeNanos;
+    private final long startWallClockMs;
+    private final boolean multiSensor;
+
+    // Block being gathered
+    private final long[] micros = new long[SAMPLES];
+    private final int[] typeIndices = new int[SAMPLES];
+    private final float[] values = new float[SAMPLES * 3];
+    private final int[] types = new int[TYPES];
+    private int typeCount = 0;
+    private int count = 0;
+
+    // Previous value per sensor type while writing an axis column; leading -1 until the first
+    private final int[] previousBits = new int[TYPES];
+    private final int[] previousLeading = new int[TYPES];
+    private final int[] previousTrailing = new int[TYPES];
+
+    // Bit stream of the block being written
+    private final byte[] bits = new byte[BinarySessionFormat.MAX_BLOCK_SIZE];
+    private int bytePosition;
+    private long accumulator;
+    private int accumulatedBits;
+
+    private long blockCount = 0;
+
+    public CompressedRecordEncoder(int sensorType, float nominalRateHz, long startTimeNanos,
+                                   long startWallClockMs, boolean multiSensor) {
+        this.sensorType = sensorType;
+        this.nominalRateHz = nominalRateHz;
+        this.startTimeNanos = startTimeNanos;
+        this.startWallClockMs = startWallClockMs;
+        this.multiSensor = multiSensor;
+    }
+
+    @Override
+    public int maxRecordBytes() {
+        return BinarySessionFormat.MAX_BLOCK_SIZE;
+    }
+
+    @Override
+    public void writeHeader(ByteBuffer out) {
+        short flags = multiSensor ? BinarySessionFormat.FLAG_MULTI_SENSOR : 0;
+        BinarySessionFormat.writeHeader(out, BinarySessionFormat.VERSION_COMPRESSED, flags, sensorType,
+                nominalRateHz, startTimeNanos, startWallClockMs);
+    }
+
+    @Override
+    public void encode(ByteBuffer out, int sensorType, long timestampNanos, float x, float y, float z) {
+        // Same rounding as BinaryRecordEncoder
+        long sampleMicros = Math.round((timestampNanos - startTimeNanos) / 1000.0);
+        int typeIndex = indexOfType(sensorType);
+        if (count > 0 && !fitsInBlock(typeIndex, sampleMicros)) {
+            writeBlock(out);
+            typeIndex = -1;
+        }
+        if (typeIndex < 0) {
+            typeIndex = typeCount;
+            types[typeCount++] = sensorType;
+        }
+
+        micros[count] = sampleMicros;
+        typeIndices[count] = typeIndex;
+        values[count * 3] = x;
+        values[count * 3 + 1] = y;
+        values[count * 3 + 2] = z;
+        count++;
+        if (count == SAMPLES) {
+            writeBlock(out);
+        }
+    }
+
+    @Override
+    public void finish(ByteBuffer out) {
+        if (count > 0) {
+            writeBlock(out);
+        }
+    }
+
+    // Blocks written so far
+    public long getBlockCount() {
+        return blockCount;
+    }
+
+    private int indexOfType(int type) {
+        for (int i = 0; i < typeCount; i++) {
+            if (types[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Whether the sample can join the current block: its type has a slot and the change in
+    // the time delta fits the widest time code
+    private boolean fitsInBlock(int typeIndex, long sampleMicros) {
+        if (typeIndex < 0 && typeCount == TYPES) {
+            return false;
+        }
+        long previousDelta = count > 1 ? micros[count - 1] - micros[count - 2] : 0;
+        long change = sampleMicros - micros[count - 1] - previousDelta;
+        return change == (int) change;
+    }
+
+    private void writeBlock(ByteBuffer out) {
+        bytePosition = 0;
+        accumulator = 0;
+        accumulatedBits = 0;
+
+        int typeBits = 32 - Integer.numberOfLeadingZeros(typeCount - 1);
+        if (typeBits > 0) {
+            for (int i = 0; i < count; i++) {
+                writeBits(typeIndices[i], typeBits);
+            }
+        }
+
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = micros[i] - micros[i - 1];
+            writeTimeChange((int) (delta - previousDelta));
+            previousDelta = delta;
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            for (int type = 0; type < typeCount; type++) {
+                previousLeading[type] = -1;
+            }
+            for (int i = 0; i < count; i++) {
+                writeValue(typeIndices[i], Float.floatToRawIntBits(values[i * 3 + axis]));
+            }
+        }
+
+        if (accumulatedBits > 0) {
+            bits[bytePosition++] = (byte) (accumulator << (8 - accumulatedBits));
+        }
+
+        out.order(BinarySessionFormat.BYTE_ORDER);
+        out.putInt(BinarySessionFormat.BLOCK_HEADER_SIZE + typeCount * 4 + bytePosition);
+        out.putShort((short) count);
+        out.putShort((short) typeCount);
+        out.putLong(micros[0]);
+        for (int type = 0; type < typeCount; type++) {
+            out.putInt(types[type]);
+        }
+        out.put(bits, 0, bytePosition);
+
+        count = 0;
+        typeCount = 0;
+        blockCount++;
+    }
+
+    private void writeTimeChange(int change) {
+        if (change == 0) {
+            writeBits(0b0, 1);
+        } else if (change >= -64 && change < 64) {
+            writeBits(0b10, 2);
+            writeBits(change, 7);
+        } else if (change >= -256 && change < 256) {
+            writeBits(0b110, 3);
+            writeBits(change, 9);
+        } else if (change >= -2048 && change < 2048) {
+            writeBits(0b1110, 4);
+            writeBits(change, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(change, 32);
+        }
+    }
+
+    private void writeValue(int type, int value) {
+        if (previousLeading[type] < 0) {
+            writeBits(value, 32);
+            previousBits[type] = value;
+            previousLeading[type] = 32;
+            previousTrailing[type] = 0;
+            return;
+        }
+
+        int xor = value ^ previousBits[type];
+        previousBits[type] = value;
+        if (xor == 0) {
+            writeBits(0b0, 1);
+            return;
+        }
+        int leading = Integer.numberOfLeadingZeros(xor);
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        int length = 32 - leading - trailing;
+        int window = 32 - previousLeading[type] - previousTrailing[type];
+        // Reuse the previous window when the bits fit and that is no longer than a new one,
+        // so a single wide XOR doesn't widen every value after it
+        if (leading >= previousLeading[type] && trailing >= previousTrailing[type] && window <= length + 10) {
+            writeBits(0b10, 2);
+            writeBits(xor >>> previousTrailing[type], window);
+        } else {
+            writeBits(0b11, 2);
+            writeBits(leading, 5);
+            writeBits(length - 1, 5);
+            writeBits(xor >>> trailing, length);
+            previousLeading[type] = leading;
+            previousTrailing[type] = trailing;
+        }
+    }
+
+    // Append the low count bits of value, count <= 32
+    private void writeBits(long value, int count) {
+        accumulator = (accumulator << count) | (value & ((1L << count) - 1));
+        accumulatedBits += count;
+        while (accumulatedBits >= 8) {
+            accumulatedBits -= 8;
+            bits[bytePosition++] = (byte) (accumulator >>> accumulatedBits);
+        }
+    }
+}
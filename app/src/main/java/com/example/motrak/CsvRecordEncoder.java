@@ -0,0 +1,72 @@
+package com.example.motrak;
+
+import java.nio.ByteBuffer;
+
+// Encodes samples as CSV lines: time in milliseconds since the first sample, then x, y, z.
+// Multi-sensor sessions add the Android sensor type as a second column.
+// Numbers are formatted with NumberFormatter, so encoding does not allocate.
+public class CsvRecordEncoder implements SessionRecorder.RecordEncoder {
+    public static final String HEADER = "Time (ms),X,Y,Z\n";
+    public static final String MULTI_SENSOR_HEADER = "Time (ms),Sensor,X,Y,Z\n";
+
+    private static final int TIME_DECIMALS = 3;
+    private static final int VALUE_DECIMALS = 6;
+
+    private final char[] scratch = new char[NumberFormatter.MAX_LENGTH];
+    private final boolean includeSensorType;
+    private long firstTimestamp = -1;
+
+    public CsvRecordEncoder() {
+        this(false);
+    }
+
+    public CsvRecordEncoder(boolean includeSensorType) {
+        this.includeSensorType = includeSensorType;
+    }
+
+    @Override
+    public int maxRecordBytes() {
+        // Up to five numbers, four commas and a newline
+        return 5 * NumberFormatter.MAX_LENGTH + 5;
+    }
+
+    @Override
+    public void writeHeader(ByteBuffer out) {
+        String header = includeSensorType ? MULTI_SENSOR_HEADER : HEADER;
+        for (int i = 0; i < header.length(); i++) {
+            out.put((byte) header.charAt(i));
+        }
+    }
+
+    @Override
+    public void encode(ByteBuffer out, int sensorType, long timestampNanos, float x, float y, float z) {
+        if (firstTimestamp < 0) {
+            firstTimestamp = timestampNanos;
+        }
+
+        putNumber(out, (timestampNanos - firstTimestamp) / 1e6, TIME_DECIMALS);
+        out.put((byte) ',');
+        if (includeSensorType) {
+            putNumber(out, sensorType, 0);
+            out.put((byte) ',');
+        }
+        putNumber(out, x, VALUE_DECIMALS);
+        out.put((byte) ',');
+        putNumber(out, y, VALUE_DECIMALS);
+        out.put((byte) ',');
+        putNumber(out, z, VALUE_DECIMALS);
+        out.put((byte) '\n');
+    }
+
+    @Override
+    public void finish(ByteBuffer out) {
+        // Every line is complete once encoded
+    }
+
+    private void putNumber(ByteBuffer out, double value, int decimals) {
+        int length = NumberFormatter.formatFixed(value, decimals, scratch, 0);
+        for (int i = 0; i < length; i++) {
+            out.put((byte) scratch[i]);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.motrak;
+
+// Rule-based detection on the live sample stream: threshold crossings with hysteresis,
+// peaks, shakes and free fall. SamplePipeline runs it on the sensor thread for every raw
+// sample, so what triggers does not depend on the display filter. Each rule watches one
+// sensor type and keeps a few fields of state, so a sample costs constant work per rule
+// and allocates nothing. Events reach the listeners as primitives on the sensor thread;
+// anything slow should be handed off from there.
+public class EventDetector {
+    // Event types. The value passed with each is described next to it.
+    // Crossed a ThresholdRule's enter level (value: the sample)
+    public static final int EVENT_THRESHOLD_ENTER = 0;
+    // Crossed back past its exit level (value: the sample)
+    public static final int EVENT_THRESHOLD_EXIT = 1;
+    // Local maximum found by a PeakRule (value and timestamp: those of the peak)
+    public static final int EVENT_PEAK = 2;
+    // Enough jolts within a ShakeRule's window (value: the strongest jolt's deviation from 1 g)
+    public static final int EVENT_SHAKE = 3;
+    // Magnitude near zero for a FreeFallRule's duration (value: the lowest magnitude;
+    // timestamp: the start of the fall)
+    public static final int EVENT_FREE_FALL = 4;
+
+    // Quantity a rule watches
+    public static final int AXIS_X = 0;
+    public static final int AXIS_Y = 1;
+    public static final int AXIS_Z = 2;
+    public static final int AXIS_MAGNITUDE = 3;
+
+    // Standard gravity, as SensorManager.GRAVITY_EARTH
+    public static final float GRAVITY = 9.80665f;
+
+    public interface EventListener {
+        void onEvent(Rule rule, int event, long timestampNanos, float value);
+    }
+
+    // Base of the rules; the state of a rule is only touched on the sensor thread
+    public abstract static class Rule {
+        private final int sensorType;
+        private final int axis;
+
+        Rule(int sensorType, int axis) {
+            if (axis < AXIS_X || axis > AXIS_MAGNITUDE) {
+                throw new IllegalArgumentException("Unknown axis " + axis);
+            }
+            this.sensorType = sensorType;
+            this.axis = axis;
+        }
+
+        public int getSensorType() {
+            return sensorType;
+        }
+
+        public int getAxis() {
+            return axis;
+        }
+
+        abstract void onSample(EventDetector detector, long timestampNanos, float value);
+
+        abstract void reset();
+    }
+
+    // Fires EVENT_THRESHOLD_ENTER when the value crosses enterLevel and EVENT_THRESHOLD_EXIT
+    // once it has crossed back past exitLevel. Watches for rising values if enterLevel is
+    // above exitLevel and for falling ones otherwise; the gap keeps noise around either
+    // level from firing a burst of events.
+    public static class ThresholdRule extends Rule {
+        private final float enterLevel;
+        private final float exitLevel;
+        private final boolean rising;
+        private boolean inside = false;
+
+        public ThresholdRule(int sensorType, int axis, float enterLevel, float exitLevel) {
+            super(sensorType, axis);
+            if (enterLevel == exitLevel) {
+                throw new IllegalArgumentException("Enter and exit levels must differ");
+            }
+            this.enterLevel = enterLevel;
+            this.exitLevel = exitLevel;
+            this.rising = enterLevel > exitLevel;
+        }
+
+        @Override
+        void onSample(EventDetector detector, long timestampNanos, float value) {
+            if (!inside) {
+                if (rising ? value > enterLevel : value < enterLevel) {
+                    inside = true;
+                    detector.emit(this, EVENT_THRESHOLD_ENTER, timestampNanos, value);
+                }
+            } else if (rising ? value < exitLevel : value > exitLevel) {
+                inside = false;
+                detector.emit(this, EVENT_THRESHOLD_EXIT, timestampNanos, value);
+            }
+        }
+
+        @Override
+        void reset() {
+            inside = false;
+        }
+
+        // Between the enter and exit events
+        public boolean isInside() {
+            return inside;
+        }
+    }
+
+    // Fires EVENT_PEAK for every local maximum of at least minHeight that stands out by
+    // minProminence: the value must fall that far below it before it counts, and rise
+    // that far from the following minimum before the next one is looked for. Peaks closer
+    // than minIntervalNanos to the previous one are skipped. The event comes when the
+    // fall confirms the peak, with the peak's own timestamp.
+    public static class PeakRule extends Rule {
+        private final float minHeight;
+        private final float minProminence;
+        private final long minIntervalNanos;
+
+        private boolean searchingPeak = true;
+        private boolean started = false;
+        // Highest value while searching for a peak, lowest while waiting for the rise
+        private float extreme;
+        private long extremeTimestamp;
+        private long lastPeakTimestamp;
+        private boolean hasPeak = false;
+
+        public PeakRule(int sensorType, int axis, float minHeight, float minProminence, long minIntervalNanos) {
+            super(sensorType, axis);
+            if (minProminence <= 0) {
+                throw new IllegalArgumentException("Prominence must be positive");
+            }
+            this.minHeight = minHeight;
+            this.minProminence = minProminence;
+            this.minIntervalNanos = minIntervalNanos;
+        }
+
+        @Override
+        void onSample(EventDetector detector, long timestampNanos, float value) {
+            if (!started) {
+                started = true;
+                extreme = value;
+                extremeTimestamp = timestampNanos;
+                return;
+            }
+            if (searchingPeak) {
+                if (value > extreme) {
+                    extreme = value;
+                    extremeTimestamp = timestampNanos;
+                } else if (value <= extreme - minProminence) {
+                    if (extreme >= minHeight
+                            && (!hasPeak || extremeTimestamp - lastPeakTimestamp >= minIntervalNanos)) {
+                        hasPeak = true;
+                        lastPeakTimestamp = extremeTimestamp;
+                        detector.emit(this, EVENT_PEAK, extremeTimestamp, extreme);
+                    }
+                    searchingPeak = false;
+                    extreme = value;
+                }
+            } else if (value < extreme) {
+                extreme = value;
+            } else if (value >= extreme + minProminence) {
+                searchingPeak = true;
+                extreme = value;
+                extremeTimestamp = timestampNanos;
+            }
+        }
+
+        @Override
+        void reset() {
+            searchingPeak = true;
+            started = false;
+            hasPeak = false;
+        }
+    }
+
+    // Fires EVENT_SHAKE when the acceleration magnitude strays more than threshold from
+    // 1 g in jolts times within windowNanos. A jolt ends once the deviation drops below
+    // half the threshold. After an event the count starts over.
+    public static class ShakeRule extends Rule {
+        private final float threshold;
+        private final long windowNanos;
+        // Start time and strongest deviation of the jolts in the window, oldest at head
+        private final long[] joltTimestamps;
+        private final float[] joltStrengths;
+        private int joltCount = 0;
+        private int head = 0;
+        private boolean inJolt = false;
+
+        public ShakeRule(int sensorType, float threshold, int jolts, long windowNanos) {
+            super(sensorType, AXIS_MAGNITUDE);
+            if (jolts < 1 || threshold <= 0) {
+                throw new IllegalArgumentException("Need at least one jolt and a positive threshold");
+            }
+            this.threshold = threshold;
+            this.windowNanos = windowNanos;
+            this.joltTimestamps = new long[jolts];
+            this.joltStrengths = new float[jolts];
+        }
+
+        @Override
+        void onSample(EventDetector detector, long timestampNanos, float value) {
+            float deviation = Math.abs(value - GRAVITY);
+            int capacity = joltTimestamps.length;
+            if (inJolt) {
+                if (joltCount > 0) {
+                    int last = (head + joltCount - 1) % capacity;
+                    joltStrengths[last] = Math.max(joltStrengths[last], deviation);
+                }
+                if (deviation < threshold / 2) {
+                    inJolt = false;
+                }
+                return;
+            }
+            if (deviation <= threshold) {
+                return;
+            }
+
+            // Never full here: the count starts over once it reaches the capacity
+            inJolt = true;
+            int slot = (head + joltCount) % capacity;
+            joltTimestamps[slot] = timestampNanos;
+            joltStrengths[slot] = deviation;
+            joltCount++;
+            // Jolts that left the window no longer count
+            while (timestampNanos - joltTimestamps[head] > windowNanos) {
+                head = (head + 1) % capacity;
+                joltCount--;
+            }
+
+            if (joltCount == capacity) {
+                float strongest = 0;
+                for (float strength : joltStrengths) {
+                    strongest = Math.max(strongest, strength);
+                }
+                detector.emit(this, EVENT_SHAKE, timestampNanos, strongest);
+                // The last jolt keeps going, but belongs to this shake
+                joltCount = 0;
+                head = 0;
+            }
+        }
+
+        @Override
+        void reset() {
+            joltCount = 0;
+            head = 0;
+            inJolt = false;
+        }
+    }
+
+    // Fires EVENT_FREE_FALL once the acceleration magnitude has stayed below threshold
+    // for minDurationNanos; a device in free fall measures close to zero. One event per
+    // fall: the rule re-arms when the magnitude is back above the threshold.
+    public static class FreeFallRule extends Rule {
+        private final float threshold;
+        private final long minDurationNanos;
+        private boolean falling = false;
+        private boolean reported = false;
+        private long fallStart;
+        private float lowest;
+
+        public FreeFallRule(int sensorType, float threshold, long minDurationNanos) {
+            super(sensorType, AXIS_MAGNITUDE);
+            this.threshold = threshold;
+            this.minDurationNanos = minDurationNanos;
+        }
+
+        @Override
+        void onSample(EventDetector detector, long timestampNanos, float value) {
+            if (value >= threshold) {
+                falling = false;
+                reported = false;
+                return;
+            }
+            if (!falling) {
+                falling = true;
+                fallStart = timestampNanos;
+                lowest = value;
+            }
+            lowest = Math.min(lowest, value);
+            if (!reported && timestampNanos - fallStart >= minDurationNanos) {
+                reported = true;
+                detector.emit(this, EVENT_FREE_FALL, fallStart, lowest);
+            }
+        }
+
+        @Override
+        void reset() {
+            falling = false;
+            reported = false;
+        }
+    }
+
+    // Replaced as a whole when rules or listeners change, so the sensor thread iterates
+    // without locking or allocating
+    private volatile Rule[] rules = new Rule[0];
+    private volatile EventListener[] listeners = new EventListener[0];
+
+    private long eventCount = 0;
+
+    public synchronized void addRule(Rule rule) {
+        Rule[] updated = new Rule[rules.length + 1];
+        System.arraycopy(rules, 0, updated, 0, rules.length);
+        updated[rules.length] = rule;
+        rules = updated;
+    }
+
+    public Rule[] getRules() {
+        return rules.clone();
+    }
+
+    public synchronized void addListener(EventListener listener) {
+        EventListener[] updated = new EventListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, updated, 0, listeners.length);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void removeListener(EventListener listener) {
+        EventListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                EventListener[] updated = new EventListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    // Sensor thread
+    public void onSample(int sensorType, long timestampNanos, float x, float y, float z) {
+        Rule[] active = rules;
+        float magnitude = Float.NaN;
+        for (Rule rule : active) {
+            if (rule.sensorType != sensorType) {
+                continue;
+            }
+            float value;
+            switch (rule.axis) {
+                case AXIS_X:
+                    value = x;
+                    break;
+                case AXIS_Y:
+                    value = y;
+                    break;
+                case AXIS_Z:
+                    value = z;
+                    break;
+                default:
+                    if (Float.isNaN(magnitude)) {
+                        magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+                    }
+                    value = magnitude;
+                    break;
+            }
+            rule.onSample(this, timestampNanos, value);
+        }
+    }
+
+    // Forget the state of every rule, e.g. between sessions. Sensor thread, or while no
+    // samples are coming in.
+    public void reset() {
+        for (Rule rule : rules) {
+            rule.reset();
+        }
+    }
+
+    // Events emitted so far (sensor thread)
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    void emit(Rule rule, int event, long timestampNanos, float value) {
+        eventCount++;
+        for (EventListener listener : listeners) {
+            listener.onEvent(rule, event, timestampNanos, value);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.motrak;
+
+// In-place radix-2 complex FFT of a fixed power-of-two size. Twiddle factors and the
+// bit-reversal permutation are computed once in the constructor, so transform() does no
+// trigonometry and allocates nothing. Not thread-safe: one instance per thread.
+public class Fft {
+    private final int size;
+    private final int[] bitReverse;
+    // cos/sin of -2*pi*k/size for k < size/2
+    private final float[] cos;
+    private final float[] sin;
+
+    public Fft(int size) {
+        if (!isPowerOfTwo(size) || size < 2) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+
+        int bits = Integer.numberOfTrailingZeros(size);
+        bitReverse = new int[size];
+        for (int i = 0; i < size; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+
+        cos = new float[size / 2];
+        sin = new float[size / 2];
+        for (int k = 0; k < size / 2; k++) {
+            double angle = -2 * Math.PI * k / size;
+            cos[k] = (float) Math.cos(angle);
+            sin[k] = (float) Math.sin(angle);
+        }
+    }
+
+    public static boolean isPowerOfTwo(int n) {
+        return n > 0 && (n & (n - 1)) == 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Forward transform of (re, im), both at least size long; results replace the input
+    public void transform(float[] re, float[] im) {
+        for (int i = 0; i < size; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                float t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+
+        for (int length = 2; length <= size; length <<= 1) {
+            int half = length >> 1;
+            int step = size / length;
+            for (int start = 0; start < size; start += length) {
+                for (int j = 0, k = 0; j < half; j++, k += step) {
+                    int even = start + j;
+                    int odd = even + half;
+                    float wr = cos[k];
+                    float wi = sin[k];
+                    float tr = wr * re[odd] - wi * im[odd];
+                    float ti = wr * im[odd] + wi * re[odd];
+                    re[odd] = re[even] - tr;
+                    im[odd] = im[even] - ti;
+                    re[even] += tr;
+                    im[even] += ti;
+                }
+            }
+        }
+    }
+}
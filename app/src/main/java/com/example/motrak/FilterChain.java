@@ -0,0 +1,33 @@
+package com.example.motrak;
+
+import java.util.Arrays;
+
+// Ordered list of filter stages applied to every sample. Stages are added while setting
+// up a session; process() walks a plain array, so the chain itself is allocation-free.
+public class FilterChain implements SampleFilter {
+    private SampleFilter[] stages = new SampleFilter[0];
+
+    public FilterChain add(SampleFilter stage) {
+        stages = Arrays.copyOf(stages, stages.length + 1);
+        stages[stages.length - 1] = stage;
+        return this;
+    }
+
+    @Override
+    public void process(int sensorType, long timestampNanos, float[] values) {
+        for (SampleFilter stage : stages) {
+            stage.process(sensorType, timestampNanos, values);
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (SampleFilter stage : stages) {
+            stage.reset();
+        }
+    }
+
+    public int size() {
+        return stages.length;
+    }
+}
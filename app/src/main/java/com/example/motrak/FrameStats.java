@@ -0,0 +1,80 @@
+package com.example.motrak;
+
+// Counts redraws and the samples folded into each one, and times onDraw, over one-second
+// windows. Updated on the UI thread from frame callbacks and onDraw.
+public class FrameStats {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private long windowStart = -1;
+    private int windowRedraws = 0;
+    private long windowSamples = 0;
+    private int windowDraws = 0;
+    private long windowDrawNanos = 0;
+    private long windowMaxDrawNanos = 0;
+
+    private float redrawsPerSecond = 0f;
+    private float samplesPerFrame = 0f;
+    private float meanDrawMs = 0f;
+    private float maxDrawMs = 0f;
+
+    public void onRedraw(long frameTimeNanos, int samples) {
+        if (windowStart < 0) {
+            windowStart = frameTimeNanos;
+        }
+
+        windowRedraws++;
+        windowSamples += samples;
+
+        long elapsed = frameTimeNanos - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+            redrawsPerSecond = windowRedraws * 1e9f / elapsed;
+            samplesPerFrame = (float) windowSamples / windowRedraws;
+            if (windowDraws > 0) {
+                meanDrawMs = windowDrawNanos / 1e6f / windowDraws;
+                maxDrawMs = windowMaxDrawNanos / 1e6f;
+            }
+            windowStart = frameTimeNanos;
+            windowRedraws = 0;
+            windowSamples = 0;
+            windowDraws = 0;
+            windowDrawNanos = 0;
+            windowMaxDrawNanos = 0;
+        }
+    }
+
+    // Time spent in one onDraw call, recording the canvas commands (not GPU time)
+    public void onDrawTime(long durationNanos) {
+        windowDraws++;
+        windowDrawNanos += durationNanos;
+        windowMaxDrawNanos = Math.max(windowMaxDrawNanos, durationNanos);
+    }
+
+    public float getRedrawsPerSecond() {
+        return redrawsPerSecond;
+    }
+
+    public float getSamplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    public float getMeanDrawMs() {
+        return meanDrawMs;
+    }
+
+    public float getMaxDrawMs() {
+        return maxDrawMs;
+    }
+
+    public void reset() {
+        windowStart = -1;
+        windowRedraws = 0;
+        windowSamples = 0;
+        windowDraws = 0;
+        windowDrawNanos = 0;
+        windowMaxDrawNanos = 0;
+        redrawsPerSecond = 0f;
+        samplesPerFrame = 0f;
+        meanDrawMs = 0f;
+        maxDrawMs = 0f;
+    }
+}
@@ -1,30 +1,38 @@
 package com.example.motrak;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.DashPathEffect;
 import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.Shader;
+import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.view.View;
-import android.view.animation.DecelerateInterpolator;
-import android.animation.ValueAnimator;
 
 import androidx.annotation.NonNull;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class GraphView extends View {
-    private final List<Float> xData = new ArrayList<>();
-    private final List<Float> yData = new ArrayList<>();
-    private final List<Float> zData = new ArrayList<>();
+    // What onDraw plots: the time series, the latest spectrum of each axis, or a scrolling
+    // spectrogram of the combined power of all axes
+    public static final int MODE_TIME = 0;
+    public static final int MODE_SPECTRUM = 1;
+    public static final int MODE_SPECTROGRAM = 2;
+
+    // How the time series is drawn: Paths with gradient-filled areas, or line segments and
+    // triangle strips written into reused float[] buffers, which skips path tessellation
+    public static final int BACKEND_PATH = 0;
+    public static final int BACKEND_LINES = 1;
 
     private Paint xLinePaint;
     private Paint yLinePaint;
@@ -32,34 +40,127 @@ public class GraphView extends View {
     private Paint gridPaint;
     private Paint textPaint;
     private Paint backgroundPaint;
+    private Paint zeroLinePaint;
 
     // For filled area under graph
     private Paint xFillPaint;
     private Paint yFillPaint;
     private Paint zFillPaint;
 
+    // Reused on every frame so steady-state drawing does not allocate
+    private final Path linePath = new Path();
+    private final Path areaPath = new Path();
+    private final char[] labelChars = new char[NumberFormatter.MAX_LENGTH + 1];
+
+    // Background, title, grid, y-axis labels and zero line, redrawn only when staticLayerDirty
+    private Bitmap staticLayer;
+    private final Canvas staticCanvas = new Canvas();
+    private boolean staticLayerDirty = true;
+
+    private int renderBackend = BACKEND_PATH;
+    // BACKEND_LINES buffers, grown only when more points are visible than ever before:
+    // 4 floats per line segment, and 2 vertices (curve, baseline) per point for the fill
+    private float[] lineVertices = new float[0];
+    private float[] areaVertices = new float[0];
+    // Per axis: fill color at the curve fading to transparent at the baseline
+    private final int[][] areaColors = new int[3][0];
+    private Paint vertexPaint;
+
+    // Fill gradients, rebuilt only when the zero line or the bottom edge moves
+    private LinearGradient xFillShader;
+    private LinearGradient yFillShader;
+    private LinearGradient zFillShader;
+    private float shaderTop = Float.NaN;
+    private float shaderBottom = Float.NaN;
+
+    private static final int Y_GRID_LINES = 10;
+    private final String[] yAxisLabels = new String[Y_GRID_LINES + 1];
+
     private float minValue = -15;
     private float maxValue = 15;
     private int maxDataPoints = 100;
+    private final SampleRingBuffer data = new SampleRingBuffer(maxDataPoints);
+
+    // Everything older than the window, at decreasing resolution: raw samples for the last
+    // HISTORY_CAPACITY, then min/max/mean summaries of 10, 100 and 1000 samples, in the
+    // same memory however long the session. Reached by panning left or zooming out.
+    private static final int HISTORY_CAPACITY = 16_384;
+    private static final int HISTORY_FACTOR = 10;
+    private static final int HISTORY_LEVELS = 3;
+    private final HistoryPyramid history =
+            new HistoryPyramid(HISTORY_CAPACITY, HISTORY_FACTOR, HISTORY_LEVELS, HISTORY_CAPACITY);
+
+    // Per-axis statistics of the plotted window, updated as samples are appended
+    private RollingStats stats = new RollingStats(maxDataPoints);
+
+    // Auto-scaling fits the y range to the window; the sensor type's range is the fallback
+    private boolean autoScale = true;
+    private float defaultMinValue = -15;
+    private float defaultMaxValue = 15;
+    // Decimals of the y-axis labels, enough to tell neighbouring grid lines apart
+    private int labelDecimals = 1;
+
+    // Long windows are plotted through per-column min/max buckets instead of raw samples
+    private static final float GRAPH_PADDING = 80;
+    private static final int DECIMATION_POINTS_PER_COLUMN = 4;
+    private MinMaxDecimator decimator;
+    // Visible samples above which the decimator is used
+    private int decimationThreshold;
+    // Set by preparePlot() for the plotPosition()/plotValue() calls that follow
+    private boolean plotDecimated;
+    private boolean plotHistory;
+    private int plotFirst;
     private String sensorType = "Sensor Data";
 
+    private int renderMode = MODE_TIME;
+
+    // Spectral modes: the analyzer runs on the sensor thread, each frame copies its latest window
+    private SpectrumAnalyzer spectrumAnalyzer;
+    private SpectrumAnalyzer.Spectrum spectrum;
+    private long lastSpectrumTimestamp = -1;
+    private long spectrumIntervalNanos = 0;
+    // Amplitude range of the spectrum and spectrogram, dB relative to one sensor unit
+    private static final float SPECTRUM_MIN_DB = -60;
+    private static final float SPECTRUM_MAX_DB = 20;
+    // Nyquist frequency the spectrogram's y-axis labels were built for
+    private int axisLabelNyquist = -1;
+    private final char[] readoutChars = new char[2 * NumberFormatter.MAX_LENGTH + 8];
+
+    // Spectrogram history: one bitmap column per window, written in place as a ring
+    private static final int SPECTROGRAM_COLUMNS = 240;
+    private Bitmap spectrogram;
+    private int[] spectrogramColumn;
+    private int spectrogramHead = 0;
+    private final int[] heatPalette = new int[256];
+    private Paint spectrogramPaint;
+    private final Rect spectrogramSrc = new Rect();
+    private final RectF spectrogramDst = new RectF();
+
     // For zooming and panning
     private ScaleGestureDetector scaleDetector;
     private GestureDetector gestureDetector;
-    private float scaleFactor = 1f;
-    private float xOffset = 0f;
+    // Zoom and pan, mapped to the range of samples on screen
+    private final PlotViewport viewport = new PlotViewport();
     private boolean isZoomEnabled = true;
 
-    // Animation properties
-    private ValueAnimator dataAnimator;
-    private static final int ANIMATION_DURATION = 300;
-
     // Theme options
     private boolean isDarkMode = false;
 
-    // Timestamp for data points
-    private final List<Long> timestamps = new ArrayList<>();
-    private long startTime = 0;
+    // Sensor timestamp (elapsedRealtimeNanos) of the first sample, or -1 before it.
+    // Samples are stored in nanoseconds relative to it.
+    private long startTimeNanos = -1;
+
+    // Render loop: samples queued by the sensor thread are drained on each vsync
+    // and at most one redraw is issued per frame, only when new data arrived
+    private Choreographer choreographer;
+    private SpscSampleQueue liveQueue;
+    // The queue carries every captured sensor; only this one is plotted
+    private int liveSensorType;
+    private final SpscSampleQueue.SampleConsumer queueConsumer = this::onQueuedSample;
+    private final Choreographer.FrameCallback frameCallback = this::doFrame;
+    private boolean frameScheduled = false;
+    private int pendingSamples = 0;
+    private final FrameStats frameStats = new FrameStats();
 
     public GraphView(Context context) {
         super(context);
@@ -95,14 +196,17 @@ public class GraphView extends View {
         xFillPaint = new Paint();
         xFillPaint.setStyle(Paint.Style.FILL);
         xFillPaint.setAntiAlias(true);
+        xFillPaint.setAlpha(70);
 
         yFillPaint = new Paint();
         yFillPaint.setStyle(Paint.Style.FILL);
         yFillPaint.setAntiAlias(true);
+        yFillPaint.setAlpha(70);
 
         zFillPaint = new Paint();
         zFillPaint.setStyle(Paint.Style.FILL);
         zFillPaint.setAntiAlias(true);
+        zFillPaint.setAlpha(70);
 
         gridPaint = new Paint();
         gridPaint.setColor(Color.LTGRAY);
@@ -118,14 +222,26 @@ public class GraphView extends View {
         backgroundPaint = new Paint();
         backgroundPaint.setColor(Color.WHITE);
 
+        zeroLinePaint = new Paint(gridPaint);
+        zeroLinePaint.setColor(Color.DKGRAY);
+        zeroLinePaint.setStrokeWidth(2f);
+        zeroLinePaint.setPathEffect(null); // No dash for zero line
+
+        vertexPaint = new Paint();
+
+        spectrogramPaint = new Paint();
+        spectrogramPaint.setFilterBitmap(true);
+        buildHeatPalette();
+
+        rebuildAxisLabels();
+
         // Initialize gesture detectors
         scaleDetector = new ScaleGestureDetector(context, new ScaleListener());
         gestureDetector = new GestureDetector(context, new GestureListener());
 
-        // Initialize animation
-        dataAnimator = ValueAnimator.ofFloat(0f, 1f);
-        dataAnimator.setDuration(ANIMATION_DURATION);
-        dataAnimator.setInterpolator(new DecelerateInterpolator());
+        viewport.setWindowSize(maxDataPoints);
+
+        choreographer = Choreographer.getInstance();
     }
 
     public void setDarkMode(boolean darkMode) {
@@ -134,11 +250,14 @@ public class GraphView extends View {
             backgroundPaint.setColor(Color.parseColor("#121212"));
             textPaint.setColor(Color.LTGRAY);
             gridPaint.setColor(Color.parseColor("#333333"));
+            zeroLinePaint.setColor(Color.parseColor("#777777"));
         } else {
             backgroundPaint.setColor(Color.WHITE);
             textPaint.setColor(Color.DKGRAY);
             gridPaint.setColor(Color.LTGRAY);
+            zeroLinePaint.setColor(Color.DKGRAY);
         }
+        staticLayerDirty = true;
         invalidate();
     }
 
@@ -150,52 +269,405 @@ public class GraphView extends View {
         this.sensorType = type;
         // Adjust min/max based on sensor type
         if (type.equals("Gyroscope")) {
-            minValue = -10;
-            maxValue = 10;
+            defaultMinValue = -10;
+            defaultMaxValue = 10;
         } else if (type.equals("Accelerometer") || type.equals("Gravity")) {
-            minValue = -15;
-            maxValue = 15;
+            defaultMinValue = -15;
+            defaultMaxValue = 15;
         } else if (type.equals("Rotation Vector")) {
-            minValue = -1;
-            maxValue = 1;
+            defaultMinValue = -1;
+            defaultMaxValue = 1;
+        }
+        minValue = defaultMinValue;
+        maxValue = defaultMaxValue;
+
+        rebuildAxisLabels();
+        invalidate();
+    }
+
+    // Y-axis labels only depend on the value range, so format them once per range change
+    private void rebuildAxisLabels() {
+        float top = maxValue;
+        float bottom = minValue;
+        if (renderMode == MODE_SPECTRUM) {
+            top = SPECTRUM_MAX_DB;
+            bottom = SPECTRUM_MIN_DB;
+        } else if (renderMode == MODE_SPECTROGRAM) {
+            // Frequency axis, 0 Hz at the bottom
+            top = Math.max(0, axisLabelNyquist);
+            bottom = 0;
+        }
+
+        float step = (top - bottom) / Y_GRID_LINES;
+        labelDecimals = step > 0 ? Math.max(1, Math.min(4, (int) Math.ceil(-Math.log10(step)))) : 1;
+        for (int i = 0; i <= Y_GRID_LINES; i++) {
+            float value = top - i * step;
+            int length = NumberFormatter.formatFixed(value, labelDecimals, labelChars, 0);
+            yAxisLabels[i] = new String(labelChars, 0, length);
+        }
+        // Labels, zero line and title all live in the static layer
+        staticLayerDirty = true;
+    }
+
+    // When enabled (the default) the y range follows the data; otherwise the sensor type's range is used
+    public void setAutoScale(boolean enabled) {
+        autoScale = enabled;
+        if (enabled) {
+            updateAutoScale();
+        } else {
+            setValueRange(defaultMinValue, defaultMaxValue);
+        }
+        invalidate();
+    }
+
+    public boolean isAutoScale() {
+        return autoScale;
+    }
+
+    // Fit the y range to the window's extremes with a margin, on round grid steps. The range
+    // grows as soon as data leaves it but only shrinks once the data uses less than 40% of it,
+    // so labels don't change on every frame. O(1): min and max come from the rolling stats.
+    private void updateAutoScale() {
+        if (!autoScale || stats.isEmpty() || renderMode != MODE_TIME) {
+            return;
+        }
+        float low = Math.min(stats.getMin(0), Math.min(stats.getMin(1), stats.getMin(2)));
+        float high = Math.max(stats.getMax(0), Math.max(stats.getMax(1), stats.getMax(2)));
+        boolean outside = low < minValue || high > maxValue;
+        boolean tooLoose = high - low < 0.4f * (maxValue - minValue);
+        if (!outside && !tooLoose) {
+            return;
+        }
+
+        // Don't zoom into the noise of a flat signal
+        float span = Math.max(high - low, 0.05f * (defaultMaxValue - defaultMinValue));
+        float margin = 0.1f * span;
+        float center = (low + high) / 2;
+        low = Math.min(low, center - span / 2) - margin;
+        high = Math.max(high, center + span / 2) + margin;
+
+        float step = niceStep((high - low) / Y_GRID_LINES);
+        float bottom = (float) Math.floor(low / step) * step;
+        while (bottom + step * Y_GRID_LINES < high) {
+            step = niceStep(step * 1.01f);
+            bottom = (float) Math.floor(low / step) * step;
+        }
+        setValueRange(bottom, bottom + step * Y_GRID_LINES);
+    }
+
+    // Smallest 1, 2 or 5 times a power of ten that is at least value
+    private static float niceStep(float value) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(value)));
+        double fraction = value / magnitude;
+        double nice = fraction <= 1 ? 1 : fraction <= 2 ? 2 : fraction <= 5 ? 5 : 10;
+        return (float) (nice * magnitude);
+    }
+
+    private void setValueRange(float min, float max) {
+        if (min == minValue && max == maxValue) {
+            return;
+        }
+        minValue = min;
+        maxValue = max;
+        rebuildAxisLabels();
+    }
+
+    // Rolling per-axis statistics of the plotted window (UI thread only)
+    public RollingStats getStatistics() {
+        return stats;
+    }
+
+    // Statistics of the plotted window, one row per axis
+    public String exportStatisticsAsCsv() {
+        StringBuilder csv = new StringBuilder();
+        csv.append("Axis,Samples,Min,Max,Mean,StdDev,RMS\n");
+
+        for (int axis = 0; axis < 3; axis++) {
+            csv.append("XYZ".charAt(axis)).append(",")
+                    .append(stats.size()).append(",")
+                    .append(stats.getMin(axis)).append(",")
+                    .append(stats.getMax(axis)).append(",")
+                    .append(stats.getMean(axis)).append(",")
+                    .append(stats.getStdDev(axis)).append(",")
+                    .append(stats.getRms(axis)).append("\n");
+        }
+
+        return csv.toString();
+    }
+
+    // Magma-like ramp from silence (dark) to the loudest bins (pale yellow)
+    private void buildHeatPalette() {
+        int[] stops = {0xFF000004, 0xFF3B0F70, 0xFF8C2981, 0xFFDE4968, 0xFFFE9F6D, 0xFFFCFDBF};
+        int last = heatPalette.length - 1;
+        for (int i = 0; i <= last; i++) {
+            float position = (float) i / last * (stops.length - 1);
+            int stop = Math.min((int) position, stops.length - 2);
+            float t = position - stop;
+            int from = stops[stop];
+            int to = stops[stop + 1];
+            int r = Math.round(((from >> 16) & 0xFF) * (1 - t) + ((to >> 16) & 0xFF) * t);
+            int g = Math.round(((from >> 8) & 0xFF) * (1 - t) + ((to >> 8) & 0xFF) * t);
+            int b = Math.round((from & 0xFF) * (1 - t) + (to & 0xFF) * t);
+            heatPalette[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    // BACKEND_PATH or BACKEND_LINES; switchable at any time to compare frame times
+    public void setRenderBackend(int backend) {
+        renderBackend = backend;
+        frameStats.reset();
+        invalidate();
+    }
+
+    public int getRenderBackend() {
+        return renderBackend;
+    }
+
+    // MODE_TIME, MODE_SPECTRUM or MODE_SPECTROGRAM; the spectral modes need an analyzer
+    public void setRenderMode(int mode) {
+        renderMode = mode;
+        rebuildAxisLabels();
+        invalidate();
+    }
+
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    // Analyzer whose results are shown in the spectral modes (null in time mode).
+    // Buffers are sized here, once per analyzer, so frames don't allocate.
+    public void setSpectrumAnalyzer(SpectrumAnalyzer analyzer) {
+        spectrumAnalyzer = analyzer;
+        if (analyzer == null) {
+            spectrum = null;
+            return;
+        }
+
+        spectrum = analyzer.newSpectrum();
+        int bins = spectrum.getBinCount();
+        if (spectrogram == null || spectrogram.getHeight() != bins) {
+            if (spectrogram != null) {
+                spectrogram.recycle();
+            }
+            spectrogram = Bitmap.createBitmap(SPECTROGRAM_COLUMNS, bins, Bitmap.Config.ARGB_8888);
+            spectrogramColumn = new int[bins];
         }
+        clearSpectrogram();
+        invalidate();
+    }
 
-        // Animate the change
-        animateRedraw();
+    private void clearSpectrogram() {
+        if (spectrogram != null) {
+            spectrogram.eraseColor(Color.TRANSPARENT);
+        }
+        spectrogramHead = 0;
+        lastSpectrumTimestamp = -1;
+        spectrumIntervalNanos = 0;
+    }
+
+    // Called when a new window was copied into spectrum
+    private void onSpectrum() {
+        long timestamp = spectrum.getTimestampNanos();
+        if (lastSpectrumTimestamp >= 0 && timestamp > lastSpectrumTimestamp) {
+            spectrumIntervalNanos = timestamp - lastSpectrumTimestamp;
+        }
+        lastSpectrumTimestamp = timestamp;
+
+        // Combined power of the three axes, one pixel per bin, highest frequency on top
+        int bins = spectrum.getBinCount();
+        for (int k = 0; k < bins; k++) {
+            float x = spectrum.getAmplitude(0, k);
+            float y = spectrum.getAmplitude(1, k);
+            float z = spectrum.getAmplitude(2, k);
+            float decibels = 10 * (float) Math.log10(Math.max(x * x + y * y + z * z, 1e-12f));
+            float normalized = (decibels - SPECTRUM_MIN_DB) / (SPECTRUM_MAX_DB - SPECTRUM_MIN_DB);
+            int index = Math.max(0, Math.min(heatPalette.length - 1, (int) (normalized * heatPalette.length)));
+            spectrogramColumn[bins - 1 - k] = heatPalette[index];
+        }
+        spectrogram.setPixels(spectrogramColumn, 0, 1, spectrogramHead, 0, 1, bins);
+        spectrogramHead = (spectrogramHead + 1) % SPECTROGRAM_COLUMNS;
+
+        if (renderMode == MODE_SPECTROGRAM) {
+            int nyquist = Math.round(spectrum.getSampleRateHz() / 2);
+            if (nyquist != axisLabelNyquist) {
+                axisLabelNyquist = nyquist;
+                rebuildAxisLabels();
+            }
+        }
+    }
+
+    private void updateFillShaders(float top, float bottom) {
+        if (top == shaderTop && bottom == shaderBottom) {
+            return;
+        }
+        shaderTop = top;
+        shaderBottom = bottom;
+
+        xFillShader = new LinearGradient(0, top, 0, bottom,
+                xLinePaint.getColor(), Color.TRANSPARENT, Shader.TileMode.CLAMP);
+        yFillShader = new LinearGradient(0, top, 0, bottom,
+                yLinePaint.getColor(), Color.TRANSPARENT, Shader.TileMode.CLAMP);
+        zFillShader = new LinearGradient(0, top, 0, bottom,
+                zLinePaint.getColor(), Color.TRANSPARENT, Shader.TileMode.CLAMP);
+        xFillPaint.setShader(xFillShader);
+        yFillPaint.setShader(yFillShader);
+        zFillPaint.setShader(zFillShader);
     }
 
     public void updateData(float x, float y, float z) {
-        // Record timestamp
-        long currentTime = System.currentTimeMillis();
-        if (startTime == 0) {
-            startTime = currentTime;
+        // No hardware timestamp; use the same clock sensor events are stamped with
+        updateData(SystemClock.elapsedRealtimeNanos(), x, y, z);
+    }
+
+    public void updateData(long timestampNanos, float x, float y, float z) {
+        appendSample(timestampNanos, x, y, z);
+
+        // Redraw on the next frame, together with anything else that arrives before it
+        scheduleFrame();
+    }
+
+    private void onQueuedSample(int type, long timestamp, float x, float y, float z) {
+        if (type == liveSensorType) {
+            appendSample(timestamp, x, y, z);
+        }
+    }
+
+    private void appendSample(long timestampNanos, float x, float y, float z) {
+        // Event time, not arrival time, so queueing delay doesn't distort the time axis
+        if (startTimeNanos < 0) {
+            startTimeNanos = timestampNanos;
+        }
+
+        // Add new data point; the ring buffer evicts the oldest one once full
+        data.add(timestampNanos - startTimeNanos, x, y, z);
+        history.add(timestampNanos - startTimeNanos, x, y, z);
+        stats.add(x, y, z);
+        if (decimator != null) {
+            decimator.add(x, y, z);
+        }
+        pendingSamples++;
+    }
+
+    // Decimate only when the window holds more samples than M4 would emit for the width
+    private void updateDecimator() {
+        int columns = (int) (getWidth() - 2 * GRAPH_PADDING);
+        decimationThreshold = columns * DECIMATION_POINTS_PER_COLUMN;
+        if (columns <= 0 || maxDataPoints <= decimationThreshold) {
+            decimator = null;
+            return;
+        }
+
+        decimator = new MinMaxDecimator(maxDataPoints, columns);
+        for (int i = 0; i < data.size(); i++) {
+            decimator.add(data.getX(i), data.getY(i), data.getZ(i));
         }
-        timestamps.add(currentTime - startTime);
+    }
 
-        // Add new data points
-        xData.add(x);
-        yData.add(y);
-        zData.add(z);
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        viewport.setPlotWidth(w - 2 * GRAPH_PADDING);
+        updateDecimator();
+        staticLayerDirty = true;
+    }
 
-        // Limit data points to prevent memory issues
-        if (xData.size() > maxDataPoints) {
-            xData.remove(0);
-            yData.remove(0);
-            zData.remove(0);
-            timestamps.remove(0);
+    // Start draining the given queue on every display frame, plotting samples of one sensor type
+    public void startLiveUpdates(SpscSampleQueue queue, int sensorType) {
+        stopLiveUpdates();
+        liveQueue = queue;
+        liveSensorType = sensorType;
+        // Anything left over from a previous session is stale
+        liveQueue.clear();
+        frameStats.reset();
+        scheduleFrame();
+    }
+
+    // Switch the plotted sensor without interrupting the render loop
+    public void setLiveSensorType(int sensorType) {
+        liveSensorType = sensorType;
+    }
+
+    // Stop the render loop; no frame callbacks run until live updates start again
+    public void stopLiveUpdates() {
+        liveQueue = null;
+        if (frameScheduled) {
+            choreographer.removeFrameCallback(frameCallback);
+            frameScheduled = false;
         }
+    }
 
-        // Animate the new data point
-        animateRedraw();
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            choreographer.postFrameCallback(frameCallback);
+        }
     }
 
-    private void animateRedraw() {
-        dataAnimator.removeAllUpdateListeners();
-        dataAnimator.addUpdateListener(animation -> {
-            // Just trigger redraw during animation
+    private void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        updateFrame(frameTimeNanos);
+
+        // Keep polling the queue while live; one-off updates don't need another frame
+        if (liveQueue != null) {
+            scheduleFrame();
+        }
+    }
+
+    // Drain and redraw without scheduling the next frame; package-private so the allocation
+    // test can run frames without vsync
+    void updateFrame(long frameTimeNanos) {
+        if (liveQueue != null) {
+            liveQueue.drain(queueConsumer);
+        }
+
+        // Spectral modes redraw once per analyzed window rather than per sample
+        boolean redraw;
+        if (renderMode == MODE_TIME) {
+            redraw = pendingSamples > 0;
+            if (redraw) {
+                updateAutoScale();
+            }
+        } else {
+            redraw = spectrumAnalyzer != null && spectrumAnalyzer.copyLatest(spectrum);
+            if (redraw) {
+                onSpectrum();
+            }
+        }
+
+        // Coalesce everything that arrived since the last frame into one redraw
+        if (redraw) {
+            frameStats.onRedraw(frameTimeNanos, pendingSamples);
+            pendingSamples = 0;
             invalidate();
-        });
-        dataAnimator.start();
+        }
+    }
+
+    public float getRedrawsPerSecond() {
+        return frameStats.getRedrawsPerSecond();
+    }
+
+    public float getSamplesPerFrame() {
+        return frameStats.getSamplesPerFrame();
+    }
+
+    // Time to record one frame's drawing commands, averaged over the last second
+    public float getMeanDrawMs() {
+        return frameStats.getMeanDrawMs();
+    }
+
+    public float getMaxDrawMs() {
+        return frameStats.getMaxDrawMs();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopLiveUpdates();
+        // Rebuilt on the next draw if the view is attached again
+        if (staticLayer != null) {
+            staticLayer.recycle();
+            staticLayer = null;
+        }
     }
 
     @Override
@@ -212,53 +684,161 @@ public class GraphView extends View {
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        long drawStart = System.nanoTime();
+        drawGraph(canvas);
+        frameStats.onDrawTime(System.nanoTime() - drawStart);
+    }
 
-        // Draw background
-        canvas.drawRect(0, 0, getWidth(), getHeight(), backgroundPaint);
-
+    private void drawGraph(Canvas canvas) {
         float width = getWidth();
         float height = getHeight();
-        float padding = 80;
+        float padding = GRAPH_PADDING;
         float graphHeight = height - 2 * padding;
         float graphWidth = width - 2 * padding;
 
-        // Apply zoom and pan
-        float effectiveWidth = graphWidth * scaleFactor;
-        float visibleStartX = Math.max(0, Math.min(xOffset, effectiveWidth - graphWidth));
-
-        // Draw title with shadow
-        textPaint.setShadowLayer(3, 1, 1, isDarkMode ? Color.BLACK : Color.LTGRAY);
-        canvas.drawText(sensorType, padding, padding - 30, textPaint);
-        textPaint.clearShadowLayer();
+        // Background, title, grid, y-axis labels and zero line
+        if (staticLayerDirty || staticLayer == null) {
+            renderStaticLayer();
+        }
+        if (staticLayer != null) {
+            canvas.drawBitmap(staticLayer, 0, 0, null);
+        }
 
-        // Draw legend with better spacing and colored boxes
-        float legendX = width - 150;
+        // Draw legend with better spacing and colored boxes. Once there is data it shows each
+        // axis' mean and standard deviation, or its dominant frequency and RMS in spectral modes
+        boolean hasSpectrum = renderMode != MODE_TIME && spectrum != null && spectrum.getSequence() > 0;
+        boolean hasStats = renderMode == MODE_TIME && !stats.isEmpty();
+        float legendX = width - (hasSpectrum || hasStats ? 330 : 150);
         float legendY = padding - 40;
         float boxSize = 10;
 
         // X-axis legend
         canvas.drawRect(legendX, legendY - boxSize + 5, legendX + boxSize, legendY + 5, xLinePaint);
-        canvas.drawText("X-axis", legendX + boxSize + 10, legendY + 5, textPaint);
+        drawLegendText(canvas, 0, "X-axis", hasSpectrum, hasStats, legendX + boxSize + 10, legendY + 5);
 
         // Y-axis legend
         legendY += 40;
         canvas.drawRect(legendX, legendY - boxSize + 5, legendX + boxSize, legendY + 5, yLinePaint);
-        canvas.drawText("Y-axis", legendX + boxSize + 10, legendY + 5, textPaint);
+        drawLegendText(canvas, 1, "Y-axis", hasSpectrum, hasStats, legendX + boxSize + 10, legendY + 5);
 
         // Z-axis legend
         legendY += 40;
         canvas.drawRect(legendX, legendY - boxSize + 5, legendX + boxSize, legendY + 5, zLinePaint);
-        canvas.drawText("Z-axis", legendX + boxSize + 10, legendY + 5, textPaint);
+        drawLegendText(canvas, 2, "Z-axis", hasSpectrum, hasStats, legendX + boxSize + 10, legendY + 5);
+
+        for (int i = 0; i <= 5; i++) {
+            float x = padding + (i * graphWidth / 5);
+
+            // Draw x-axis labels: seconds, or hertz in spectrum mode
+            int length = formatXAxisLabel(i, hasSpectrum);
+            if (length > 0) {
+                textPaint.setTextAlign(Paint.Align.CENTER);
+                canvas.drawText(labelChars, 0, length, x, height - padding + 50, textPaint);
+                textPaint.setTextAlign(Paint.Align.LEFT);
+            }
+        }
+
+        if (renderMode != MODE_TIME) {
+            if (hasSpectrum) {
+                canvas.save();
+                canvas.clipRect(padding, padding, width - padding, height - padding);
+                if (renderMode == MODE_SPECTRUM) {
+                    drawSpectrumLine(canvas, 0, xLinePaint, padding, padding, graphWidth, graphHeight);
+                    drawSpectrumLine(canvas, 1, yLinePaint, padding, padding, graphWidth, graphHeight);
+                    drawSpectrumLine(canvas, 2, zLinePaint, padding, padding, graphWidth, graphHeight);
+                } else {
+                    drawSpectrogram(canvas, padding, padding, graphWidth, graphHeight);
+                }
+                canvas.restore();
+            }
+            return;
+        }
+
+        // Areas are filled towards zero, or towards the nearest edge when an auto-scaled
+        // range doesn't include it
+        float zeroY = baselineY(graphHeight);
+
+        // Draw data area and lines if we have data
+        canvas.save();
+        canvas.clipRect(padding, padding, width - padding, height - padding);
+
+        // Only samples on screen, plus the one beyond each edge, become path vertices
+        viewport.setHistorySize(getHistorySize());
+        int first = viewport.getFirstVisible(data.size());
+        int last = viewport.getLastVisible(data.size());
+        boolean visible = viewport.showsHistory() || (first >= 0 && first <= last);
+        if (visible && renderBackend == BACKEND_LINES) {
+            // drawVertices is skipped by the hardware renderer before Android 10
+            boolean fill = !canvas.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+            int points = preparePlot(0, first, last);
+            drawDataVertices(canvas, 0, points, xLinePaint, fill, padding, graphHeight, padding, zeroY);
+            points = preparePlot(1, first, last);
+            drawDataVertices(canvas, 1, points, yLinePaint, fill, padding, graphHeight, padding, zeroY);
+            points = preparePlot(2, first, last);
+            drawDataVertices(canvas, 2, points, zLinePaint, fill, padding, graphHeight, padding, zeroY);
+        } else if (visible) {
+            // Gradients are cached until the zero line or view height changes
+            updateFillShaders(zeroY, height - padding);
+
+            int points = preparePlot(0, first, last);
+            drawDataArea(canvas, 0, points, xFillPaint, padding, graphHeight, padding, zeroY);
+            drawDataLine(canvas, 0, points, xLinePaint, padding, graphHeight, padding);
+
+            points = preparePlot(1, first, last);
+            drawDataArea(canvas, 1, points, yFillPaint, padding, graphHeight, padding, zeroY);
+            drawDataLine(canvas, 1, points, yLinePaint, padding, graphHeight, padding);
+
+            points = preparePlot(2, first, last);
+            drawDataArea(canvas, 2, points, zFillPaint, padding, graphHeight, padding, zeroY);
+            drawDataLine(canvas, 2, points, zLinePaint, padding, graphHeight, padding);
+        }
+
+        canvas.restore();
+    }
+
+    private float baselineY(float graphHeight) {
+        float baseline = Math.max(minValue, Math.min(maxValue, 0));
+        return GRAPH_PADDING + (((maxValue - baseline) / (maxValue - minValue)) * graphHeight);
+    }
+
+    // Draw everything that only changes with the size, theme, sensor type, render mode or
+    // y range into the cached bitmap, so frames only draw the data and the live labels
+    private void renderStaticLayer() {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (staticLayer == null || staticLayer.getWidth() != width || staticLayer.getHeight() != height) {
+            if (staticLayer != null) {
+                staticLayer.recycle();
+            }
+            staticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            staticCanvas.setBitmap(staticLayer);
+        }
+        staticLayerDirty = false;
+        Canvas canvas = staticCanvas;
+
+        float padding = GRAPH_PADDING;
+        float graphHeight = height - 2 * padding;
+        float graphWidth = width - 2 * padding;
+
+        // Draw background
+        canvas.drawRect(0, 0, width, height, backgroundPaint);
+
+        // Draw title with shadow
+        textPaint.setShadowLayer(3, 1, 1, isDarkMode ? Color.BLACK : Color.LTGRAY);
+        canvas.drawText(sensorType, padding, padding - 30, textPaint);
+        textPaint.clearShadowLayer();
 
         // Draw grid with dashed lines
-        for (int i = 0; i <= 10; i++) {
-            float y = padding + (i * graphHeight / 10);
+        for (int i = 0; i <= Y_GRID_LINES; i++) {
+            float y = padding + (i * graphHeight / Y_GRID_LINES);
             canvas.drawLine(padding, y, width - padding, y, gridPaint);
 
-            // Draw y-axis labels with better formatting
-            float value = maxValue - i * (maxValue - minValue) / 10;
+            // Draw y-axis labels (precomputed for the current range)
             textPaint.setTextAlign(Paint.Align.RIGHT);
-            canvas.drawText(String.format("%.1f", value), padding - 10, y + 10, textPaint);
+            canvas.drawText(yAxisLabels[i], padding - 10, y + 10, textPaint);
             textPaint.setTextAlign(Paint.Align.LEFT);
         }
 
@@ -266,69 +846,164 @@ public class GraphView extends View {
         for (int i = 0; i <= 5; i++) {
             float x = padding + (i * graphWidth / 5);
             canvas.drawLine(x, padding, x, height - padding, gridPaint);
+        }
 
-            // Draw x-axis time labels (seconds)
-            if (!timestamps.isEmpty()) {
-                float fraction = (float) i / 5;
-                int dataIndex = Math.min(timestamps.size() - 1, Math.round(fraction * (timestamps.size() - 1)));
-                float seconds = timestamps.get(dataIndex) / 1000f;
-                textPaint.setTextAlign(Paint.Align.CENTER);
-                canvas.drawText(String.format("%.1fs", seconds), x, height - padding + 50, textPaint);
-                textPaint.setTextAlign(Paint.Align.LEFT);
+        // Draw zero line with different color, if zero is in range
+        if (renderMode == MODE_TIME && minValue <= 0 && maxValue >= 0) {
+            float zeroY = baselineY(graphHeight);
+            canvas.drawLine(padding, zeroY, width - padding, zeroY, zeroLinePaint);
+        }
+    }
+
+    // Formats the label of vertical grid line i (of 5) into labelChars; returns its length,
+    // or 0 if there is nothing to label yet
+    private int formatXAxisLabel(int i, boolean hasSpectrum) {
+        float fraction = (float) i / 5;
+        int length;
+        if (renderMode == MODE_TIME) {
+            if (data.isEmpty()) {
+                return 0;
             }
+            // Sample under the grid line, if the window reaches that far
+            int dataIndex = Math.round(viewport.positionAt(fraction * (getWidth() - 2 * GRAPH_PADDING)));
+            if (dataIndex >= data.size()) {
+                return 0;
+            }
+            long timestamp = dataIndex >= 0 ? data.getTimestamp(dataIndex)
+                    : history.getTimestamp(history.getTotalSamples() - data.size() + dataIndex);
+            if (timestamp == Long.MIN_VALUE) {
+                return 0;
+            }
+            float seconds = timestamp / 1e9f;
+            length = NumberFormatter.formatFixed(seconds, 1, labelChars, 0);
+            labelChars[length++] = 's';
+        } else if (!hasSpectrum) {
+            return 0;
+        } else if (renderMode == MODE_SPECTRUM) {
+            float hertz = fraction * spectrum.getSampleRateHz() / 2;
+            length = NumberFormatter.formatFixed(hertz, 0, labelChars, 0);
+            labelChars[length++] = 'H';
+            labelChars[length++] = 'z';
+        } else {
+            // Spectrogram: age of the column, newest on the right
+            float seconds = -(1 - fraction) * SPECTROGRAM_COLUMNS * spectrumIntervalNanos / 1e9f;
+            length = NumberFormatter.formatFixed(seconds, 1, labelChars, 0);
+            labelChars[length++] = 's';
         }
+        return length;
+    }
 
-        // Draw zero line with different color
-        float zeroY = padding + ((maxValue / (maxValue - minValue)) * graphHeight);
-        Paint zeroLinePaint = new Paint(gridPaint);
-        zeroLinePaint.setColor(isDarkMode ? Color.parseColor("#777777") : Color.DKGRAY);
-        zeroLinePaint.setStrokeWidth(2f);
-        zeroLinePaint.setPathEffect(null); // No dash for zero line
-        canvas.drawLine(padding, zeroY, width - padding, zeroY, zeroLinePaint);
+    private void drawLegendText(Canvas canvas, int axis, String name, boolean hasSpectrum, boolean hasStats,
+                                float x, float y) {
+        // e.g. "50.0 Hz  rms 1.41" or "mean 9.81  sd 0.12", formatted without allocating
+        int length;
+        if (hasSpectrum) {
+            length = NumberFormatter.formatFixed(spectrum.getDominantFrequencyHz(axis), 1, readoutChars, 0);
+            length = appendChars(" Hz  rms ", length);
+            length += NumberFormatter.formatFixed(spectrum.getRms(axis), 2, readoutChars, length);
+        } else if (hasStats) {
+            length = appendChars("mean ", 0);
+            length += NumberFormatter.formatFixed(stats.getMean(axis), 2, readoutChars, length);
+            length = appendChars("  sd ", length);
+            length += NumberFormatter.formatFixed(stats.getStdDev(axis), 2, readoutChars, length);
+        } else {
+            canvas.drawText(name, x, y, textPaint);
+            return;
+        }
+        canvas.drawText(readoutChars, 0, length, x, y, textPaint);
+    }
 
-        // Draw data area and lines if we have data
-        canvas.save();
-        canvas.clipRect(padding, padding, width - padding, height - padding);
+    private int appendChars(String text, int offset) {
+        text.getChars(0, text.length(), readoutChars, offset);
+        return offset + text.length();
+    }
+
+    private void drawSpectrumLine(Canvas canvas, int axis, Paint paint,
+                                  float left, float top, float graphWidth, float graphHeight) {
+        Path path = linePath;
+        path.rewind();
+        int bins = spectrum.getBinCount();
+        float xInterval = graphWidth / (bins - 1);
+
+        for (int k = 0; k < bins; k++) {
+            float decibels = 20 * (float) Math.log10(Math.max(spectrum.getAmplitude(axis, k), 1e-6f));
+            float normalizedValue = (decibels - SPECTRUM_MIN_DB) / (SPECTRUM_MAX_DB - SPECTRUM_MIN_DB);
+            float x = left + k * xInterval;
+            float y = top + graphHeight - (normalizedValue * graphHeight);
+            if (k == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+
+        canvas.drawPath(path, paint);
+    }
 
-        if (!xData.isEmpty()) {
-            // Setup gradient for X
-            xFillPaint.setAlpha(70);
-            xFillPaint.setShader(new LinearGradient(0, zeroY, 0, height - padding,
-                    xLinePaint.getColor(), Color.TRANSPARENT, Shader.TileMode.CLAMP));
-            drawDataArea(canvas, xData, xFillPaint, padding, graphWidth, graphHeight, padding, zeroY);
-            drawDataLine(canvas, xData, xLinePaint, padding, graphWidth, graphHeight, padding);
+    // The bitmap is a ring of columns: [head, end) holds the oldest ones, [0, head) the newest
+    private void drawSpectrogram(Canvas canvas, float left, float top, float graphWidth, float graphHeight) {
+        int bins = spectrogram.getHeight();
+        float columnWidth = graphWidth / SPECTROGRAM_COLUMNS;
+        float split = left + (SPECTROGRAM_COLUMNS - spectrogramHead) * columnWidth;
+
+        spectrogramSrc.set(spectrogramHead, 0, SPECTROGRAM_COLUMNS, bins);
+        spectrogramDst.set(left, top, split, top + graphHeight);
+        canvas.drawBitmap(spectrogram, spectrogramSrc, spectrogramDst, spectrogramPaint);
+
+        if (spectrogramHead > 0) {
+            spectrogramSrc.set(0, 0, spectrogramHead, bins);
+            spectrogramDst.set(split, top, left + graphWidth, top + graphHeight);
+            canvas.drawBitmap(spectrogram, spectrogramSrc, spectrogramDst, spectrogramPaint);
         }
+    }
 
-        if (!yData.isEmpty()) {
-            // Setup gradient for Y
-            yFillPaint.setAlpha(70);
-            yFillPaint.setShader(new LinearGradient(0, zeroY, 0, height - padding,
-                    yLinePaint.getColor(), Color.TRANSPARENT, Shader.TileMode.CLAMP));
-            drawDataArea(canvas, yData, yFillPaint, padding, graphWidth, graphHeight, padding, zeroY);
-            drawDataLine(canvas, yData, yLinePaint, padding, graphWidth, graphHeight, padding);
+    // Samples held before the window, reachable by panning or zooming out
+    private int getHistorySize() {
+        long windowStart = history.getTotalSamples() - data.size();
+        return (int) Math.min(Integer.MAX_VALUE, windowStart - history.getOldestSequence());
+    }
+
+    // Returns the number of points to plot for an axis from samples first..last: the raw
+    // samples, or decimated points while the visible range is longer than the plot is wide.
+    // Once the view reaches back before the window, everything comes from the history at
+    // the coarsest level that still has a point or two per pixel column.
+    private int preparePlot(int axis, int first, int last) {
+        plotFirst = first;
+        plotHistory = viewport.showsHistory();
+        if (plotHistory) {
+            long windowStart = history.getTotalSamples() - data.size();
+            int columns = (int) (getWidth() - 2 * GRAPH_PADDING);
+            return history.collect(axis, windowStart + viewport.getFirstVisiblePosition(),
+                    windowStart + last, windowStart, Math.max(1, columns));
         }
+        plotDecimated = decimator != null && last - first + 1 > decimationThreshold;
+        return plotDecimated ? decimator.collect(axis, first, last) : last - first + 1;
+    }
 
-        if (!zData.isEmpty()) {
-            // Setup gradient for Z
-            zFillPaint.setAlpha(70);
-            zFillPaint.setShader(new LinearGradient(0, zeroY, 0, height - padding,
-                    zLinePaint.getColor(), Color.TRANSPARENT, Shader.TileMode.CLAMP));
-            drawDataArea(canvas, zData, zFillPaint, padding, graphWidth, graphHeight, padding, zeroY);
-            drawDataLine(canvas, zData, zLinePaint, padding, graphWidth, graphHeight, padding);
+    // Sample index within the window of the i-th plotted point (negative in the history)
+    private float plotPosition(int i) {
+        if (plotHistory) {
+            return history.getPosition(i);
         }
+        return plotDecimated ? decimator.getPosition(i) : plotFirst + i;
+    }
 
-        canvas.restore();
+    private float plotValue(int i, int axis) {
+        if (plotHistory) {
+            return history.getValue(i);
+        }
+        return plotDecimated ? decimator.getValue(i) : data.get(plotFirst + i, axis);
     }
 
-    private void drawDataLine(Canvas canvas, List<Float> data, Paint paint,
-                              float startX, float graphWidth, float graphHeight, float topPadding) {
-        Path path = new Path();
-        float xInterval = graphWidth / (maxDataPoints - 1);
+    private void drawDataLine(Canvas canvas, int axis, int points, Paint paint,
+                              float startX, float graphHeight, float topPadding) {
+        Path path = linePath;
+        path.rewind();
 
-        for (int i = 0; i < data.size(); i++) {
-            float x = startX + i * xInterval;
+        for (int i = 0; i < points; i++) {
+            float x = startX + viewport.toX(plotPosition(i));
             // Map data value to y-coordinate (invert because y-axis goes down in Android)
-            float normalizedValue = (data.get(i) - minValue) / (maxValue - minValue);
+            float normalizedValue = (plotValue(i, axis) - minValue) / (maxValue - minValue);
             float y = topPadding + graphHeight - (normalizedValue * graphHeight);
 
             if (i == 0) {
@@ -341,37 +1016,106 @@ public class GraphView extends View {
         canvas.drawPath(path, paint);
     }
 
-    private void drawDataArea(Canvas canvas, List<Float> data, Paint paint,
-                              float startX, float graphWidth, float graphHeight, float topPadding, float zeroY) {
-        Path path = new Path();
-        float xInterval = graphWidth / (maxDataPoints - 1);
+    private void drawDataArea(Canvas canvas, int axis, int points, Paint paint,
+                              float startX, float graphHeight, float topPadding, float zeroY) {
+        Path path = areaPath;
+        path.rewind();
+        if (points == 0) {
+            return;
+        }
 
         // Start at the x axis
-        path.moveTo(startX, zeroY);
+        path.moveTo(startX + viewport.toX(plotPosition(0)), zeroY);
 
         // Draw to each data point
-        for (int i = 0; i < data.size(); i++) {
-            float x = startX + i * xInterval;
-            float normalizedValue = (data.get(i) - minValue) / (maxValue - minValue);
+        for (int i = 0; i < points; i++) {
+            float x = startX + viewport.toX(plotPosition(i));
+            float normalizedValue = (plotValue(i, axis) - minValue) / (maxValue - minValue);
             float y = topPadding + graphHeight - (normalizedValue * graphHeight);
             path.lineTo(x, y);
         }
 
         // Close the path back to the x axis
-        if (!data.isEmpty()) {
-            path.lineTo(startX + (data.size() - 1) * xInterval, zeroY);
-        }
+        path.lineTo(startX + viewport.toX(plotPosition(points - 1)), zeroY);
         path.close();
 
         canvas.drawPath(path, paint);
     }
 
+    // BACKEND_LINES: the same points as drawDataLine and drawDataArea, written as line segments
+    // and a triangle strip down to the baseline, with no Path in between
+    private void drawDataVertices(Canvas canvas, int axis, int points, Paint linePaint, boolean fill,
+                                  float startX, float graphHeight, float topPadding, float zeroY) {
+        if (points == 0) {
+            return;
+        }
+        ensureVertexCapacity(points);
+
+        float[] lines = lineVertices;
+        float[] area = areaVertices;
+        int lineCount = 0;
+        int areaCount = 0;
+        float previousX = 0;
+        float previousY = 0;
+        for (int i = 0; i < points; i++) {
+            float x = startX + viewport.toX(plotPosition(i));
+            float normalizedValue = (plotValue(i, axis) - minValue) / (maxValue - minValue);
+            float y = topPadding + graphHeight - (normalizedValue * graphHeight);
+
+            if (i > 0) {
+                lines[lineCount++] = previousX;
+                lines[lineCount++] = previousY;
+                lines[lineCount++] = x;
+                lines[lineCount++] = y;
+            }
+            area[areaCount++] = x;
+            area[areaCount++] = y;
+            area[areaCount++] = x;
+            area[areaCount++] = zeroY;
+
+            previousX = x;
+            previousY = y;
+        }
+
+        if (fill && points > 1) {
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLE_STRIP, areaCount, area, 0,
+                    null, 0, areaColors[axis], 0, null, 0, 0, vertexPaint);
+        }
+        canvas.drawLines(lines, 0, lineCount, linePaint);
+    }
+
+    private void ensureVertexCapacity(int points) {
+        if (areaVertices.length >= points * 4) {
+            return;
+        }
+        // Some headroom so a slowly growing window doesn't reallocate every frame
+        int capacity = Math.max(256, Integer.highestOneBit(points - 1) << 1);
+        lineVertices = new float[capacity * 4];
+        areaVertices = new float[capacity * 4];
+
+        Paint[] linePaints = {xLinePaint, yLinePaint, zLinePaint};
+        for (int axis = 0; axis < 3; axis++) {
+            int fillColor = (linePaints[axis].getColor() & 0x00FFFFFF) | (70 << 24);
+            int[] colors = new int[capacity * 2];
+            for (int v = 0; v < colors.length; v += 2) {
+                colors[v] = fillColor;
+                colors[v + 1] = Color.TRANSPARENT;
+            }
+            areaColors[axis] = colors;
+        }
+    }
+
     public void clearData() {
-        xData.clear();
-        yData.clear();
-        zData.clear();
-        timestamps.clear();
-        startTime = 0;
+        data.clear();
+        history.clear();
+        viewport.setHistorySize(0);
+        if (decimator != null) {
+            decimator.clear();
+        }
+        startTimeNanos = -1;
+        stats.clear();
+        setValueRange(defaultMinValue, defaultMaxValue);
+        clearSpectrogram();
         invalidate();
     }
 
@@ -379,10 +1123,9 @@ public class GraphView extends View {
     private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
         @Override
         public boolean onScale(ScaleGestureDetector detector) {
-            scaleFactor *= detector.getScaleFactor();
-
-            // Don't let the object get too small or too large
-            scaleFactor = Math.max(1f, Math.min(scaleFactor, 5.0f));
+            // Zoom around the fingers; the viewport limits it to between the window plus all
+            // of the history and PlotViewport.MIN_VISIBLE_SAMPLES samples
+            viewport.zoom(detector.getScaleFactor(), detector.getFocusX() - GRAPH_PADDING);
 
             invalidate();
             return true;
@@ -393,8 +1136,8 @@ public class GraphView extends View {
     private class GestureListener extends GestureDetector.SimpleOnGestureListener {
         @Override
         public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-            if (scaleFactor > 1.0f) {
-                xOffset += distanceX;
+            if (viewport.canPan()) {
+                viewport.pan(distanceX);
                 invalidate();
                 return true;
             }
@@ -404,8 +1147,7 @@ public class GraphView extends View {
         @Override
         public boolean onDoubleTap(@NonNull MotionEvent e) {
             // Reset zoom on double tap
-            scaleFactor = 1.0f;
-            xOffset = 0f;
+            viewport.reset();
             invalidate();
             return true;
         }
@@ -416,11 +1158,11 @@ public class GraphView extends View {
         StringBuilder csv = new StringBuilder();
         csv.append("Time (ms),X,Y,Z\n");
 
-        for (int i = 0; i < xData.size(); i++) {
-            csv.append(timestamps.get(i)).append(",")
-                    .append(xData.get(i)).append(",")
-                    .append(yData.get(i)).append(",")
-                    .append(zData.get(i)).append("\n");
+        for (int i = 0; i < data.size(); i++) {
+            csv.append(data.getTimestamp(i) / 1e6).append(",")
+                    .append(data.getX(i)).append(",")
+                    .append(data.getY(i)).append(",")
+                    .append(data.getZ(i)).append("\n");
         }
 
         return csv.toString();
@@ -429,13 +1171,14 @@ public class GraphView extends View {
     // Add option to set max data points
     public void setMaxDataPoints(int points) {
         this.maxDataPoints = Math.max(50, points);
-        // Trim existing data if needed
-        while (xData.size() > maxDataPoints) {
-            xData.remove(0);
-            yData.remove(0);
-            zData.remove(0);
-            if (!timestamps.isEmpty()) timestamps.remove(0);
+        // Resize the buffer, keeping the most recent samples
+        data.setCapacity(maxDataPoints);
+        viewport.setWindowSize(maxDataPoints);
+        stats = new RollingStats(maxDataPoints);
+        for (int i = 0; i < data.size(); i++) {
+            stats.add(data.getX(i), data.getY(i), data.getZ(i));
         }
+        updateDecimator();
         invalidate();
     }
 }
\ No newline at end of file
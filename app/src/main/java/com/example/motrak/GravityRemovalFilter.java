@@ -0,0 +1,53 @@
+package com.example.motrak;
+
+// Removes gravity from accelerometer samples, leaving linear acceleration.
+// Gravity is tracked with a first-order low-pass whose smoothing factor comes from the
+// actual time between samples, so the time constant holds at any sampling rate.
+public class GravityRemovalFilter implements SampleFilter {
+    private final int sensorType;
+    private final float timeConstantSeconds;
+    private final float[] gravity = new float[3];
+    private long lastTimestamp = -1;
+
+    public GravityRemovalFilter(int sensorType, float timeConstantSeconds) {
+        if (timeConstantSeconds <= 0) {
+            throw new IllegalArgumentException("Time constant must be positive: " + timeConstantSeconds);
+        }
+        this.sensorType = sensorType;
+        this.timeConstantSeconds = timeConstantSeconds;
+    }
+
+    @Override
+    public void process(int type, long timestampNanos, float[] values) {
+        if (sensorType != ANY_SENSOR && type != sensorType) {
+            return;
+        }
+
+        if (lastTimestamp < 0) {
+            // Assume the device starts at rest rather than ramping gravity up from zero
+            gravity[0] = values[0];
+            gravity[1] = values[1];
+            gravity[2] = values[2];
+        } else {
+            float dt = Math.max(0, timestampNanos - lastTimestamp) / 1e9f;
+            float alpha = timeConstantSeconds / (timeConstantSeconds + dt);
+            for (int axis = 0; axis < 3; axis++) {
+                gravity[axis] = alpha * gravity[axis] + (1 - alpha) * values[axis];
+            }
+        }
+        lastTimestamp = timestampNanos;
+
+        for (int axis = 0; axis < 3; axis++) {
+            values[axis] -= gravity[axis];
+        }
+    }
+
+    @Override
+    public void reset() {
+        lastTimestamp = -1;
+    }
+
+    public float getGravity(int axis) {
+        return gravity[axis];
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.motrak;
+
+// Bounded history of a 3-axis stream at several resolutions. Level 0 keeps the most
+// recent raw samples; level k keeps min, max and mean summaries of factor^k consecutive
+// samples, so each level reaches factor times further back than the one below for the
+// same memory. With 16k entries per level and factor 10, a 400 Hz stream keeps 41 s of
+// raw samples, 7 minutes at 10x, over an hour at 100x and 11 hours at 1000x, in 2.5 MB:
+// 20 bytes per raw entry (timestamp, 3 values) and 45 per summary (start timestamp,
+// 3 mins, maxs and means, order bits), 16,384 x (20 + 3 x 45) = 2,539,520 bytes.
+//
+// Samples are addressed by sequence number (0 = first sample added since clear()). Plotting
+// a range picks the coarsest level that still gives enough points for the width, so
+// drawing an hour costs about the same as drawing a second. Each add() is O(1) amortized
+// and allocation-free: a level-k summary is folded into level k+1 once it is complete.
+public class HistoryPyramid {
+    private final int rawCapacity;
+    private final int factor;
+    private final int levelCapacity;
+    // Levels above raw
+    private final int summaryLevels;
+
+    // Level 0: raw samples, sample n in slot n % rawCapacity
+    private final long[] rawTimestamps;
+    private final float[] rawValues;
+    private long totalSamples = 0;
+
+    // Levels 1..summaryLevels, indexed [level - 1]; summary b in slot b % levelCapacity.
+    // Values are indexed slot * 3 + axis.
+    private final long[] bucketSizes;
+    private final long[][] startTimestamps;
+    private final float[][] mins;
+    private final float[][] maxs;
+    private final float[][] means;
+    // Bit per axis: set if the minimum comes before the maximum within the summary
+    private final byte[][] minFirst;
+    // Complete summaries written so far per level
+    private final long[] committed;
+
+    // Summary being built per level, from complete summaries (or raw samples) of the level below
+    private final long[] partialStart;
+    private final int[] partialCount;
+    private final double[][] partialSums;
+    private final float[][] partialMins;
+    private final float[][] partialMaxs;
+    // Approximate sequence of the partial summary's minimum and maximum, per axis
+    private final double[][] partialMinAt;
+    private final double[][] partialMaxAt;
+
+    // Output of collect(), grown to the largest request seen
+    private float[] outPositions = new float[0];
+    private float[] outValues = new float[0];
+
+    public HistoryPyramid(int rawCapacity, int factor, int summaryLevels, int levelCapacity) {
+        // Each level must hold at least one summary of the level above's worth of entries
+        if (factor < 2 || rawCapacity < factor || summaryLevels < 0 || levelCapacity < factor) {
+            throw new IllegalArgumentException("Invalid pyramid: raw " + rawCapacity + ", factor "
+                    + factor + ", levels " + summaryLevels + ", capacity " + levelCapacity);
+        }
+        this.rawCapacity = rawCapacity;
+        this.factor = factor;
+        this.levelCapacity = levelCapacity;
+        this.summaryLevels = summaryLevels;
+
+        rawTimestamps = new long[rawCapacity];
+        rawValues = new float[rawCapacity * 3];
+
+        bucketSizes = new long[summaryLevels];
+        startTimestamps = new long[summaryLevels][levelCapacity];
+        mins = new float[summaryLevels][levelCapacity * 3];
+        maxs = new float[summaryLevels][levelCapacity * 3];
+        means = new float[summaryLevels][levelCapacity * 3];
+        minFirst = new byte[summaryLevels][levelCapacity];
+        committed = new long[summaryLevels];
+
+        partialStart = new long[summaryLevels];
+        partialCount = new int[summaryLevels];
+        partialSums = new double[summaryLevels][3];
+        partialMins = new float[summaryLevels][3];
+        partialMaxs = new float[summaryLevels][3];
+        partialMinAt = new double[summaryLevels][3];
+        partialMaxAt = new double[summaryLevels][3];
+
+        long size = 1;
+        for (int level = 0; level < summaryLevels; level++) {
+            size *= factor;
+            bucketSizes[level] = size;
+        }
+    }
+
+    public void add(long timestampNanos, float x, float y, float z) {
+        long sequence = totalSamples++;
+        int slot = (int) (sequence % rawCapacity);
+        rawTimestamps[slot] = timestampNanos;
+        rawValues[slot * 3] = x;
+        rawValues[slot * 3 + 1] = y;
+        rawValues[slot * 3 + 2] = z;
+
+        if (summaryLevels == 0) {
+            return;
+        }
+        // A raw sample is a summary of one sample, complete right away
+        accumulate(0, timestampNanos, slot, rawValues, rawValues, rawValues, 1, sequence, (byte) 0);
+    }
+
+    // Fold a complete entry of the level below (count samples from startSequence, in slot of
+    // the source arrays) into the partial summary of this level
+    private void accumulate(int level, long startTimestamp, int slot, float[] minSource, float[] maxSource,
+                            float[] meanSource, long count, long startSequence, byte minFirstBits) {
+        if (partialCount[level] == 0) {
+            partialStart[level] = startTimestamp;
+        }
+        double[] sums = partialSums[level];
+        float[] partMins = partialMins[level];
+        float[] partMaxs = partialMaxs[level];
+        for (int axis = 0; axis < 3; axis++) {
+            float min = minSource[slot * 3 + axis];
+            float max = maxSource[slot * 3 + axis];
+            double childMinAt = startSequence;
+            double childMaxAt = startSequence;
+            if (count > 1) {
+                // Only the order of min and max is kept per summary; place them a quarter in from either end
+                boolean first = (minFirstBits & (1 << axis)) != 0;
+                childMinAt += (first ? 0.25 : 0.75) * count;
+                childMaxAt += (first ? 0.75 : 0.25) * count;
+            }
+            if (partialCount[level] == 0) {
+                sums[axis] = 0;
+                partMins[axis] = min;
+                partMaxs[axis] = max;
+                partialMinAt[level][axis] = childMinAt;
+                partialMaxAt[level][axis] = childMaxAt;
+            } else {
+                if (min < partMins[axis]) {
+                    partMins[axis] = min;
+                    partialMinAt[level][axis] = childMinAt;
+                }
+                if (max > partMaxs[axis]) {
+                    partMaxs[axis] = max;
+                    partialMaxAt[level][axis] = childMaxAt;
+                }
+            }
+            sums[axis] += (double) meanSource[slot * 3 + axis] * count;
+        }
+        partialCount[level]++;
+        if (partialCount[level] < factor) {
+            return;
+        }
+
+        // Complete: commit and pass it up
+        long bucket = committed[level]++;
+        int out = (int) (bucket % levelCapacity);
+        long size = bucketSizes[level];
+        byte bits = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            mins[level][out * 3 + axis] = partMins[axis];
+            maxs[level][out * 3 + axis] = partMaxs[axis];
+            means[level][out * 3 + axis] = (float) (sums[axis] / size);
+            if (partialMinAt[level][axis] <= partialMaxAt[level][axis]) {
+                bits |= 1 << axis;
+            }
+        }
+        minFirst[level][out] = bits;
+        startTimestamps[level][out] = partialStart[level];
+        partialCount[level] = 0;
+
+        if (level + 1 < summaryLevels) {
+            accumulate(level + 1, startTimestamps[level][out], out, mins[level], maxs[level], means[level],
+                    size, bucket * size, bits);
+        }
+    }
+
+    public void clear() {
+        totalSamples = 0;
+        for (int level = 0; level < summaryLevels; level++) {
+            committed[level] = 0;
+            partialCount[level] = 0;
+        }
+    }
+
+    // Samples added since clear(); the next sample gets this sequence number
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+
+    public boolean isEmpty() {
+        return totalSamples == 0;
+    }
+
+    // Levels including raw
+    public int getLevelCount() {
+        return summaryLevels + 1;
+    }
+
+    // Samples per entry of a level: 1 for raw, factor^level above
+    public long getBucketSize(int level) {
+        return level == 0 ? 1 : bucketSizes[level - 1];
+    }
+
+    // Oldest sequence a level still holds
+    public long getOldestSequence(int level) {
+        if (level == 0) {
+            return Math.max(0, totalSamples - rawCapacity);
+        }
+        long bucketSize = bucketSizes[level - 1];
+        long oldestBucket = Math.max(0, committed[level - 1] - levelCapacity);
+        // Nothing committed yet: the level below still holds everything
+        return committed[level - 1] == 0 ? getOldestSequence(level - 1) : oldestBucket * bucketSize;
+    }
+
+    // Oldest sequence any level still holds
+    public long getOldestSequence() {
+        return getOldestSequence(summaryLevels);
+    }
+
+    // First sequence not covered by a complete summary of the level (totalSamples for raw)
+    private long getCommittedEnd(int level) {
+        return level == 0 ? totalSamples : committed[level - 1] * bucketSizes[level - 1];
+    }
+
+    // Coarsest level that resolves fromSequence..toSequence in at most maxPoints entries
+    // while still holding fromSequence; raw when the range is short enough
+    public int selectLevel(long fromSequence, long toSequence, int maxPoints) {
+        long span = Math.max(1, toSequence - fromSequence + 1);
+        for (int level = 0; level <= summaryLevels; level++) {
+            boolean fits = span / getBucketSize(level) <= maxPoints;
+            if (fits && getOldestSequence(level) <= Math.max(fromSequence, getOldestSequence())) {
+                return level;
+            }
+        }
+        return summaryLevels;
+    }
+
+    // Fill the output with the points to plot for one axis over fromSequence..toSequence
+    // (clamped to what is held), at the level selectLevel() picks for maxPoints: raw samples,
+    // or each summary's min and max in the order they occurred. The newest samples, not yet
+    // part of a complete summary, come from the finer levels. Positions are sequence numbers
+    // relative to baseSequence. Returns the number of points; read them with
+    // getPosition()/getValue().
+    public int collect(int axis, long fromSequence, long toSequence, long baseSequence, int maxPoints) {
+        long from = Math.max(fromSequence, getOldestSequence());
+        long to = Math.min(toSequence, totalSamples - 1);
+        if (from > to) {
+            return 0;
+        }
+        int level = selectLevel(from, to, maxPoints);
+        // At most two points per summary, plus up to factor entries of each finer level at the end
+        ensureOutputCapacity((int) ((to - from) / getBucketSize(level)) * 2 + 2 * factor * (level + 1) + 4);
+
+        int count = 0;
+        long position = from;
+        for (int current = level; current >= 0 && position <= to; current--) {
+            long end = Math.min(to + 1, getCommittedEnd(current));
+            if (position < getOldestSequence(current)) {
+                // Only happens at the coarsest level once it starts evicting
+                position = getOldestSequence(current);
+            }
+            if (current == 0) {
+                for (long n = position; n < end; n++) {
+                    int slot = (int) (n % rawCapacity);
+                    outPositions[count] = n - baseSequence;
+                    outValues[count++] = rawValues[slot * 3 + axis];
+                }
+            } else {
+                long bucketSize = bucketSizes[current - 1];
+                for (long b = position / bucketSize; b * bucketSize < end; b++) {
+                    count = emitSummary(current - 1, b, axis, baseSequence, count);
+                }
+            }
+            // Continue where this level's complete summaries end, rounded to a whole summary
+            position = Math.max(position, end);
+        }
+        return count;
+    }
+
+    private int emitSummary(int index, long bucket, int axis, long baseSequence, int count) {
+        int slot = (int) (bucket % levelCapacity);
+        long size = bucketSizes[index];
+        float start = bucket * size - baseSequence;
+        float min = mins[index][slot * 3 + axis];
+        float max = maxs[index][slot * 3 + axis];
+        boolean first = (minFirst[index][slot] & (1 << axis)) != 0;
+        outPositions[count] = start + size * 0.25f;
+        outValues[count++] = first ? min : max;
+        outPositions[count] = start + size * 0.75f;
+        outValues[count++] = first ? max : min;
+        return count;
+    }
+
+    private void ensureOutputCapacity(int capacity) {
+        if (outPositions.length < capacity) {
+            outPositions = new float[capacity];
+            outValues = new float[capacity];
+        }
+    }
+
+    public float getPosition(int index) {
+        return outPositions[index];
+    }
+
+    public float getValue(int index) {
+        return outValues[index];
+    }
+
+    // Timestamp of a sample, exact while it is held raw and otherwise that of the first
+    // sample of the finest summary holding it; Long.MIN_VALUE if it is no longer held
+    public long getTimestamp(long sequence) {
+        if (sequence < 0 || sequence >= totalSamples) {
+            return Long.MIN_VALUE;
+        }
+        for (int level = 0; level <= summaryLevels; level++) {
+            if (sequence >= getOldestSequence(level) && sequence < getCommittedEnd(level)) {
+                if (level == 0) {
+                    return rawTimestamps[(int) (sequence % rawCapacity)];
+                }
+                long bucket = sequence / bucketSizes[level - 1];
+                return startTimestamps[level - 1][(int) (bucket % levelCapacity)];
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    // Summary of the sample at sequence on one level: min, max or mean of its entry.
+    // level 0 returns the raw value for all three. NaN if the level doesn't hold it.
+    public float getMin(int level, int axis, long sequence) {
+        return summaryValue(level, axis, sequence, mins);
+    }
+
+    public float getMax(int level, int axis, long sequence) {
+        return summaryValue(level, axis, sequence, maxs);
+    }
+
+    public float getMean(int level, int axis, long sequence) {
+        return summaryValue(level, axis, sequence, means);
+    }
+
+    private float summaryValue(int level, int axis, long sequence, float[][] values) {
+        if (sequence < getOldestSequence(level) || sequence >= getCommittedEnd(level)) {
+            return Float.NaN;
+        }
+        if (level == 0) {
+            return rawValues[(int) (sequence % rawCapacity) * 3 + axis];
+        }
+        long bucket = sequence / bucketSizes[level - 1];
+        return values[level - 1][(int) (bucket % levelCapacity) * 3 + axis];
+    }
+}
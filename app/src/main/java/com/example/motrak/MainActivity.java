@@ -1,14 +1,20 @@
 package com.example.motrak;
 
 import android.Manifest;
+import android.content.ComponentName;
+import android.content.Context;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
+import android.hardware.Sensor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -39,9 +45,9 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Locale;
 
@@ -52,12 +58,15 @@ import android.view.Gravity;
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MoTrak";
     private static final int PERMISSION_REQUEST_WRITE_STORAGE = 1001;
+    private static final int PERMISSION_REQUEST_NOTIFICATIONS = 1002;
 
     private Spinner sensorTypeSpinner;
+    private Spinner samplingRateSpinner;
     private MaterialButton startButton;
     private MaterialButton stopButton;
     private MaterialButton exportButton;
     private TextView timerTextView;
+    private TextView rateTextView;
     private TextView maxPointsValueText;
     private SeekBar maxPointsSeekBar;
     private SwitchMaterial darkModeSwitch;
@@ -67,11 +76,67 @@ public class MainActivity extends AppCompatActivity {
     private int seconds = 0;
     private Handler timerHandler = new Handler(Looper.getMainLooper());
     private String selectedSensorType;
+    private int samplingPeriodUs = SensorDataManager.DEFAULT_SAMPLING_PERIOD_US;
+
+    // Recorded together, time-aligned, when "Capture all sensors" is checked
+    private static final int[] MULTI_SENSOR_TYPES = {
+            Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_GYROSCOPE, Sensor.TYPE_ROTATION_VECTOR};
+    private boolean captureAllSensors = false;
+
+    // Checked item of the Filter menu; applied to the live view, not to recordings
+    private int filterItemId = R.id.filter_none;
+
+    // Shake and free-fall detection on the accelerometer, reported as toasts
+    private boolean eventAlerts = false;
+
+    // Toasts the alerts. Called on the sensor thread; only installed on the service's detector
+    // while this activity is started, so a background session never holds on to it.
+    private final EventDetector.EventListener alertListener = (rule, event, timestampNanos, value) -> {
+        if (event == EventDetector.EVENT_SHAKE || event == EventDetector.EVENT_FREE_FALL) {
+            runOnUiThread(() -> Toast.makeText(this,
+                    event == EventDetector.EVENT_SHAKE ? "Shake detected" : "Free fall detected",
+                    Toast.LENGTH_SHORT).show());
+        }
+    };
+
+    // Record only the windows around a jolt of the accelerometer or a manual trigger
+    private static final long PRE_TRIGGER_NANOS = 5_000_000_000L;
+    private static final long POST_TRIGGER_NANOS = 10_000_000_000L;
+    private boolean triggeredCapture = false;
+
+    // GraphView.MODE_*; the spectral modes run a SpectrumAnalyzer on the displayed sensor
+    private int renderMode = GraphView.MODE_TIME;
+
+    // While a recorded session plays back, the filter and analyzer follow its sensor and rate
+    private boolean isReplaying = false;
+    private int replaySensorType;
+    private float replayRateHz;
 
     private GraphView graphView;
+
+    // Capture runs in RecordingService; while bound the activity shows its live tail
+    private RecordingService recordingService;
     private SensorDataManager sensorDataManager;
+    private boolean serviceBound = false;
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            onRecordingServiceConnected(((RecordingService.LocalBinder) binder).getService());
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            recordingService = null;
+            sensorDataManager = null;
+        }
+    };
     private String lastExportPath = null;
 
+    // File the last session was streamed to; available once the recorder has closed it
+    private File recordedFile = null;
+    // File the current session is being streamed to
+    private File sessionFile = null;
+
     @RequiresApi(api = Build.VERSION_CODES.O)
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -84,22 +149,15 @@ public class MainActivity extends AppCompatActivity {
 
         // Initialize graphView
         graphView = findViewById(R.id.graph_view);
-        sensorDataManager = new SensorDataManager(this);
-
-        // Set data listener for live updates
-        sensorDataManager.setDataListener(new SensorDataManager.SensorDataListener() {
-            @Override
-            public void onSensorDataUpdated(float x, float y, float z) {
-                graphView.updateData(x, y, z); // Update graph directly
-            }
-        });
 
         // Initialize views
         sensorTypeSpinner = findViewById(R.id.sensor_type_spinner);
+        samplingRateSpinner = findViewById(R.id.sampling_rate_spinner);
         startButton = findViewById(R.id.start_button);
         stopButton = findViewById(R.id.stop_button);
         exportButton = findViewById(R.id.export_button);
         timerTextView = findViewById(R.id.timer_text_view);
+        rateTextView = findViewById(R.id.rate_text_view);
         maxPointsSeekBar = findViewById(R.id.max_points_seekbar);
         maxPointsValueText = findViewById(R.id.max_points_value);
         darkModeSwitch = findViewById(R.id.dark_mode_switch);
@@ -118,9 +176,7 @@ public class MainActivity extends AppCompatActivity {
                 selectedSensorType = parent.getItemAtPosition(position).toString();
                 if (isMonitoring) {
                     // Change sensor type on the fly if we're already monitoring
-//                    sensorDataManager.changeSensor(selectedSensorType);
-                    graphView.setSensorType(selectedSensorType);
-                    graphView.clearData(); // Clear previous data
+                    changeDisplayedSensor();
                 }
             }
 
@@ -130,6 +186,31 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        // Setup spinner with sampling rate options
+        ArrayAdapter<CharSequence> rateAdapter = ArrayAdapter.createFromResource(this,
+                R.array.sampling_rates, android.R.layout.simple_spinner_item);
+        rateAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        samplingRateSpinner.setAdapter(rateAdapter);
+
+        int[] samplingPeriods = getResources().getIntArray(R.array.sampling_periods_us);
+        samplingRateSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                samplingPeriodUs = samplingPeriods[position];
+                if (isMonitoring && recordingService != null) {
+                    // Re-register at the new rate
+                    recordingService.updateCapture(getCaptureSensorTypes(), samplingPeriodUs);
+                    applyFilter(); // Coefficients depend on the rate
+                    applySpectrumAnalyzer();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+                samplingPeriodUs = SensorDataManager.DEFAULT_SAMPLING_PERIOD_US;
+            }
+        });
+
         // Setup max points seekbar
         maxPointsSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
@@ -204,6 +285,84 @@ public class MainActivity extends AppCompatActivity {
             showAppInfo();
             return true;
         }
+        if (item.getItemId() == R.id.action_capture_all) {
+            captureAllSensors = !item.isChecked();
+            item.setChecked(captureAllSensors);
+            if (isMonitoring) {
+                Toast.makeText(this, "Applies to the next session", Toast.LENGTH_SHORT).show();
+            }
+            return true;
+        }
+        if (item.getItemId() == R.id.action_fast_rendering) {
+            item.setChecked(!item.isChecked());
+            // Compare the draw times shown under the timer between the two backends
+            graphView.setRenderBackend(item.isChecked() ? GraphView.BACKEND_LINES : GraphView.BACKEND_PATH);
+            return true;
+        }
+        if (item.getItemId() == R.id.action_event_alerts) {
+            eventAlerts = !item.isChecked();
+            item.setChecked(eventAlerts);
+            applyEventDetector();
+            return true;
+        }
+        if (item.getItemId() == R.id.action_triggered_capture) {
+            triggeredCapture = !item.isChecked();
+            item.setChecked(triggeredCapture);
+            if (isMonitoring) {
+                Toast.makeText(this, "Applies to the next session", Toast.LENGTH_SHORT).show();
+            }
+            return true;
+        }
+        if (item.getItemId() == R.id.action_trigger_now) {
+            TriggeredCapture capture = sensorDataManager != null ? sensorDataManager.getTriggeredCapture() : null;
+            if (!isMonitoring || capture == null) {
+                Toast.makeText(this, "Start a session with \"Triggered capture\" first", Toast.LENGTH_SHORT).show();
+            } else {
+                capture.trigger();
+                Toast.makeText(this, "Capture triggered", Toast.LENGTH_SHORT).show();
+            }
+            return true;
+        }
+        if (item.getItemId() == R.id.action_auto_scale) {
+            item.setChecked(!item.isChecked());
+            graphView.setAutoScale(item.isChecked());
+            return true;
+        }
+        if (item.getGroupId() == R.id.replay_group) {
+            if (item.getItemId() == R.id.replay_stop) {
+                stopReplay();
+            } else if (item.getItemId() == R.id.replay_fast) {
+                startReplay(4f);
+            } else if (item.getItemId() == R.id.replay_unlimited) {
+                startReplay(SessionReplayer.SPEED_UNLIMITED);
+            } else {
+                startReplay(1f);
+            }
+            return true;
+        }
+        if (item.getGroupId() == R.id.view_group) {
+            item.setChecked(true);
+            if (item.getItemId() == R.id.view_spectrum) {
+                renderMode = GraphView.MODE_SPECTRUM;
+            } else if (item.getItemId() == R.id.view_spectrogram) {
+                renderMode = GraphView.MODE_SPECTROGRAM;
+            } else {
+                renderMode = GraphView.MODE_TIME;
+            }
+            graphView.setRenderMode(renderMode);
+            if (isMonitoring) {
+                applySpectrumAnalyzer();
+            }
+            return true;
+        }
+        if (item.getGroupId() == R.id.filter_group) {
+            filterItemId = item.getItemId();
+            item.setChecked(true);
+            if (isMonitoring) {
+                applyFilter();
+            }
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
@@ -225,7 +384,8 @@ public class MainActivity extends AppCompatActivity {
         SpannableStringBuilder builder = new SpannableStringBuilder();
         builder.append("• Monitors device activity based on selected sensor type\n");
         builder.append("• Maximum data points - determines the graph's visualizing limits\n");
-        builder.append("Note: Zoom-in not supported.\n\n");
+        builder.append("• Pinch to zoom and drag to pan the graph, back through the whole session; double-tap to reset\n");
+        builder.append("• Triggered capture records only 5 s before and 10 s after a 2 g jolt or \"Trigger now\"\n\n");
 
         descText.setText(builder);
         descText.setTextSize(14);
@@ -265,6 +425,44 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void startMonitoring() {
+        if (recordingService == null) {
+            Toast.makeText(this, "Recording service is not ready yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        requestNotificationPermission();
+        if (isReplaying) {
+            // Capture takes over the pipeline
+            sensorDataManager.stopReplay();
+            isReplaying = false;
+        }
+
+        // Checked before anything is set up, so no session file is created for nothing
+        if (!sensorDataManager.isAnyAvailable(getCaptureSensorTypes())) {
+            Toast.makeText(this, selectedSensorType + " is not available on this device", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Start Monitoring
+        graphView.setSensorType(selectedSensorType); // Update graph title
+        graphView.clearData(); // Clear previous data
+        applyFilter();
+        applySpectrumAnalyzer();
+        applyTriggeredCapture();
+        applyEventDetector();
+        SessionRecorder recorder = startRecording(); // Stream every sample (or the triggered windows) to disk
+        if (!recordingService.startCapture(getCaptureSensorTypes(), samplingPeriodUs, recorder)) {
+            // The service closed the recorder and deleted its empty file
+            sessionFile = null;
+            clearPipelineStages();
+            Toast.makeText(this, "Could not start capture", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Log.d(TAG, "Started Monitoring: " + selectedSensorType);
+        showMonitoringStarted(SensorDataManager.getSensorTypeFromString(selectedSensorType));
+    }
+
+    private void showMonitoringStarted(int displayedSensorType) {
         isMonitoring = true;
         seconds = 0;
         startButton.setEnabled(false);
@@ -276,25 +474,335 @@ public class MainActivity extends AppCompatActivity {
         // Start timer
         startTimer();
 
-        Log.d(TAG, "Started Monitoring: " + selectedSensorType);
+        // Drain sensor samples every frame
+        graphView.startLiveUpdates(sensorDataManager.getSampleQueue(), displayedSensorType);
+    }
 
-        // Start Monitoring
-        sensorDataManager.startMonitoring(selectedSensorType);
-        graphView.setSensorType(selectedSensorType); // Update graph title
+    private void onRecordingServiceConnected(RecordingService service) {
+        recordingService = service;
+        sensorDataManager = service.getSensorDataManager();
+        service.setSessionListener(this::onRecordingStopped);
+        service.setLiveViewAttached(true);
+
+        if (service.isCapturing()) {
+            // Re-attach to a session that kept running in the background
+            int primaryType = service.getSensorTypes()[0];
+            if (!isMonitoring) {
+                graphView.setSensorType(SensorDataManager.getSensorNameFromType(primaryType));
+                graphView.clearData();
+            }
+            showMonitoringStarted(primaryType);
+            applySpectrumAnalyzer();
+            // The rules kept running without us; show their alerts again
+            EventDetector detector = sensorDataManager.getEventDetector();
+            if (eventAlerts && detector != null) {
+                detector.removeListener(alertListener);
+                detector.addListener(alertListener);
+            }
+        } else if (isMonitoring) {
+            // Stopped from the notification while the activity was in the background
+            showMonitoringStopped();
+            recordedFile = sessionFile;
+            exportButton.setEnabled(recordedFile != null);
+        }
+    }
+
+    private void requestNotificationPermission() {
+        // The recording notification is hidden without it on Android 13+; capture works either way
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.POST_NOTIFICATIONS},
+                    PERMISSION_REQUEST_NOTIFICATIONS);
+        }
+    }
+
+    // Displayed sensor first, so it is the primary one in multi-sensor sessions
+    private int[] getCaptureSensorTypes() {
+        int displayed = SensorDataManager.getSensorTypeFromString(selectedSensorType);
+        if (!captureAllSensors) {
+            return new int[]{displayed};
+        }
+
+        int[] types = new int[MULTI_SENSOR_TYPES.length + 1];
+        int count = 0;
+        types[count++] = displayed;
+        for (int type : MULTI_SENSOR_TYPES) {
+            if (type != displayed) {
+                types[count++] = type;
+            }
+        }
+        return Arrays.copyOf(types, count);
+    }
+
+    private void changeDisplayedSensor() {
+        int displayed = SensorDataManager.getSensorTypeFromString(selectedSensorType);
+        graphView.setSensorType(selectedSensorType);
         graphView.clearData(); // Clear previous data
+        graphView.setLiveSensorType(displayed);
+        if (isMonitoring) {
+            applyFilter();
+            applySpectrumAnalyzer();
+        }
+
+        // Already captured in a multi-sensor session; otherwise swap the registered sensor
+        if (recordingService != null && sensorDataManager.getBuffer(displayed) == null) {
+            if (!recordingService.updateCapture(getCaptureSensorTypes(), samplingPeriodUs)) {
+                Toast.makeText(this, selectedSensorType + " is not available on this device", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+
+    // Install a fresh chain for the selected filter; its state starts over
+    private void applyFilter() {
+        if (sensorDataManager == null) {
+            return;
+        }
+        if ((filterItemId == R.id.filter_complementary || filterItemId == R.id.filter_madgwick
+                || filterItemId == R.id.filter_mahony) && !captureAllSensors) {
+            Toast.makeText(this, "Orientation needs \"Capture all sensors\" (accelerometer and gyroscope)",
+                    Toast.LENGTH_SHORT).show();
+        }
+        sensorDataManager.setFilter(buildFilter());
+    }
+
+    // Analyze the displayed sensor while a spectral view is shown; nothing runs in time mode
+    private void applySpectrumAnalyzer() {
+        if (sensorDataManager == null) {
+            return;
+        }
+        SpectrumAnalyzer analyzer = null;
+        if (renderMode != GraphView.MODE_TIME) {
+            int windowSize = SpectrumAnalyzer.windowSizeFor(getSampleRateHz());
+            // 75% overlap between windows
+            analyzer = new SpectrumAnalyzer(getDisplayedSensorType(), windowSize, windowSize / 4);
+        }
+        sensorDataManager.setSpectrumAnalyzer(analyzer);
+        graphView.setSpectrumAnalyzer(analyzer);
+    }
+
+    // Remove what applyFilter() through applyEventDetector() installed for a session that
+    // did not start
+    private void clearPipelineStages() {
+        sensorDataManager.setFilter(null);
+        sensorDataManager.setSpectrumAnalyzer(null);
+        graphView.setSpectrumAnalyzer(null);
+        sensorDataManager.setTriggeredCapture(null);
+        sensorDataManager.setEventDetector(null);
+    }
+
+    // A fresh gate for every capture session in triggered mode; none while replaying
+    private void applyTriggeredCapture() {
+        if (sensorDataManager == null) {
+            return;
+        }
+        TriggeredCapture capture = null;
+        if (triggeredCapture && !isReplaying) {
+            int sensorCount = getCaptureSensorTypes().length;
+            capture = new TriggeredCapture(PRE_TRIGGER_NANOS, POST_TRIGGER_NANOS,
+                    TriggeredCapture.capacityFor(PRE_TRIGGER_NANOS, getSampleRateHz() * sensorCount));
+        }
+        sensorDataManager.setTriggeredCapture(capture);
+    }
+
+    // Fresh rules for every session, so no state carries over
+    private void applyEventDetector() {
+        if (sensorDataManager == null) {
+            return;
+        }
+        TriggeredCapture capture = sensorDataManager.getTriggeredCapture();
+        EventDetector detector = null;
+        if (eventAlerts || capture != null) {
+            detector = new EventDetector();
+            if (!captureAllSensors && getDisplayedSensorType() != Sensor.TYPE_ACCELEROMETER) {
+                Toast.makeText(this, "Alerts and triggers need the accelerometer or \"Capture all sensors\"",
+                        Toast.LENGTH_SHORT).show();
+            }
+        }
+        if (eventAlerts) {
+            // Four jolts of 1.5 g within a second; below 0.3 g for a tenth of a second
+            detector.addRule(new EventDetector.ShakeRule(Sensor.TYPE_ACCELEROMETER,
+                    1.5f * EventDetector.GRAVITY, 4, 1_000_000_000L));
+            detector.addRule(new EventDetector.FreeFallRule(Sensor.TYPE_ACCELEROMETER,
+                    0.3f * EventDetector.GRAVITY, 100_000_000L));
+            detector.addListener(alertListener);
+        }
+        if (capture != null) {
+            // Above 2 g; re-armed once back under 1.5 g. Shakes and falls trigger as well.
+            detector.addRule(new EventDetector.ThresholdRule(Sensor.TYPE_ACCELEROMETER,
+                    EventDetector.AXIS_MAGNITUDE, 2f * EventDetector.GRAVITY, 1.5f * EventDetector.GRAVITY));
+            detector.addListener(capture);
+        }
+        sensorDataManager.setEventDetector(detector);
+    }
+
+    private int getDisplayedSensorType() {
+        return isReplaying ? replaySensorType : SensorDataManager.getSensorTypeFromString(selectedSensorType);
+    }
+
+    private float getSampleRateHz() {
+        return isReplaying ? replayRateHz : 1_000_000f / samplingPeriodUs;
+    }
+
+    // Filter for the selected menu item, or null for raw values
+    private SampleFilter buildFilter() {
+        int displayed = getDisplayedSensorType();
+        float rateHz = getSampleRateHz();
+        if (filterItemId == R.id.filter_low_pass) {
+            // Keep the cutoff well below Nyquist at the slowest (UI, about 16 Hz) rate
+            return BiquadFilter.lowPass(displayed, rateHz, Math.min(5f, rateHz / 4));
+        }
+        if (filterItemId == R.id.filter_high_pass) {
+            return BiquadFilter.highPass(displayed, rateHz, 0.5f);
+        }
+        if (filterItemId == R.id.filter_moving_average) {
+            // About 50 ms
+            return new MovingAverageFilter(displayed, Math.max(2, Math.round(rateHz / 20)));
+        }
+        if (filterItemId == R.id.filter_remove_gravity) {
+            return new GravityRemovalFilter(Sensor.TYPE_ACCELEROMETER, 0.5f);
+        }
+        if (filterItemId == R.id.filter_complementary) {
+            // Shown on the gyroscope channel as roll, pitch and yaw
+            return new ComplementaryFilter(Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_GYROSCOPE, 0.5f);
+        }
+        if (filterItemId == R.id.filter_madgwick) {
+            return OrientationFilter.madgwick(Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_GYROSCOPE, 0.1f);
+        }
+        if (filterItemId == R.id.filter_mahony) {
+            // Also learns the gyro bias, so roll and pitch settle without a lag
+            return OrientationFilter.mahony(Sensor.TYPE_ACCELEROMETER, Sensor.TYPE_GYROSCOPE, 1f, 0.1f);
+        }
+        return null;
+    }
+
+    // Returns the started recorder, or null if the session can't be written
+    private SessionRecorder startRecording() {
+        recordedFile = null;
+        sessionFile = null;
+        try {
+            // Compressed binary while capturing; CSV is produced on export
+            File file = new File(getExportDirectory(), buildSessionFileName(BinarySessionFormat.FILE_EXTENSION));
+            CompressedRecordEncoder encoder = new CompressedRecordEncoder(
+                    SensorDataManager.getSensorTypeFromString(selectedSensorType),
+                    1_000_000f / samplingPeriodUs,
+                    SystemClock.elapsedRealtimeNanos(),
+                    System.currentTimeMillis(),
+                    captureAllSensors);
+            SessionRecorder recorder = new SessionRecorder(file, encoder);
+            recorder.start();
+            sessionFile = file;
+            return recorder;
+        } catch (IOException e) {
+            // Keep monitoring live even if the session can't be written
+            Log.e(TAG, "Error starting recording", e);
+            Toast.makeText(this, "Recording disabled: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return null;
+        }
+    }
+
+    private void onRecordingStopped(SessionRecorder recorder, IOException error) {
+        if (isMonitoring) {
+            // Stopped from the notification
+            showMonitoringStopped();
+        }
+        if (error != null) {
+            Log.e(TAG, "Error writing recording", error);
+            Toast.makeText(this, "Error writing recording: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Log.d(TAG, "Recorded " + recorder.getRecordedSamples() + " samples ("
+                + recorder.getDroppedSamples() + " dropped) to " + recorder.getFile().getName());
+        TriggeredCapture capture = sensorDataManager != null ? sensorDataManager.getTriggeredCapture() : null;
+        if (capture != null) {
+            Log.d(TAG, capture.getTriggerCount() + " triggers, " + capture.getDiscardedSamples()
+                    + " idle samples not written");
+        }
+        recordedFile = recorder.getFile();
+        if (!isMonitoring) {
+            exportButton.setEnabled(true);
+        }
+    }
+
+    // Play the last recording through the filters and the graph as if it were being captured
+    private void startReplay(float speed) {
+        if (sensorDataManager == null) {
+            Toast.makeText(this, "Recording service is not ready yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (isMonitoring) {
+            Toast.makeText(this, "Stop capture before replaying", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (recordedFile == null || !recordedFile.exists()
+                || recordedFile.length() <= BinarySessionFormat.HEADER_SIZE) {
+            Toast.makeText(this, "No recording to replay", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        BinarySessionReader reader;
+        try {
+            reader = new BinarySessionReader(recordedFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening recording", e);
+            Toast.makeText(this, "Error opening recording: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        sensorDataManager.stopReplay();
+        isReplaying = true;
+        replaySensorType = reader.getSensorType();
+        replayRateHz = reader.getNominalRateHz();
+        graphView.setSensorType(SensorDataManager.getSensorNameFromType(replaySensorType));
+        graphView.clearData();
+        applyFilter();
+        applySpectrumAnalyzer();
+        applyTriggeredCapture();
+        applyEventDetector();
+        sensorDataManager.startReplay(reader, speed,
+                (replayer, completed) -> runOnUiThread(() -> onReplayFinished(completed)));
+        graphView.startLiveUpdates(sensorDataManager.getSampleQueue(), replaySensorType);
+        Log.d(TAG, "Replaying " + reader.size() + " samples from " + recordedFile.getName());
+    }
+
+    private void stopReplay() {
+        if (sensorDataManager != null) {
+            // onReplayFinished follows on the UI thread
+            sensorDataManager.stopReplay();
+        }
+    }
+
+    private void onReplayFinished(boolean completed) {
+        // Already stopped for capture, or replaced by a newer replay
+        if (!isReplaying || (sensorDataManager != null && sensorDataManager.isReplaying())) {
+            return;
+        }
+        isReplaying = false;
+        // Keep the replayed data on screen
+        graphView.stopLiveUpdates();
+        if (completed) {
+            Toast.makeText(this, "Replay finished", Toast.LENGTH_SHORT).show();
+        }
     }
 
     private void stopMonitoring() {
+        // Flush and close the recording; export is enabled once the file is complete
+        if (recordingService != null) {
+            recordingService.stopCapture();
+        }
+        showMonitoringStopped();
+    }
+
+    private void showMonitoringStopped() {
         isMonitoring = false;
         startButton.setEnabled(true);
         stopButton.setEnabled(false);
-        exportButton.setEnabled(true);
 
         // Stop timer
         timerHandler.removeCallbacks(timerRunnable);
-
-        // Stop sensor monitoring directly
-        sensorDataManager.unregisterListeners();
+        graphView.stopLiveUpdates();
 
         // Don't clear the graph data to allow export after stopping
         Log.d(TAG, "Stopped Monitoring after " + seconds + " seconds");
@@ -307,13 +815,27 @@ public class MainActivity extends AppCompatActivity {
     private Runnable timerRunnable = new Runnable() {
         @Override
         public void run() {
-            seconds++;
+            // The session may have run in the background; count from its start
+            seconds = recordingService != null
+                    ? (int) ((SystemClock.elapsedRealtime() - recordingService.getSessionStartMs()) / 1000)
+                    : seconds + 1;
             int hours = seconds / 3600;
             int minutes = (seconds % 3600) / 60;
             int secs = seconds % 60;
 
             String time = String.format("%02d:%02d:%02d", hours, minutes, secs);
             timerTextView.setText(time);
+            if (sensorDataManager != null) {
+                SessionTimingStats timing = sensorDataManager.getTimingStats();
+                rateTextView.setText(String.format(Locale.US,
+                        "%.1f Hz \u00b7 jitter %.2f ms \u00b7 latency %.1f ms \u00b7 %.0f redraws/s \u00b7 %.1f samples/frame \u00b7 draw %.2f ms",
+                        sensorDataManager.getMeasuredRateHz(),
+                        timing != null ? timing.getJitterMs() : 0f,
+                        timing != null ? timing.getMeanLatencyMs() : 0f,
+                        graphView.getRedrawsPerSecond(),
+                        graphView.getSamplesPerFrame(),
+                        graphView.getMeanDrawMs()));
+            }
 
             if (isMonitoring) {
                 timerHandler.postDelayed(this, 1000);
@@ -349,49 +871,69 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void exportData() {
-        // Get CSV data from GraphView
-        String csvData = graphView.exportDataAsCsv();
-
-        if (csvData.isEmpty() || csvData.equals("Time (ms),X,Y,Z\n")) {
+        // The session was already streamed to disk during capture
+        if (recordedFile == null || !recordedFile.exists()
+                || recordedFile.length() <= BinarySessionFormat.HEADER_SIZE) {
             Toast.makeText(this, "No data to export", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        try {
-            // Create file in app-specific directory
-            File directory;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                directory = new File(getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "MoTrak");
-            } else {
-                directory = new File(Environment.getExternalStoragePublicDirectory(
-                        Environment.DIRECTORY_DOCUMENTS), "MoTrak");
-            }
+        // Convert the binary recording to CSV off the UI thread
+        File source = recordedFile;
+        String name = source.getName();
+        File csvFile = new File(source.getParentFile(),
+                name.substring(0, name.length() - BinarySessionFormat.FILE_EXTENSION.length()) + ".csv");
+        exportButton.setEnabled(false);
 
-            if (!directory.exists()) {
-                directory.mkdirs();
+        new Thread(() -> {
+            IOException error = null;
+            try (BinarySessionReader reader = new BinarySessionReader(source)) {
+                reader.exportCsv(csvFile);
+            } catch (IOException e) {
+                error = e;
             }
 
-            // Create filename with timestamp
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-            String timestamp = sdf.format(new Date());
-            String fileName = selectedSensorType + "_" + timestamp + ".csv";
+            IOException exportError = error;
+            runOnUiThread(() -> onExportFinished(csvFile, exportError));
+        }, "MoTrak-Export").start();
+    }
 
-            File file = new File(directory, fileName);
-            FileWriter writer = new FileWriter(file);
-            writer.append(csvData);
-            writer.flush();
-            writer.close();
+    private void onExportFinished(File csvFile, IOException error) {
+        exportButton.setEnabled(!isMonitoring);
+        if (error != null) {
+            Log.e(TAG, "Error exporting data", error);
+            Toast.makeText(this, "Error exporting data: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-            lastExportPath = file.getAbsolutePath();
+        lastExportPath = csvFile.getAbsolutePath();
 
-            // Show success message with option to share
-            Toast.makeText(this, "Data exported to " + fileName, Toast.LENGTH_LONG).show();
-            showShareOption(file);
+        // Show success message with option to share
+        Toast.makeText(this, "Data exported to " + csvFile.getName(), Toast.LENGTH_LONG).show();
+        showShareOption(csvFile);
+    }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error exporting data", e);
-            Toast.makeText(this, "Error exporting data: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+    private File getExportDirectory() {
+        // Create file in app-specific directory
+        File directory;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            directory = new File(getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "MoTrak");
+        } else {
+            directory = new File(Environment.getExternalStoragePublicDirectory(
+                    Environment.DIRECTORY_DOCUMENTS), "MoTrak");
+        }
+
+        if (!directory.exists()) {
+            directory.mkdirs();
         }
+        return directory;
+    }
+
+    private String buildSessionFileName(String extension) {
+        // Create filename with timestamp
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        String timestamp = sdf.format(new Date());
+        return selectedSensorType + "_" + timestamp + extension;
     }
 
     private void showShareOption(File file) {
@@ -407,20 +949,36 @@ public class MainActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        if (isMonitoring) {
-            // Temporarily unregister listeners to save battery
-            sensorDataManager.unregisterListeners();
-        }
+    protected void onStart() {
+        super.onStart();
+        // Capture keeps running in the service; attach to show it live
+        serviceBound = bindService(new Intent(this, RecordingService.class), serviceConnection, Context.BIND_AUTO_CREATE);
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        if (isMonitoring) {
-            // Re-register listeners if we were monitoring
-            sensorDataManager.startMonitoring(selectedSensorType);
+    protected void onStop() {
+        super.onStop();
+        // Detach only: the service keeps recording, batching samples while nobody watches
+        timerHandler.removeCallbacks(timerRunnable);
+        graphView.stopLiveUpdates();
+        if (recordingService != null) {
+            // Nobody looks at the spectrum in the background
+            sensorDataManager.setSpectrumAnalyzer(null);
+            // The rules keep feeding triggered capture, but toasts would hold on to this activity
+            EventDetector detector = sensorDataManager.getEventDetector();
+            if (detector != null) {
+                detector.removeListener(alertListener);
+            }
+            sensorDataManager.stopReplay();
+            isReplaying = false;
+            recordingService.setLiveViewAttached(false);
+            recordingService.setSessionListener(null);
+            recordingService = null;
+            sensorDataManager = null;
+        }
+        if (serviceBound) {
+            unbindService(serviceConnection);
+            serviceBound = false;
         }
     }
 
@@ -428,6 +986,6 @@ public class MainActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         timerHandler.removeCallbacks(timerRunnable);
-        sensorDataManager.unregisterListeners();
+        graphView.stopLiveUpdates();
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.example.motrak;
+
+// Incremental M4 decimation for a sliding window of 3-axis samples.
+// Samples are grouped into fixed-size buckets (about one per pixel column) and each
+// bucket keeps its first, min, max and last value per axis. Plotting those four points
+// per column preserves the visual shape of the curve, so drawing cost depends on the
+// view width instead of the window length. Each add() is O(1) and allocation-free.
+public class MinMaxDecimator {
+    private final int windowSize;
+    private final int bucketSize;
+    private final int bucketCount;
+
+    // Per bucket, per axis (index = bucket * 3 + axis)
+    private final float[] firstValues;
+    private final float[] lastValues;
+    private final float[] minValues;
+    private final float[] maxValues;
+    private final int[] minOffsets;
+    private final int[] maxOffsets;
+    // Per bucket: number of samples added so far
+    private final int[] counts;
+
+    private long totalSamples = 0;
+
+    // Output of collect(), reused between calls
+    private final float[] outPositions;
+    private final float[] outValues;
+
+    public MinMaxDecimator(int windowSize, int columns) {
+        if (windowSize <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Window and columns must be positive");
+        }
+        this.windowSize = windowSize;
+        this.bucketSize = Math.max(1, (windowSize + columns - 1) / columns);
+        // Enough buckets to cover the window plus the partially filled ones at either end
+        this.bucketCount = (windowSize + bucketSize - 1) / bucketSize + 2;
+
+        firstValues = new float[bucketCount * 3];
+        lastValues = new float[bucketCount * 3];
+        minValues = new float[bucketCount * 3];
+        maxValues = new float[bucketCount * 3];
+        minOffsets = new int[bucketCount * 3];
+        maxOffsets = new int[bucketCount * 3];
+        counts = new int[bucketCount];
+
+        outPositions = new float[bucketCount * 4];
+        outValues = new float[bucketCount * 4];
+    }
+
+    public void add(float x, float y, float z) {
+        long sequence = totalSamples++;
+        int bucket = (int) ((sequence / bucketSize) % bucketCount);
+        int offset = (int) (sequence % bucketSize);
+
+        if (offset == 0) {
+            counts[bucket] = 0;
+        }
+        counts[bucket]++;
+
+        addToBucket(bucket, 0, offset, x);
+        addToBucket(bucket, 1, offset, y);
+        addToBucket(bucket, 2, offset, z);
+    }
+
+    private void addToBucket(int bucket, int axis, int offset, float value) {
+        int i = bucket * 3 + axis;
+        if (offset == 0) {
+            firstValues[i] = value;
+            minValues[i] = value;
+            maxValues[i] = value;
+            minOffsets[i] = 0;
+            maxOffsets[i] = 0;
+        } else {
+            if (value < minValues[i]) {
+                minValues[i] = value;
+                minOffsets[i] = offset;
+            }
+            if (value > maxValues[i]) {
+                maxValues[i] = value;
+                maxOffsets[i] = offset;
+            }
+        }
+        lastValues[i] = value;
+    }
+
+    // Fill the output arrays with the decimated points for one axis, in time order.
+    // Positions are sample indices within the current window (0 = oldest sample).
+    // Returns the number of points; read them with getPosition()/getValue().
+    public int collect(int axis) {
+        return collect(axis, 0, windowSize - 1);
+    }
+
+    // Like collect(axis), but only for the buckets overlapping window positions
+    // fromPosition..toPosition, so a zoomed-in plot costs what is on screen
+    public int collect(int axis, int fromPosition, int toPosition) {
+        if (totalSamples == 0 || toPosition < fromPosition) {
+            return 0;
+        }
+
+        long windowStart = Math.max(0, totalSamples - windowSize);
+        long firstBucket = (windowStart + Math.max(0, fromPosition)) / bucketSize;
+        long lastBucket = Math.min(totalSamples - 1, windowStart + toPosition) / bucketSize;
+        int count = 0;
+
+        for (long b = firstBucket; b <= lastBucket; b++) {
+            int bucket = (int) (b % bucketCount);
+            int i = bucket * 3 + axis;
+            long bucketStart = b * bucketSize;
+            long lastSequence = bucketStart + counts[bucket] - 1;
+
+            // The oldest bucket may have been partly evicted from the window;
+            // only emit points that are still inside it
+            long minSequence = bucketStart + minOffsets[i];
+            long maxSequence = bucketStart + maxOffsets[i];
+            boolean minFirst = minSequence <= maxSequence;
+
+            count = emit(count, bucketStart, firstValues[i], windowStart);
+            if (minFirst) {
+                count = emit(count, minSequence, minValues[i], windowStart);
+                count = emit(count, maxSequence, maxValues[i], windowStart);
+            } else {
+                count = emit(count, maxSequence, maxValues[i], windowStart);
+                count = emit(count, minSequence, minValues[i], windowStart);
+            }
+            count = emit(count, lastSequence, lastValues[i], windowStart);
+        }
+        return count;
+    }
+
+    private int emit(int count, long sequence, float value, long windowStart) {
+        if (sequence < windowStart) {
+            return count;
+        }
+        float position = sequence - windowStart;
+        // Skip duplicates (e.g. the first sample is also the min)
+        if (count > 0 && outPositions[count - 1] == position) {
+            return count;
+        }
+        outPositions[count] = position;
+        outValues[count] = value;
+        return count + 1;
+    }
+
+    public float getPosition(int index) {
+        return outPositions[index];
+    }
+
+    public float getValue(int index) {
+        return outValues[index];
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    public void clear() {
+        totalSamples = 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.motrak;
+
+// Mean of the last windowSize samples on each axis, updated in O(1) from running sums.
+// Until the window has filled, the mean is over the samples seen so far.
+public class MovingAverageFilter implements SampleFilter {
+    private final int sensorType;
+    private final int windowSize;
+    // Interleaved x, y, z of the samples in the window
+    private final float[] history;
+    private final double[] sums = new double[3];
+    private int head = 0;
+    private int count = 0;
+
+    public MovingAverageFilter(int sensorType, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + windowSize);
+        }
+        this.sensorType = sensorType;
+        this.windowSize = windowSize;
+        this.history = new float[windowSize * 3];
+    }
+
+    @Override
+    public void process(int type, long timestampNanos, float[] values) {
+        if (sensorType != ANY_SENSOR && type != sensorType) {
+            return;
+        }
+
+        int base = head * 3;
+        if (count == windowSize) {
+            // Evict the oldest sample, which is about to be overwritten
+            for (int axis = 0; axis < 3; axis++) {
+                sums[axis] -= history[base + axis];
+            }
+        } else {
+            count++;
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            history[base + axis] = values[axis];
+            sums[axis] += values[axis];
+            values[axis] = (float) (sums[axis] / count);
+        }
+        head = (head + 1) % windowSize;
+    }
+
+    @Override
+    public void reset() {
+        head = 0;
+        count = 0;
+        sums[0] = 0;
+        sums[1] = 0;
+        sums[2] = 0;
+    }
+}
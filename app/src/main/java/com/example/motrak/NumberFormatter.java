@@ -0,0 +1,66 @@
+package com.example.motrak;
+
+// Allocation-free fixed-point formatting for values drawn or written on hot paths,
+// where String.format would create garbage on every call.
+public final class NumberFormatter {
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    // Longest possible output: sign, 19 integer digits, point, 8 decimals
+    public static final int MAX_LENGTH = 29;
+
+    private NumberFormatter() {
+    }
+
+    // Write value with the given number of decimals (0-8) into dst at offset,
+    // rounding half away from zero. Returns the number of chars written.
+    public static int formatFixed(double value, int decimals, char[] dst, int offset) {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported decimals: " + decimals);
+        }
+        if (Double.isNaN(value)) {
+            return writeLiteral("NaN", dst, offset);
+        }
+        if (Double.isInfinite(value)) {
+            return writeLiteral(value > 0 ? "Infinity" : "-Infinity", dst, offset);
+        }
+
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs(value) * scale);
+        int pos = offset;
+
+        // Drop the sign on purpose when the value rounds to zero, so an axis label never
+        // reads "-0.0" as String.format would
+        if (value < 0 && scaled != 0) {
+            dst[pos++] = '-';
+        }
+
+        pos += writeDigits(scaled / scale, 1, dst, pos);
+        if (decimals > 0) {
+            dst[pos++] = '.';
+            pos += writeDigits(scaled % scale, decimals, dst, pos);
+        }
+        return pos - offset;
+    }
+
+    // Write a non-negative integer, zero-padded to at least minDigits
+    private static int writeDigits(long value, int minDigits, char[] dst, int offset) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+
+        for (int i = digits - 1; i >= 0; i--) {
+            dst[offset + i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return digits;
+    }
+
+    private static int writeLiteral(String literal, char[] dst, int offset) {
+        literal.getChars(0, literal.length(), dst, offset);
+        return literal.length();
+    }
+}
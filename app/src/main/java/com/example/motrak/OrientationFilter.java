@@ -0,0 +1,260 @@
+package com.example.motrak;
+
+// Fuses gyroscope and accelerometer into an orientation quaternion with Madgwick's gradient
+// descent or Mahony's explicit complementary filter (both in their 6-axis IMU form). Every
+// gyroscope sample integrates the rates into the quaternion and corrects it toward the
+// direction of gravity given by the latest accelerometer sample; yaw has no reference and
+// drifts with the gyro bias. Unlike the platform's rotation vector, this runs at the full
+// gyroscope rate on the raw streams and gives the same result for the same samples.
+// The quaternion maps the device frame to the world frame (z up), with w first. As with
+// ComplementaryFilter, accelerometer samples pass through unchanged and gyroscope samples
+// are replaced by roll, pitch and yaw (radians), so this stage needs both sensors in the
+// session. Fixed cost and allocation-free per sample.
+public class OrientationFilter implements SampleFilter {
+    public static final int ALGORITHM_MADGWICK = 0;
+    public static final int ALGORITHM_MAHONY = 1;
+
+    // Longer gaps between gyroscope samples (a paused or triggered session) are not
+    // integrated; the quaternion holds and the accelerometer pulls it back
+    private static final long MAX_STEP_NANOS = 500_000_000L;
+
+    private final int accelerometerType;
+    private final int gyroscopeType;
+    private final int algorithm;
+    // Madgwick: beta, the gradient step in rad/s. Mahony: proportional and integral gains.
+    private final float gain;
+    private final float integralGain;
+
+    // Unit vector toward the latest accelerometer reading
+    private boolean hasGravity = false;
+    private float gravityX;
+    private float gravityY;
+    private float gravityZ;
+
+    private long lastGyroTimestamp = -1;
+    private float qw = 1;
+    private float qx;
+    private float qy;
+    private float qz;
+
+    // Mahony's integrated error, an estimate of the gyro bias
+    private float biasX;
+    private float biasY;
+    private float biasZ;
+
+    // beta around 0.03 to 0.1 rad/s trades gyro noise against convergence speed
+    public static OrientationFilter madgwick(int accelerometerType, int gyroscopeType, float beta) {
+        return new OrientationFilter(accelerometerType, gyroscopeType, ALGORITHM_MADGWICK, beta, 0);
+    }
+
+    // ki > 0 learns and removes a constant gyro bias on the roll and pitch axes
+    public static OrientationFilter mahony(int accelerometerType, int gyroscopeType, float kp, float ki) {
+        return new OrientationFilter(accelerometerType, gyroscopeType, ALGORITHM_MAHONY, kp, ki);
+    }
+
+    private OrientationFilter(int accelerometerType, int gyroscopeType, int algorithm, float gain, float integralGain) {
+        if (gain < 0 || integralGain < 0) {
+            throw new IllegalArgumentException("Gains must not be negative: " + gain + ", " + integralGain);
+        }
+        this.accelerometerType = accelerometerType;
+        this.gyroscopeType = gyroscopeType;
+        this.algorithm = algorithm;
+        this.gain = gain;
+        this.integralGain = integralGain;
+    }
+
+    @Override
+    public void process(int type, long timestampNanos, float[] values) {
+        if (type == accelerometerType) {
+            float norm = (float) Math.sqrt(values[0] * values[0] + values[1] * values[1] + values[2] * values[2]);
+            // Zero (or NaN) says nothing about the direction of gravity
+            if (norm > 0) {
+                gravityX = values[0] / norm;
+                gravityY = values[1] / norm;
+                gravityZ = values[2] / norm;
+                hasGravity = true;
+            }
+        } else if (type == gyroscopeType) {
+            updateFromGyroscope(timestampNanos, values[0], values[1], values[2]);
+            values[0] = getRoll();
+            values[1] = getPitch();
+            values[2] = getYaw();
+        }
+    }
+
+    private void updateFromGyroscope(long timestampNanos, float gx, float gy, float gz) {
+        if (lastGyroTimestamp < 0) {
+            // Start from the measured tilt instead of converging from level
+            if (hasGravity) {
+                initializeFromGravity();
+            }
+            lastGyroTimestamp = timestampNanos;
+            return;
+        }
+
+        long stepNanos = timestampNanos - lastGyroTimestamp;
+        lastGyroTimestamp = timestampNanos;
+        if (stepNanos <= 0 || stepNanos > MAX_STEP_NANOS) {
+            return;
+        }
+        float dt = stepNanos / 1e9f;
+        if (algorithm == ALGORITHM_MADGWICK) {
+            updateMadgwick(gx, gy, gz, dt);
+        } else {
+            updateMahony(gx, gy, gz, dt);
+        }
+    }
+
+    private void updateMadgwick(float gx, float gy, float gz, float dt) {
+        // Rate of change of the quaternion from the gyroscope: q' = q * (0, w) / 2
+        float dw = 0.5f * (-qx * gx - qy * gy - qz * gz);
+        float dx = 0.5f * (qw * gx + qy * gz - qz * gy);
+        float dy = 0.5f * (qw * gy - qx * gz + qz * gx);
+        float dz = 0.5f * (qw * gz + qx * gy - qy * gx);
+
+        if (hasGravity) {
+            // Gradient of the error between measured and predicted gravity
+            float ax = gravityX;
+            float ay = gravityY;
+            float az = gravityZ;
+            float ww = qw * qw;
+            float xx = qx * qx;
+            float yy = qy * qy;
+            float zz = qz * qz;
+            float sw = 4 * qw * yy + 2 * qy * ax + 4 * qw * xx - 2 * qx * ay;
+            float sx = 4 * qx * zz - 2 * qz * ax + 4 * ww * qx - 2 * qw * ay - 4 * qx
+                    + 8 * qx * xx + 8 * qx * yy + 4 * qx * az;
+            float sy = 4 * ww * qy + 2 * qw * ax + 4 * qy * zz - 2 * qz * ay - 4 * qy
+                    + 8 * qy * xx + 8 * qy * yy + 4 * qy * az;
+            float sz = 4 * xx * qz - 2 * qx * ax + 4 * yy * qz - 2 * qy * ay;
+            float norm = (float) Math.sqrt(sw * sw + sx * sx + sy * sy + sz * sz);
+            // Zero once the estimate matches the measurement exactly
+            if (norm > 0) {
+                float step = gain / norm;
+                dw -= step * sw;
+                dx -= step * sx;
+                dy -= step * sy;
+                dz -= step * sz;
+            }
+        }
+
+        qw += dw * dt;
+        qx += dx * dt;
+        qy += dy * dt;
+        qz += dz * dt;
+        normalize();
+    }
+
+    private void updateMahony(float gx, float gy, float gz, float dt) {
+        if (hasGravity) {
+            // Predicted gravity in the device frame, and its error against the measurement
+            float vx = 2 * (qx * qz - qw * qy);
+            float vy = 2 * (qw * qx + qy * qz);
+            float vz = qw * qw - qx * qx - qy * qy + qz * qz;
+            float ex = gravityY * vz - gravityZ * vy;
+            float ey = gravityZ * vx - gravityX * vz;
+            float ez = gravityX * vy - gravityY * vx;
+            if (integralGain > 0) {
+                biasX += integralGain * ex * dt;
+                biasY += integralGain * ey * dt;
+                biasZ += integralGain * ez * dt;
+                gx += biasX;
+                gy += biasY;
+                gz += biasZ;
+            }
+            gx += gain * ex;
+            gy += gain * ey;
+            gz += gain * ez;
+        }
+
+        float halfDt = 0.5f * dt;
+        float w = qw;
+        float x = qx;
+        float y = qy;
+        qw += (-x * gx - y * gy - qz * gz) * halfDt;
+        qx += (w * gx + y * gz - qz * gy) * halfDt;
+        qy += (w * gy - x * gz + qz * gx) * halfDt;
+        qz += (w * gz + x * gy - y * gx) * halfDt;
+        normalize();
+    }
+
+    // Roll and pitch from gravity, zero yaw
+    private void initializeFromGravity() {
+        float roll = (float) Math.atan2(gravityY, gravityZ);
+        float pitch = (float) Math.atan2(-gravityX, Math.sqrt(gravityY * gravityY + gravityZ * gravityZ));
+        float cr = (float) Math.cos(roll / 2);
+        float sr = (float) Math.sin(roll / 2);
+        float cp = (float) Math.cos(pitch / 2);
+        float sp = (float) Math.sin(pitch / 2);
+        qw = cr * cp;
+        qx = sr * cp;
+        qy = cr * sp;
+        qz = -sr * sp;
+    }
+
+    private void normalize() {
+        float norm = (float) Math.sqrt(qw * qw + qx * qx + qy * qy + qz * qz);
+        qw /= norm;
+        qx /= norm;
+        qy /= norm;
+        qz /= norm;
+    }
+
+    @Override
+    public void reset() {
+        hasGravity = false;
+        lastGyroTimestamp = -1;
+        qw = 1;
+        qx = 0;
+        qy = 0;
+        qz = 0;
+        biasX = 0;
+        biasY = 0;
+        biasZ = 0;
+    }
+
+    // Writes w, x, y, z into out
+    public void getQuaternion(float[] out) {
+        out[0] = qw;
+        out[1] = qx;
+        out[2] = qy;
+        out[3] = qz;
+    }
+
+    // Euler angles in the z-y-x convention, matching ComplementaryFilter
+    public float getRoll() {
+        return (float) Math.atan2(2 * (qw * qx + qy * qz), 1 - 2 * (qx * qx + qy * qy));
+    }
+
+    public float getPitch() {
+        float sin = 2 * (qw * qy - qz * qx);
+        return (float) Math.asin(Math.max(-1f, Math.min(1f, sin)));
+    }
+
+    public float getYaw() {
+        return (float) Math.atan2(2 * (qw * qz + qx * qy), 1 - 2 * (qy * qy + qz * qz));
+    }
+
+    // Mahony's running gyro bias estimate in rad/s (zero for Madgwick), written as x, y, z
+    public void getGyroBias(float[] out) {
+        // The integral term is added to the rates, so it is the negated bias
+        out[0] = -biasX;
+        out[1] = -biasY;
+        out[2] = -biasZ;
+    }
+
+    public int getAlgorithm() {
+        return algorithm;
+    }
+
+    // Full quaternion (w, x, y, z) of a TYPE_ROTATION_VECTOR reading, whose values hold only
+    // x, y and z; the pipeline keeps three values per sample, so w is recovered from the
+    // unit norm. For comparing this filter with the platform's fusion.
+    public static void rotationVectorToQuaternion(float x, float y, float z, float[] out) {
+        float ww = 1 - x * x - y * y - z * z;
+        out[0] = ww > 0 ? (float) Math.sqrt(ww) : 0;
+        out[1] = x;
+        out[2] = y;
+        out[3] = z;
+    }
+}
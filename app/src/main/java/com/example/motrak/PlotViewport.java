@@ -0,0 +1,140 @@
+package com.example.motrak;
+
+// Zoom and pan state of the time plot, mapped to window sample positions. Sample i of a
+// window of n samples sits at i / (n - 1) of the zoomed plot width; the viewport shows
+// plotWidth pixels of it starting at the pan offset. GraphView asks for the first and
+// last visible sample and only turns that range into path vertices, so drawing cost
+// follows what is on screen rather than the window length. When older samples are kept
+// outside the window (HistoryPyramid), the plot can also be panned into them or zoomed
+// out beyond the window; they sit at negative positions.
+public class PlotViewport {
+    // Zooming in stops once this many samples span the plot
+    public static final int MIN_VISIBLE_SAMPLES = 20;
+    private static final float DEFAULT_MAX_SCALE = 5f;
+
+    private int windowSize = 2;
+    // Samples reachable before position 0
+    private int historySize = 0;
+    private float plotWidth = 1;
+    private float scale = 1;
+    // Pixels of the zoomed plot scrolled off the left edge
+    private float offset = 0;
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = Math.max(2, windowSize);
+        clamp();
+    }
+
+    // Number of older samples held before the window; 0 keeps the view inside the window
+    public void setHistorySize(int historySize) {
+        this.historySize = Math.max(0, historySize);
+        clamp();
+    }
+
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    public void setPlotWidth(float plotWidth) {
+        this.plotWidth = Math.max(1, plotWidth);
+        clamp();
+    }
+
+    // Scale by factor, keeping the content under focusX (pixels from the plot's left edge) in place
+    public void zoom(float factor, float focusX) {
+        float oldScale = scale;
+        scale = Math.max(getMinScale(), Math.min(scale * factor, getMaxScale()));
+        offset = (offset + focusX) * (scale / oldScale) - focusX;
+        clamp();
+    }
+
+    // Scroll by dx pixels; positive shows later samples
+    public void pan(float dx) {
+        offset += dx;
+        clamp();
+    }
+
+    public void reset() {
+        scale = 1;
+        offset = 0;
+    }
+
+    // Keeps the newest sample at or right of the right edge and the oldest held one at or
+    // left of the left edge; zoomed out, the newest sample stays on the right edge
+    private void clamp() {
+        scale = Math.max(getMinScale(), Math.min(scale, getMaxScale()));
+        float maxOffset = plotWidth * scale - plotWidth;
+        float minOffset = Math.min(maxOffset, -historySize * getSampleSpacing());
+        offset = Math.max(minOffset, Math.min(offset, maxOffset));
+    }
+
+    public boolean isZoomed() {
+        return scale > 1f;
+    }
+
+    // Whether pan() can move the view: zoomed in, or with history to scroll back into
+    public boolean canPan() {
+        return scale > 1f || historySize > 0;
+    }
+
+    // Whether part of the view lies before the window, in the history
+    public boolean showsHistory() {
+        return historySize > 0 && positionAt(0) < 0;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public float getOffset() {
+        return offset;
+    }
+
+    // Zooming out stops once the window and all of the history fit the plot
+    public float getMinScale() {
+        return (windowSize - 1f) / (windowSize - 1f + historySize);
+    }
+
+    public float getMaxScale() {
+        return Math.max(DEFAULT_MAX_SCALE, (windowSize - 1f) / (MIN_VISIBLE_SAMPLES - 1));
+    }
+
+    // Pixels between consecutive samples
+    public float getSampleSpacing() {
+        return plotWidth * scale / (windowSize - 1);
+    }
+
+    // X of a sample position, in pixels from the plot's left edge
+    public float toX(float position) {
+        return position * getSampleSpacing() - offset;
+    }
+
+    // Sample position at x pixels from the plot's left edge
+    public float positionAt(float x) {
+        return (x + offset) / getSampleSpacing();
+    }
+
+    // Index of the first sample to draw: the last one at or left of the plot's edge, so lines
+    // enter from the edge. size is the number of samples in the window; -1 if none are visible.
+    public int getFirstVisible(int size) {
+        if (size == 0) {
+            return -1;
+        }
+        int first = (int) Math.floor(positionAt(0));
+        return first < size ? Math.max(0, first) : -1;
+    }
+
+    // Position of the first sample to draw, negative within the history
+    public int getFirstVisiblePosition() {
+        return (int) Math.floor(positionAt(0));
+    }
+
+    // Index of the last sample to draw: the first one at or right of the plot's edge, clamped to the data
+    public int getLastVisible(int size) {
+        if (size == 0) {
+            return -1;
+        }
+        int last = (int) Math.ceil(positionAt(plotWidth));
+        return Math.min(size - 1, last);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.motrak;
+
+// Measures the delivered sample rate from sensor event timestamps.
+// Updated on the sensor thread, readable from any thread.
+public class RateMeter {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private long windowStart = -1;
+    private int windowCount = 0;
+    private volatile float rateHz = 0f;
+    private volatile long totalSamples = 0;
+
+    public void onSample(long timestampNanos) {
+        totalSamples++;
+        if (windowStart < 0) {
+            windowStart = timestampNanos;
+            windowCount = 0;
+            return;
+        }
+
+        windowCount++;
+        long elapsed = timestampNanos - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+            // Samples after the first one, over the time they spanned
+            rateHz = windowCount * 1e9f / elapsed;
+            windowStart = timestampNanos;
+            windowCount = 0;
+        }
+    }
+
+    public float getRateHz() {
+        return rateHz;
+    }
+
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+
+    public void reset() {
+        windowStart = -1;
+        windowCount = 0;
+        rateHz = 0f;
+        totalSamples = 0;
+    }
+}
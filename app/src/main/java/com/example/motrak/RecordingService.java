@@ -0,0 +1,264 @@
+package com.example.motrak;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.IOException;
+
+// Owns sensor capture and session recording so a session keeps running when the activity
+// is paused, the screen is off or the app is in the background. While capturing it runs
+// in the foreground with a partial wake lock. With no live view attached, the sensor hub
+// batches events for up to BACKGROUND_REPORT_LATENCY_US, so the CPU wakes a few times a
+// minute instead of for every sample; the sensor rate itself does not change.
+// MainActivity binds to it to show a live tail of the capture.
+public class RecordingService extends Service {
+    private static final String TAG = "MoTrak";
+    private static final String CHANNEL_ID = "recording";
+    private static final int NOTIFICATION_ID = 1;
+
+    // Live view wants every sample promptly, so no hardware batching while attached
+    public static final int LIVE_REPORT_LATENCY_US = 0;
+    public static final int BACKGROUND_REPORT_LATENCY_US = 10_000_000;
+
+    // Upper bound in case a session is never stopped
+    private static final long MAX_WAKE_LOCK_MS = 12 * 60 * 60 * 1000L;
+
+    // Called on the main thread once a session's recording has been flushed and closed
+    public interface SessionListener {
+        void onSessionStopped(SessionRecorder recorder, IOException error);
+    }
+
+    public class LocalBinder extends Binder {
+        public RecordingService getService() {
+            return RecordingService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private SensorDataManager sensorDataManager;
+    private PowerManager.WakeLock wakeLock;
+    private SessionListener sessionListener;
+
+    private boolean capturing = false;
+    private boolean liveViewAttached = false;
+    private int[] sensorTypes;
+    private int samplingPeriodUs;
+    private long sessionStartMs;
+
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        sensorDataManager = new SensorDataManager(this);
+        // The notification's stop action arrives as the STOP_SENSOR_MONITORING broadcast
+        sensorDataManager.setStopRequestListener(this::stopCapture);
+
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "MoTrak:recording");
+        wakeLock.setReferenceCounted(false);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Started by startCapture(); promote to foreground as required after startForegroundService()
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(),
+                ServiceInfo.FOREGROUND_SERVICE_TYPE_HEALTH);
+        if (!capturing) {
+            // Stopped before the start command arrived
+            ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+            stopSelf();
+        }
+        // A killed session can't be resumed meaningfully; the recording is already on disk
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    // Start capturing the given sensors, streaming to recorder if not null; the service owns
+    // the recorder from here on. Returns false if capture is already running or none of the
+    // sensors is available: the recorder is then closed and its file, which holds no
+    // samples, deleted, without a call to the session listener.
+    public boolean startCapture(int[] sensorTypes, int samplingPeriodUs, SessionRecorder recorder) {
+        if (capturing) {
+            discardRecording(recorder);
+            return false;
+        }
+
+        sensorDataManager.clearData();
+        if (recorder != null) {
+            sensorDataManager.startRecording(recorder);
+        }
+        if (!sensorDataManager.startMonitoring(sensorTypes, samplingPeriodUs, currentReportLatencyUs())) {
+            sensorDataManager.unregisterListeners();
+            // Attached above, so it is closed on the sensor thread like any recording
+            sensorDataManager.stopRecording((stopped, error) -> deleteRecording(stopped));
+            return false;
+        }
+
+        this.sensorTypes = sensorTypes;
+        this.samplingPeriodUs = samplingPeriodUs;
+        sessionStartMs = SystemClock.elapsedRealtime();
+        capturing = true;
+        wakeLock.acquire(MAX_WAKE_LOCK_MS);
+
+        // Keep running after the activity unbinds
+        ContextCompat.startForegroundService(this, new Intent(this, RecordingService.class));
+        Log.d(TAG, "Capture started, period " + samplingPeriodUs + " us");
+        return true;
+    }
+
+    // Close a recorder that never received samples and remove its file
+    private static void discardRecording(SessionRecorder recorder) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.stop();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing unused recording", e);
+        }
+        deleteRecording(recorder);
+    }
+
+    private static void deleteRecording(SessionRecorder recorder) {
+        if (!recorder.getFile().delete()) {
+            Log.w(TAG, "Could not delete " + recorder.getFile().getName());
+        }
+    }
+
+    // Change the captured sensors or rate of the running session.
+    // Returns false if none of the new sensors is available.
+    public boolean updateCapture(int[] sensorTypes, int samplingPeriodUs) {
+        if (!capturing) {
+            return false;
+        }
+        this.sensorTypes = sensorTypes;
+        this.samplingPeriodUs = samplingPeriodUs;
+        sensorDataManager.unregisterListeners();
+        return sensorDataManager.startMonitoring(sensorTypes, samplingPeriodUs, currentReportLatencyUs());
+    }
+
+    // Stop capture and close the recording; the session listener is told once it is on disk
+    public void stopCapture() {
+        if (!capturing) {
+            return;
+        }
+        capturing = false;
+
+        sensorDataManager.unregisterListeners();
+        sensorDataManager.stopRecording((recorder, error) ->
+                mainHandler.post(() -> onRecordingStopped(recorder, error)));
+
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        // Stays alive while the activity is still bound
+        stopSelf();
+        Log.d(TAG, "Capture stopped");
+    }
+
+    private void onRecordingStopped(SessionRecorder recorder, IOException error) {
+        if (sessionListener != null) {
+            sessionListener.onSessionStopped(recorder, error);
+        }
+    }
+
+    // The activity attaches while it is visible; batching is only used while nobody watches
+    public void setLiveViewAttached(boolean attached) {
+        liveViewAttached = attached;
+        if (capturing) {
+            // Flushes first, so what was batched in the background shows up right away
+            sensorDataManager.setMaxReportLatency(currentReportLatencyUs());
+        }
+    }
+
+    private int currentReportLatencyUs() {
+        return liveViewAttached ? LIVE_REPORT_LATENCY_US : BACKGROUND_REPORT_LATENCY_US;
+    }
+
+    public void setSessionListener(SessionListener listener) {
+        this.sessionListener = listener;
+    }
+
+    public SensorDataManager getSensorDataManager() {
+        return sensorDataManager;
+    }
+
+    public boolean isCapturing() {
+        return capturing;
+    }
+
+    public int[] getSensorTypes() {
+        return sensorTypes;
+    }
+
+    public int getSamplingPeriodUs() {
+        return samplingPeriodUs;
+    }
+
+    // SystemClock.elapsedRealtime() when the current session started
+    public long getSessionStartMs() {
+        return sessionStartMs;
+    }
+
+    private Notification buildNotification() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Recording",
+                    NotificationManager.IMPORTANCE_LOW);
+            NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+            manager.createNotificationChannel(channel);
+        }
+
+        Intent openIntent = new Intent(this, MainActivity.class);
+        PendingIntent openPending = PendingIntent.getActivity(this, 0, openIntent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+
+        // Explicit package so the not-exported receiver in SensorDataManager accepts it
+        Intent stopIntent = new Intent(SensorDataManager.ACTION_STOP_MONITORING).setPackage(getPackageName());
+        PendingIntent stopPending = PendingIntent.getBroadcast(this, 0, stopIntent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("MoTrak is recording")
+                .setContentText("Sensor capture continues in the background")
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setContentIntent(openPending)
+                .addAction(android.R.drawable.ic_media_pause, "Stop", stopPending)
+                .build();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        stopCapture();
+        sensorDataManager.onDestroy();
+    }
+}
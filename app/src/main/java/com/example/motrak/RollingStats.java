@@ -0,0 +1,178 @@
+package com.example.motrak;
+
+// Min, max, mean, standard deviation and RMS of each axis over the last `capacity`
+// 3-axis samples, updated in O(1) per sample instead of scanning the window every frame.
+// Mean and variance use Welford's update, extended to a sliding window by removing the
+// evicted sample with the inverse update. Min and max come from monotonic deques that
+// only keep samples which can still become the extreme before they leave the window.
+// Allocation-free after construction. Not thread-safe.
+public class RollingStats {
+    private final int capacity;
+
+    // Window contents, index = slot * 3 + axis; sample n lives in slot n % capacity
+    private final float[] values;
+    private long added = 0;
+    private int size = 0;
+
+    private final double[] mean = new double[3];
+    // Sum of squared differences from the mean
+    private final double[] m2 = new double[3];
+
+    // Per axis: ring of slots, oldest first. Values increase along minSlots and
+    // decrease along maxSlots, so the front is the window's extreme.
+    private final int[][] minSlots = new int[3][];
+    private final int[][] maxSlots = new int[3][];
+    private final int[] minFirst = new int[3];
+    private final int[] minCount = new int[3];
+    private final int[] maxFirst = new int[3];
+    private final int[] maxCount = new int[3];
+
+    public RollingStats(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.values = new float[capacity * 3];
+        for (int axis = 0; axis < 3; axis++) {
+            minSlots[axis] = new int[capacity];
+            maxSlots[axis] = new int[capacity];
+        }
+    }
+
+    public void add(float x, float y, float z) {
+        int slot = (int) (added % capacity);
+        boolean full = size == capacity;
+
+        addToAxis(0, slot, x, full);
+        addToAxis(1, slot, y, full);
+        addToAxis(2, slot, z, full);
+
+        added++;
+        if (!full) {
+            size++;
+        } else if (slot == capacity - 1) {
+            // Once per window, recompute exactly so rounding from the sliding updates can't accumulate
+            recomputeMoments();
+        }
+    }
+
+    private void addToAxis(int axis, int slot, float value, boolean full) {
+        int index = slot * 3 + axis;
+        if (full) {
+            // The sample in this slot leaves the window
+            double evicted = values[index];
+            double oldMean = mean[axis];
+            double newMean = oldMean + (value - evicted) / capacity;
+            m2[axis] += (value - evicted) * (value - newMean + evicted - oldMean);
+            mean[axis] = newMean;
+            if (m2[axis] < 0) {
+                m2[axis] = 0;
+            }
+
+            if (minCount[axis] > 0 && minSlots[axis][minFirst[axis]] == slot) {
+                minFirst[axis] = (minFirst[axis] + 1) % capacity;
+                minCount[axis]--;
+            }
+            if (maxCount[axis] > 0 && maxSlots[axis][maxFirst[axis]] == slot) {
+                maxFirst[axis] = (maxFirst[axis] + 1) % capacity;
+                maxCount[axis]--;
+            }
+        } else {
+            double delta = value - mean[axis];
+            mean[axis] += delta / (size + 1);
+            m2[axis] += delta * (value - mean[axis]);
+        }
+        values[index] = value;
+
+        // Samples that are no smaller (no larger) than the new one can never be the minimum
+        // (maximum) again: the new one is at least as extreme and leaves the window later
+        int[] slots = minSlots[axis];
+        while (minCount[axis] > 0
+                && values[slots[(minFirst[axis] + minCount[axis] - 1) % capacity] * 3 + axis] >= value) {
+            minCount[axis]--;
+        }
+        slots[(minFirst[axis] + minCount[axis]) % capacity] = slot;
+        minCount[axis]++;
+
+        slots = maxSlots[axis];
+        while (maxCount[axis] > 0
+                && values[slots[(maxFirst[axis] + maxCount[axis] - 1) % capacity] * 3 + axis] <= value) {
+            maxCount[axis]--;
+        }
+        slots[(maxFirst[axis] + maxCount[axis]) % capacity] = slot;
+        maxCount[axis]++;
+    }
+
+    private void recomputeMoments() {
+        for (int axis = 0; axis < 3; axis++) {
+            double sum = 0;
+            for (int slot = 0; slot < size; slot++) {
+                sum += values[slot * 3 + axis];
+            }
+            double exactMean = sum / size;
+            double squares = 0;
+            for (int slot = 0; slot < size; slot++) {
+                double difference = values[slot * 3 + axis] - exactMean;
+                squares += difference * difference;
+            }
+            mean[axis] = exactMean;
+            m2[axis] = squares;
+        }
+    }
+
+    public void clear() {
+        added = 0;
+        size = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            mean[axis] = 0;
+            m2[axis] = 0;
+            minFirst[axis] = 0;
+            minCount[axis] = 0;
+            maxFirst[axis] = 0;
+            maxCount[axis] = 0;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // The getters below return NaN while the window is empty
+
+    public float getMin(int axis) {
+        return size == 0 ? Float.NaN : values[minSlots[axis][minFirst[axis]] * 3 + axis];
+    }
+
+    public float getMax(int axis) {
+        return size == 0 ? Float.NaN : values[maxSlots[axis][maxFirst[axis]] * 3 + axis];
+    }
+
+    public float getMean(int axis) {
+        return size == 0 ? Float.NaN : (float) mean[axis];
+    }
+
+    // Population variance of the window
+    public float getVariance(int axis) {
+        return size == 0 ? Float.NaN : (float) (m2[axis] / size);
+    }
+
+    public float getStdDev(int axis) {
+        return (float) Math.sqrt(getVariance(axis));
+    }
+
+    // Root mean square of the raw values, including any offset such as gravity
+    public float getRms(int axis) {
+        if (size == 0) {
+            return Float.NaN;
+        }
+        return (float) Math.sqrt(mean[axis] * mean[axis] + m2[axis] / size);
+    }
+}
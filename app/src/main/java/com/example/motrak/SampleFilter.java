@@ -0,0 +1,15 @@
+package com.example.motrak;
+
+// One stage of the real-time filter chain between sensor ingestion and the consumers.
+// Stages work in place on the x, y, z values of a sample, are called only on the sensor
+// thread and must not allocate. A stateful stage belongs to one sensor stream: it
+// processes samples of its own sensor type and passes the others through untouched.
+public interface SampleFilter {
+    // Matches every sensor type; only meaningful in single-sensor sessions
+    int ANY_SENSOR = -1;
+
+    void process(int sensorType, long timestampNanos, float[] values);
+
+    // Forget all history, e.g. at the start of a session
+    void reset();
+}
@@ -0,0 +1,153 @@
+package com.example.motrak;
+
+// Per-sample work done on the sensor thread, independent of the Android sensor API:
+// run the filter chain, route the sample to its sensor's channel and spectrum analyzer,
+// check it against the event rules, queue it for the UI and append it to the active
+// recording, through the trigger gate in triggered mode. SensorDataManager feeds it from
+// onSensorChanged; benchmarks and tests can feed it directly. Allocation-free per sample.
+public class SamplePipeline {
+    // One channel per captured sensor type; the first one is the primary sensor
+    private volatile SensorChannel[] channels = new SensorChannel[0];
+
+    // Hand-off to the UI thread, tagged with the sensor type
+    private final SpscSampleQueue queue;
+
+    // Streams every sample to disk while set
+    private volatile SessionRecorder recorder;
+
+    // Optional gate that only lets the samples around triggers through to the recorder
+    private volatile TriggeredCapture capture;
+
+    // Optional filter chain; its stages are only touched on the sensor thread after hand-over
+    private volatile SampleFilter filter;
+
+    // Optional sliding-window FFT of one sensor; runs here so the UI thread only draws
+    private volatile SpectrumAnalyzer analyzer;
+
+    // Optional rules that raise events on thresholds, peaks, shakes and free fall
+    private volatile EventDetector detector;
+
+    // Values of the last sample after filtering
+    private final float[] output = new float[3];
+
+    public SamplePipeline(int queueCapacity) {
+        this.queue = new SpscSampleQueue(queueCapacity);
+    }
+
+    // Returns false if the sample belongs to a sensor that is not being captured
+    public boolean onSample(int sensorType, long timestampNanos, long arrivalNanos, float x, float y, float z) {
+        SensorChannel channel = SensorChannel.find(channels, sensorType);
+        if (channel == null) {
+            return false;
+        }
+
+        output[0] = x;
+        output[1] = y;
+        output[2] = z;
+        SampleFilter activeFilter = filter;
+        if (activeFilter != null) {
+            activeFilter.process(sensorType, timestampNanos, output);
+        }
+
+        // Per-sensor history, rate, jitter and delivery latency
+        channel.onSample(timestampNanos, arrivalNanos, output[0], output[1], output[2]);
+
+        SpectrumAnalyzer activeAnalyzer = analyzer;
+        if (activeAnalyzer != null && activeAnalyzer.getSensorType() == sensorType) {
+            activeAnalyzer.onSample(timestampNanos, output[0], output[1], output[2]);
+        }
+
+        // Rules see the raw values, like the recording, whatever the display filter
+        EventDetector activeDetector = detector;
+        if (activeDetector != null) {
+            activeDetector.onSample(sensorType, timestampNanos, x, y, z);
+        }
+
+        // Dropped and counted if the UI falls behind
+        queue.offer(sensorType, timestampNanos, output[0], output[1], output[2]);
+
+        // The recording keeps the raw values, so a session can be filtered differently later
+        SessionRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            TriggeredCapture activeCapture = capture;
+            if (activeCapture != null) {
+                activeCapture.onSample(activeRecorder, sensorType, timestampNanos, x, y, z);
+            } else {
+                activeRecorder.append(sensorType, timestampNanos, x, y, z);
+            }
+        }
+        return true;
+    }
+
+    // Filtered values of the sample last accepted by onSample() (sensor thread only)
+    public float[] getOutput() {
+        return output;
+    }
+
+    public SampleFilter getFilter() {
+        return filter;
+    }
+
+    // Replace the filter chain; pass a fresh (or reset) chain so no state leaks between sessions
+    public void setFilter(SampleFilter filter) {
+        this.filter = filter;
+    }
+
+    public SpectrumAnalyzer getSpectrumAnalyzer() {
+        return analyzer;
+    }
+
+    // Analyzes the filtered samples of the analyzer's sensor type; null to stop analysis
+    public void setSpectrumAnalyzer(SpectrumAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    public EventDetector getEventDetector() {
+        return detector;
+    }
+
+    // Runs the detector's rules on every raw sample; null to stop detection
+    public void setEventDetector(EventDetector detector) {
+        this.detector = detector;
+    }
+
+    public SensorChannel[] getChannels() {
+        return channels;
+    }
+
+    public void setChannels(SensorChannel[] channels) {
+        this.channels = channels;
+    }
+
+    public SensorChannel getChannel(int sensorType) {
+        return SensorChannel.find(channels, sensorType);
+    }
+
+    // Channel of the primary sensor, or null if nothing is captured
+    public SensorChannel getPrimaryChannel() {
+        SensorChannel[] active = channels;
+        return active.length > 0 ? active[0] : null;
+    }
+
+    public SpscSampleQueue getQueue() {
+        return queue;
+    }
+
+    public SessionRecorder getRecorder() {
+        return recorder;
+    }
+
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public TriggeredCapture getTriggeredCapture() {
+        return capture;
+    }
+
+    // Record only around triggers; null to record every sample. Set it before the
+    // recorder, with a fresh gate per session.
+    public void setTriggeredCapture(TriggeredCapture capture) {
+        this.capture = capture;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.motrak;
+
+// Fixed-capacity ring buffer for 3-axis samples.
+// Values are stored interleaved (x, y, z) in a primitive float array alongside a
+// primitive timestamp array, so appending and evicting never box or shift data.
+public class SampleRingBuffer {
+    private float[] values;
+    private long[] timestamps;
+    private int capacity;
+    private int head = 0; // Index of the oldest sample
+    private int size = 0;
+
+    public SampleRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.values = new float[capacity * 3];
+        this.timestamps = new long[capacity];
+    }
+
+    // Append a sample, overwriting the oldest one once the buffer is full
+    public void add(long timestamp, float x, float y, float z) {
+        int slot;
+        if (size < capacity) {
+            slot = head + size;
+            if (slot >= capacity) {
+                slot -= capacity;
+            }
+            size++;
+        } else {
+            slot = head;
+            head++;
+            if (head == capacity) {
+                head = 0;
+            }
+        }
+
+        int base = slot * 3;
+        values[base] = x;
+        values[base + 1] = y;
+        values[base + 2] = z;
+        timestamps[slot] = timestamp;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Index 0 is the oldest sample, size() - 1 the newest
+    public float getX(int index) {
+        return values[physicalIndex(index) * 3];
+    }
+
+    public float getY(int index) {
+        return values[physicalIndex(index) * 3 + 1];
+    }
+
+    public float getZ(int index) {
+        return values[physicalIndex(index) * 3 + 2];
+    }
+
+    // Axis 0 = x, 1 = y, 2 = z
+    public float get(int index, int axis) {
+        return values[physicalIndex(index) * 3 + axis];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[physicalIndex(index)];
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // Resize the buffer, keeping the most recent samples that still fit.
+    // This allocates and is meant for configuration changes, not the sample path.
+    public void setCapacity(int newCapacity) {
+        if (newCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + newCapacity);
+        }
+        if (newCapacity == capacity) {
+            return;
+        }
+
+        float[] newValues = new float[newCapacity * 3];
+        long[] newTimestamps = new long[newCapacity];
+        int kept = Math.min(size, newCapacity);
+        int skip = size - kept;
+        for (int i = 0; i < kept; i++) {
+            int src = physicalIndex(skip + i);
+            newValues[i * 3] = values[src * 3];
+            newValues[i * 3 + 1] = values[src * 3 + 1];
+            newValues[i * 3 + 2] = values[src * 3 + 2];
+            newTimestamps[i] = timestamps[src];
+        }
+
+        values = newValues;
+        timestamps = newTimestamps;
+        capacity = newCapacity;
+        head = 0;
+        size = kept;
+    }
+
+    private int physicalIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for size " + size);
+        }
+        int slot = head + index;
+        return slot >= capacity ? slot - capacity : slot;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.motrak;
+
+// Per-sensor state of a multi-sensor capture: the recent-history buffer, the measured
+// delivery rate and the timing statistics. SensorDataManager keeps one channel per
+// registered sensor type and routes every event to its channel. Only touched on the
+// sensor thread.
+public class SensorChannel {
+    private final int sensorType;
+    private final SampleRingBuffer buffer;
+    private final RateMeter rateMeter = new RateMeter();
+    private final SessionTimingStats timingStats = new SessionTimingStats();
+
+    public SensorChannel(int sensorType, int capacity) {
+        this.sensorType = sensorType;
+        this.buffer = new SampleRingBuffer(capacity);
+    }
+
+    // arrivalNanos is when the event reached the listener, on the same elapsedRealtimeNanos clock
+    public void onSample(long timestampNanos, long arrivalNanos, float x, float y, float z) {
+        rateMeter.onSample(timestampNanos);
+        timingStats.onSample(timestampNanos, arrivalNanos);
+        // Oldest sample is evicted once the buffer is full
+        buffer.add(timestampNanos, x, y, z);
+    }
+
+    public void clear() {
+        buffer.clear();
+        rateMeter.reset();
+        timingStats.reset();
+    }
+
+    public int getSensorType() {
+        return sensorType;
+    }
+
+    public SampleRingBuffer getBuffer() {
+        return buffer;
+    }
+
+    public float getMeasuredRateHz() {
+        return rateMeter.getRateHz();
+    }
+
+    public SessionTimingStats getTimingStats() {
+        return timingStats;
+    }
+
+    // Linear scan: a capture has a handful of sensors, and this keeps dispatch allocation-free
+    public static SensorChannel find(SensorChannel[] channels, int sensorType) {
+        for (SensorChannel channel : channels) {
+            if (channel.sensorType == sensorType) {
+                return channel;
+            }
+        }
+        return null;
+    }
+}
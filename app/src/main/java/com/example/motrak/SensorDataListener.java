@@ -0,0 +1,8 @@
+package com.example.motrak;
+
+// Receives 3-axis samples from a sample source: SensorDataManager for live capture, or
+// SessionReplayer for a recorded session. Called on the source's thread.
+// timestampNanos is the hardware event time, on the elapsedRealtimeNanos clock.
+public interface SensorDataListener {
+    void onSensorDataUpdated(int sensorType, long timestampNanos, float x, float y, float z);
+}
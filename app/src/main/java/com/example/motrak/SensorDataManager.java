@@ -5,49 +5,89 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
 
 import androidx.annotation.RequiresApi;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-public class SensorDataManager implements SensorEventListener {
+public class SensorDataManager {
+    // Broadcast that stops capture, e.g. from the recording notification
+    public static final String ACTION_STOP_MONITORING = "STOP_SENSOR_MONITORING";
+
     private Context context;
-    private SensorManager sensorManager;
-    private Sensor selectedSensor;
-    private List<Float> xValues = new ArrayList<>();
-    private List<Float> yValues = new ArrayList<>();
-    private List<Float> zValues = new ArrayList<>();
     private int maxDataPoints = 100; // Limit data points to prevent memory issues
 
-    // Interface for notifying listeners of new data
-    public interface SensorDataListener {
-        void onSensorDataUpdated(float x, float y, float z);
+
+    // Sensor events are delivered on this thread instead of the UI looper
+    private final HandlerThread sensorThread;
+    private final Handler sensorHandler;
+
+    // Routes every event to its sensor's channel, the UI queue (drained by GraphView once
+    // per frame) and the active recording. One channel per captured sensor type, all fed
+    // by the same source; the first channel belongs to the primary sensor.
+    private static final int QUEUE_CAPACITY = 4096;
+    private final SamplePipeline pipeline = new SamplePipeline(QUEUE_CAPACITY);
+
+    // Requested sampling period, in microseconds
+    public static final int DEFAULT_SAMPLING_PERIOD_US = 60_000; // Same as SENSOR_DELAY_UI
+    private int samplingPeriodUs = DEFAULT_SAMPLING_PERIOD_US;
+
+    // The device sensors, and the source captured from (the device sensors unless replaced)
+    private final AndroidSensorSource androidSource;
+    private volatile SensorSource source;
+
+    // Notified when a recording has been flushed and closed
+    public interface RecordingStoppedListener {
+        void onRecordingStopped(SessionRecorder recorder, IOException error);
+    }
+
+    // Notified on the main thread after a stop broadcast has unregistered the sensors
+    public interface StopRequestListener {
+        void onStopRequested();
     }
 
+    // Notified of every filtered sample, on the sensor thread (the replay thread while replaying)
     private SensorDataListener dataListener;
+    private StopRequestListener stopRequestListener;
     private BroadcastReceiver stopReceiver;
 
+    // Plays a recorded session into the pipeline in place of the sensors; null when not replaying
+    private volatile SessionReplayer replayer;
+
     @RequiresApi(api = Build.VERSION_CODES.O)
     public SensorDataManager(Context context) {
         this.context = context;
-        sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        SensorManager sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+
+        sensorThread = new HandlerThread("MoTrak-Sensors", Process.THREAD_PRIORITY_MORE_FAVORABLE);
+        sensorThread.start();
+        sensorHandler = new Handler(sensorThread.getLooper());
+        androidSource = new AndroidSensorSource(sensorManager, sensorHandler);
+        source = androidSource;
 
         // Register broadcast receiver for stopping sensor monitoring
         stopReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                if (intent.getAction().equals("STOP_SENSOR_MONITORING")) {
+                if (intent.getAction().equals(ACTION_STOP_MONITORING)) {
                     unregisterListeners();
+                    if (stopRequestListener != null) {
+                        stopRequestListener.onStopRequested();
+                    }
                 }
             }
         };
 
-        IntentFilter filter = new IntentFilter("STOP_SENSOR_MONITORING");
+        IntentFilter filter = new IntentFilter(ACTION_STOP_MONITORING);
         context.registerReceiver(stopReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
 
     }
@@ -56,16 +96,272 @@ public class SensorDataManager implements SensorEventListener {
         this.dataListener = listener;
     }
 
+    public void setStopRequestListener(StopRequestListener listener) {
+        this.stopRequestListener = listener;
+    }
+
+    // Capture from another source, e.g. createSyntheticSource() to run without sensors;
+    // null for the device sensors. Takes effect at the next startMonitoring().
+    public void setSensorSource(SensorSource sensorSource) {
+        SensorSource replacement = sensorSource != null ? sensorSource : androidSource;
+        if (replacement != source) {
+            source.stop();
+            source = replacement;
+        }
+    }
+
+    public SensorSource getSensorSource() {
+        return source;
+    }
+
+    // Generated samples stamped on the same clock as sensor events, so latency, jitter and
+    // recording offsets stay meaningful
+    public static SyntheticSensorSource createSyntheticSource() {
+        return new SyntheticSensorSource(SystemClock::elapsedRealtimeNanos);
+    }
+
     public void startMonitoring(String sensorType) {
-        int sensorTypeId = getSensorTypeFromString(sensorType);
-        selectedSensor = sensorManager.getDefaultSensor(sensorTypeId);
+        startMonitoring(sensorType, samplingPeriodUs, androidSource.getMaxReportLatencyUs());
+    }
+
+    // Register with an explicit sampling period. A non-zero maxReportLatencyUs lets the
+    // sensor hub batch events in its FIFO and deliver them together, so the application
+    // processor does not wake for every sample. Returns false if the sensor is unavailable.
+    public boolean startMonitoring(String sensorType, int samplingPeriodUs, int maxReportLatencyUs) {
+        return startMonitoring(new int[]{getSensorTypeFromString(sensorType)}, samplingPeriodUs, maxReportLatencyUs);
+    }
 
-        if (selectedSensor != null) {
-            sensorManager.registerListener(this, selectedSensor, SensorManager.SENSOR_DELAY_UI);
+    // Whether startMonitoring() would find at least one of the sensors
+    public boolean isAnyAvailable(int[] sensorTypes) {
+        SensorSource active = source;
+        for (int type : sensorTypes) {
+            if (active.isAvailable(type)) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private int getSensorTypeFromString(String sensorType) {
+    // Capture several sensors at once, time-aligned on the sensor event clock. All of them
+    // are delivered by the same source on one thread, and each event is routed to the
+    // channel for its type. The first available type becomes the primary sensor.
+    // Sensors the source can't provide are skipped; returns false if none could be started.
+    // maxReportLatencyUs only applies to the device sensors.
+    public boolean startMonitoring(int[] sensorTypes, int samplingPeriodUs, int maxReportLatencyUs) {
+        // The pipeline takes one producer at a time
+        stopReplay();
+        this.samplingPeriodUs = samplingPeriodUs;
+
+        SensorSource active = source;
+        int[] available = new int[sensorTypes.length];
+        int count = 0;
+        for (int type : sensorTypes) {
+            if (active.isAvailable(type)) {
+                available[count++] = type;
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        available = Arrays.copyOf(available, count);
+
+        // Keep history when restarting the same sensors (e.g. after a rate change)
+        SensorChannel[] current = pipeline.getChannels();
+        SensorChannel[] updated = new SensorChannel[count];
+        for (int i = 0; i < count; i++) {
+            SensorChannel existing = SensorChannel.find(current, available[i]);
+            updated[i] = existing != null ? existing : new SensorChannel(available[i], maxDataPoints);
+        }
+        pipeline.setChannels(updated);
+
+        if (active == androidSource) {
+            return androidSource.start(available, samplingPeriodUs, maxReportLatencyUs, this::onSourceSample);
+        }
+        return active.start(available, samplingPeriodUs, this::onSourceSample);
+    }
+
+    // Change the batching latency of the device sensors, also while capturing
+    public void setMaxReportLatency(int maxReportLatencyUs) {
+        androidSource.setMaxReportLatency(maxReportLatencyUs);
+    }
+
+    // Filter applied to every sample before it reaches the buffers, the UI and the listener
+    // (null for raw values). Recordings always keep the raw values.
+    public void setFilter(SampleFilter filter) {
+        pipeline.setFilter(filter);
+    }
+
+    // Spectrum analysis of one captured sensor, computed on the sensor thread (null to stop).
+    // Pass a new analyzer whenever the sensor or sampling rate changes.
+    public void setSpectrumAnalyzer(SpectrumAnalyzer analyzer) {
+        pipeline.setSpectrumAnalyzer(analyzer);
+    }
+
+    public SpectrumAnalyzer getSpectrumAnalyzer() {
+        return pipeline.getSpectrumAnalyzer();
+    }
+
+    // Event rules checked on the sensor thread against every raw sample (null to stop).
+    // Listeners are called on that thread.
+    public void setEventDetector(EventDetector detector) {
+        pipeline.setEventDetector(detector);
+    }
+
+    public EventDetector getEventDetector() {
+        return pipeline.getEventDetector();
+    }
+
+    // Persist only the samples around triggers in the next recording (null for all of them)
+    public void setTriggeredCapture(TriggeredCapture capture) {
+        pipeline.setTriggeredCapture(capture);
+    }
+
+    public TriggeredCapture getTriggeredCapture() {
+        return pipeline.getTriggeredCapture();
+    }
+
+    // Start streaming samples to the given (already started) recorder
+    public void startRecording(SessionRecorder sessionRecorder) {
+        // Only touched on the sensor thread after hand-over
+        pipeline.setRecorder(sessionRecorder);
+    }
+
+    // Detach the recorder, then flush and close it on the sensor thread once any event
+    // being processed there has been written. The listener is called on the sensor thread.
+    public void stopRecording(RecordingStoppedListener listener) {
+        SessionRecorder stopping = pipeline.getRecorder();
+        pipeline.setRecorder(null);
+        if (stopping == null) {
+            return;
+        }
+
+        sensorHandler.post(() -> {
+            IOException error = null;
+            try {
+                stopping.stop();
+            } catch (IOException e) {
+                error = e;
+            }
+            if (listener != null) {
+                listener.onRecordingStopped(stopping, error);
+            }
+        });
+    }
+
+    // Play a recorded session through the same path as live events: filter, channels, spectrum
+    // analyzer, UI queue and data listener. Live sensors are unregistered first and the replay
+    // thread stands in for the sensor thread until the replay ends; nothing is recorded.
+    // speed is 1 for real time or SessionReplayer.SPEED_UNLIMITED. The reader is closed when
+    // the replay ends, before the listener (may be null) is called on the replay thread.
+    public void startReplay(BinarySessionReader reader, float speed, SessionReplayer.FinishListener listener) {
+        stopReplay();
+        unregisterListeners();
+
+        int[] types = SessionReplayer.findSensorTypes(reader);
+        SensorChannel[] channels = new SensorChannel[types.length];
+        for (int i = 0; i < types.length; i++) {
+            channels[i] = new SensorChannel(types[i], maxDataPoints);
+        }
+        pipeline.setChannels(channels);
+
+        SessionReplayer replay = new SessionReplayer(reader, this::onReplaySample);
+        replay.setSpeed(speed);
+        replayer = replay;
+        replay.start((finished, completed) -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // Read-only; nothing was lost
+            }
+            if (replayer == finished) {
+                replayer = null;
+            }
+            if (listener != null) {
+                listener.onReplayFinished(finished, completed);
+            }
+        });
+    }
+
+    // End the running replay, if any, and wait for its thread
+    public void stopReplay() {
+        SessionReplayer running = replayer;
+        if (running != null) {
+            running.stop();
+        }
+    }
+
+    public SessionReplayer getReplayer() {
+        return replayer;
+    }
+
+    public boolean isReplaying() {
+        return replayer != null;
+    }
+
+    // Replay thread. Recorded samples have no delivery latency of their own.
+    private void onReplaySample(int sensorType, long timestampNanos, float x, float y, float z) {
+        if (!pipeline.onSample(sensorType, timestampNanos, timestampNanos, x, y, z)) {
+            return;
+        }
+        float[] filtered = pipeline.getOutput();
+        if (dataListener != null) {
+            dataListener.onSensorDataUpdated(sensorType, timestampNanos, filtered[0], filtered[1], filtered[2]);
+        }
+    }
+
+    // Ask the sensor hub to deliver any batched events now
+    public void flush() {
+        if (source == androidSource && androidSource.isRunning()) {
+            androidSource.flush();
+        }
+    }
+
+    // Measured rate of the primary sensor
+    public float getMeasuredRateHz() {
+        SensorChannel primary = pipeline.getPrimaryChannel();
+        return primary != null ? primary.getMeasuredRateHz() : 0f;
+    }
+
+    public float getMeasuredRateHz(int sensorType) {
+        SensorChannel channel = pipeline.getChannel(sensorType);
+        return channel != null ? channel.getMeasuredRateHz() : 0f;
+    }
+
+    // Jitter and latency of the primary sensor this session; null before monitoring starts
+    public SessionTimingStats getTimingStats() {
+        SensorChannel primary = pipeline.getPrimaryChannel();
+        return primary != null ? primary.getTimingStats() : null;
+    }
+
+    public SessionTimingStats getTimingStats(int sensorType) {
+        SensorChannel channel = pipeline.getChannel(sensorType);
+        return channel != null ? channel.getTimingStats() : null;
+    }
+
+    // Sensor types currently being captured, primary first
+    public int[] getActiveSensorTypes() {
+        SensorChannel[] active = pipeline.getChannels();
+        int[] types = new int[active.length];
+        for (int i = 0; i < active.length; i++) {
+            types[i] = active[i].getSensorType();
+        }
+        return types;
+    }
+
+    public int getSamplingPeriodUs() {
+        return samplingPeriodUs;
+    }
+
+    public int getMaxReportLatencyUs() {
+        return androidSource.getMaxReportLatencyUs();
+    }
+
+    // Number of events the hardware FIFO can hold for the primary sensor (0 = no batching)
+    public int getFifoMaxEventCount() {
+        return source == androidSource ? androidSource.getFifoMaxEventCount() : 0;
+    }
+
+    public static int getSensorTypeFromString(String sensorType) {
         switch (sensorType) {
             case "Accelerometer":
                 return Sensor.TYPE_ACCELEROMETER;
@@ -80,61 +376,99 @@ public class SensorDataManager implements SensorEventListener {
         }
     }
 
-    @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == selectedSensor.getType()) {
-            float x = event.values[0];
-            float y = event.values[1];
-            float z = event.values[2];
-
-            // Add values to lists (with limit)
-            addValueWithLimit(xValues, x);
-            addValueWithLimit(yValues, y);
-            addValueWithLimit(zValues, z);
-
-            // Notify listener of new data
-            if (dataListener != null) {
-                dataListener.onSensorDataUpdated(x, y, z);
-            }
+    // Inverse of getSensorTypeFromString(), for the names shown in the sensor spinner
+    public static String getSensorNameFromType(int sensorType) {
+        switch (sensorType) {
+            case Sensor.TYPE_GYROSCOPE:
+                return "Gyroscope";
+            case Sensor.TYPE_GRAVITY:
+                return "Gravity";
+            case Sensor.TYPE_ROTATION_VECTOR:
+                return "Rotation Vector";
+            default:
+                return "Accelerometer";
         }
     }
 
-    private void addValueWithLimit(List<Float> list, float value) {
-        list.add(value);
-        if (list.size() > maxDataPoints) {
-            list.remove(0);
+    // Source thread (the sensor thread for the device sensors)
+    private void onSourceSample(int type, long timestampNanos, float x, float y, float z) {
+        long arrivalNanos = SystemClock.elapsedRealtimeNanos();
+        if (!pipeline.onSample(type, timestampNanos, arrivalNanos, x, y, z)) {
+            // Late event from a sensor that is no longer captured
+            return;
         }
-    }
+        float[] filtered = pipeline.getOutput();
 
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Not used in this implementation
+        // Notify listener of new data
+        if (dataListener != null) {
+            dataListener.onSensorDataUpdated(type, timestampNanos, filtered[0], filtered[1], filtered[2]);
+        }
     }
 
     public List<Float> getXValues() {
-        return new ArrayList<>(xValues);
+        return copyAxis(0);
     }
 
     public List<Float> getYValues() {
-        return new ArrayList<>(yValues);
+        return copyAxis(1);
     }
 
     public List<Float> getZValues() {
-        return new ArrayList<>(zValues);
+        return copyAxis(2);
+    }
+
+    // Buffer of the primary sensor (empty if nothing is registered). Only safe to read
+    // on the sensor thread or after monitoring has stopped.
+    public SampleRingBuffer getBuffer() {
+        SensorChannel primary = pipeline.getPrimaryChannel();
+        return primary != null ? primary.getBuffer() : new SampleRingBuffer(1);
+    }
+
+    // Buffer of one captured sensor, or null if it is not being captured
+    public SampleRingBuffer getBuffer(int sensorType) {
+        SensorChannel channel = pipeline.getChannel(sensorType);
+        return channel != null ? channel.getBuffer() : null;
+    }
+
+    public SpscSampleQueue getSampleQueue() {
+        return pipeline.getQueue();
+    }
+
+    private List<Float> copyAxis(int axis) {
+        SampleRingBuffer buffer = getBuffer();
+        List<Float> copy = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            copy.add(buffer.get(i, axis));
+        }
+        return copy;
     }
 
     public void clearData() {
-        xValues.clear();
-        yValues.clear();
-        zValues.clear();
+        // The buffers belong to the sensor thread
+        SensorChannel[] active = pipeline.getChannels();
+        SpectrumAnalyzer analyzer = pipeline.getSpectrumAnalyzer();
+        sensorHandler.post(() -> {
+            for (SensorChannel channel : active) {
+                channel.clear();
+            }
+            if (analyzer != null) {
+                analyzer.reset();
+            }
+        });
     }
 
     public void unregisterListeners() {
-        sensorManager.unregisterListener(this);
+        source.stop();
+    }
+
+    public boolean isMonitoring() {
+        return source.isRunning();
     }
 
     public void onDestroy() {
+        stopReplay();
         unregisterListeners();
         context.unregisterReceiver(stopReceiver);
+        sensorThread.quitSafely();
     }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.motrak;
+
+// Producer of 3-axis samples for the capture pipeline: the device sensors (AndroidSensorSource)
+// or a generated signal (SyntheticSensorSource), so everything downstream of the source can
+// be exercised without hardware.
+public interface SensorSource {
+    // Whether start() can deliver samples of this sensor type
+    boolean isAvailable(int sensorType);
+
+    // Deliver samples of the given (available) sensor types to listener on the source's own
+    // thread, one per sensor about every samplingPeriodUs. Calling start() while running
+    // replaces the configuration. Returns false if a sensor could not be started.
+    boolean start(int[] sensorTypes, int samplingPeriodUs, SensorDataListener listener);
+
+    void stop();
+
+    boolean isRunning();
+}
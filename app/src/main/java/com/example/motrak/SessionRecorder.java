@@ -0,0 +1,215 @@
+package com.example.motrak;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Streams every sample of a session to disk while capturing.
+// The capture thread encodes samples into fixed-size chunks; full chunks are handed to
+// a writer thread that appends them to a FileChannel. Memory is bounded by the chunk
+// pool: if the disk falls behind and no free chunk is left, samples are dropped and
+// counted instead of blocking the capture thread.
+public class SessionRecorder {
+
+    // Turns samples into bytes; one instance per session
+    public interface RecordEncoder {
+        // Upper bound on the bytes a single encode() or finish() call writes
+        int maxRecordBytes();
+
+        void writeHeader(ByteBuffer out);
+
+        // Throws, before writing anything, for a sample the format can't represent; the
+        // recording ends there and the error is reported by stop()
+        void encode(ByteBuffer out, int sensorType, long timestampNanos, float x, float y, float z)
+                throws IOException;
+
+        // Write out whatever encode() has held back, e.g. a partly filled block
+        void finish(ByteBuffer out);
+    }
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_CHUNK_COUNT = 4;
+
+    // Marks the end of the session for the writer thread
+    private static final ByteBuffer END_OF_SESSION = ByteBuffer.allocate(0);
+
+    private final File file;
+    private final RecordEncoder encoder;
+    private final BlockingQueue<ByteBuffer> freeChunks;
+    private final BlockingQueue<ByteBuffer> fullChunks;
+
+    private FileChannel channel;
+    private Thread writerThread;
+    private ByteBuffer current;
+    private volatile IOException error;
+    private volatile boolean stopped = false;
+    // Sample the encoder rejected (capture thread); nothing is appended after it
+    private IOException encodeError;
+
+    private long recordedSamples = 0;
+    private long droppedSamples = 0;
+
+    public SessionRecorder(File file, RecordEncoder encoder) {
+        this(file, encoder, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+    }
+
+    public SessionRecorder(File file, RecordEncoder encoder, int chunkSize, int chunkCount) {
+        if (chunkSize < encoder.maxRecordBytes() || chunkCount < 2) {
+            throw new IllegalArgumentException("Need at least two chunks of " + encoder.maxRecordBytes() + " bytes");
+        }
+        this.file = file;
+        this.encoder = encoder;
+        this.freeChunks = new ArrayBlockingQueue<>(chunkCount);
+        // One extra slot so the end marker always fits
+        this.fullChunks = new ArrayBlockingQueue<>(chunkCount + 1);
+        for (int i = 0; i < chunkCount; i++) {
+            freeChunks.add(ByteBuffer.allocateDirect(chunkSize));
+        }
+    }
+
+    public void start() throws IOException {
+        // FileOutputStream rather than FileChannel.open(), which needs API 26
+        channel = new FileOutputStream(file).getChannel();
+        current = freeChunks.poll();
+        encoder.writeHeader(current);
+
+        writerThread = new Thread(this::writeLoop, "MoTrak-Recorder");
+        writerThread.start();
+    }
+
+    // Called on the capture thread for every sample
+    public void append(int sensorType, long timestampNanos, float x, float y, float z) {
+        if (stopped) {
+            return;
+        }
+        if (encodeError != null) {
+            droppedSamples++;
+            return;
+        }
+
+        if (current == null || current.remaining() < encoder.maxRecordBytes()) {
+            if (current != null) {
+                handOff(current);
+            }
+            current = freeChunks.poll();
+            if (current == null) {
+                // Writer is behind and the pool is exhausted
+                droppedSamples++;
+                return;
+            }
+        }
+
+        try {
+            encoder.encode(current, sensorType, timestampNanos, x, y, z);
+        } catch (IOException e) {
+            // Samples after it would leave a hole in the file, so keep what is valid
+            encodeError = e;
+            droppedSamples++;
+            return;
+        }
+        recordedSamples++;
+    }
+
+    // Flush what is left and close the file. Must be called on the capture thread (or after
+    // capture has stopped); blocks only until the pending chunks are written.
+    public void stop() throws IOException {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+
+        // Capture is over, so waiting for the writer to free a chunk is fine here
+        if (current == null || current.remaining() < encoder.maxRecordBytes()) {
+            if (current != null) {
+                handOff(current);
+            }
+            try {
+                current = freeChunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                current = null;
+            }
+        }
+        if (current != null) {
+            encoder.finish(current);
+            if (current.position() > 0) {
+                handOff(current);
+            } else {
+                freeChunks.offer(current);
+            }
+        }
+        current = null;
+        fullChunks.offer(END_OF_SESSION);
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (error != null) {
+            throw error;
+        }
+        if (encodeError != null) {
+            throw encodeError;
+        }
+    }
+
+    private void handOff(ByteBuffer chunk) {
+        chunk.flip();
+        // Never blocks: there are at most chunkCount chunks in circulation
+        fullChunks.offer(chunk);
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer chunk = fullChunks.take();
+                if (chunk == END_OF_SESSION) {
+                    break;
+                }
+
+                if (error == null) {
+                    try {
+                        while (chunk.hasRemaining()) {
+                            channel.write(chunk);
+                        }
+                    } catch (IOException e) {
+                        // Keep recycling chunks so capture never stalls; report on stop()
+                        error = e;
+                    }
+                }
+
+                chunk.clear();
+                freeChunks.offer(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getRecordedSamples() {
+        return recordedSamples;
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+}
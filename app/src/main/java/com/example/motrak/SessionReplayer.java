@@ -0,0 +1,170 @@
+package com.example.motrak;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+// Plays a recorded session back to a SensorDataListener, the same interface live capture
+// delivers to, so a recording goes through the filter, spectrum and render paths exactly
+// like sensor events do. Samples keep their recorded timestamps and are paced by them:
+// at speed 1 they arrive as they were captured, at speed 4 four times faster, and with
+// SPEED_UNLIMITED back to back, which makes a deterministic load generator for profiling
+// without a device. Allocation-free per sample.
+public class SessionReplayer {
+    // Deliver samples as fast as the listener takes them
+    public static final float SPEED_UNLIMITED = 0f;
+
+    // Multi-sensor sessions are scanned this far for the sensor types they contain
+    private static final int SENSOR_SCAN_LIMIT = 65_536;
+
+    // Called on the replay thread once the last sample was delivered or stop() was called
+    public interface FinishListener {
+        void onReplayFinished(SessionReplayer replayer, boolean completed);
+    }
+
+    private final BinarySessionReader reader;
+    private final SensorDataListener listener;
+
+    private volatile float speed = 1f;
+    private volatile boolean stopRequested = false;
+    // Index of the next sample to deliver
+    private volatile int position = 0;
+
+    private Thread replayThread;
+
+    public SessionReplayer(BinarySessionReader reader, SensorDataListener listener) {
+        this.reader = reader;
+        this.listener = listener;
+    }
+
+    // 1 = real time; SPEED_UNLIMITED (or any value <= 0) for as fast as possible.
+    // Takes effect from the next sample while a replay is running.
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    // Replay on a new thread; finishListener (may be null) is called on that thread at the end
+    public void start(FinishListener finishListener) {
+        if (replayThread != null) {
+            throw new IllegalStateException("Replay already started");
+        }
+        replayThread = new Thread(() -> {
+            boolean completed = replay();
+            if (finishListener != null) {
+                finishListener.onReplayFinished(this, completed);
+            }
+        }, "MoTrak-Replay");
+        replayThread.start();
+    }
+
+    // Ask the replay to end after the current sample and wait for it
+    public void stop() {
+        stopRequested = true;
+        Thread thread = replayThread;
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Deliver every remaining sample on the calling thread. Returns true if the end of the
+    // session was reached, false if stop() was called first.
+    public boolean replay() {
+        int size = reader.size();
+        long timestamp = reader.getStartTimeNanos();
+        if (position > 0) {
+            timestamp = reader.getTimestampNanos(position - 1);
+        }
+
+        // Wall-clock time at which the sample at anchorTimestamp is due; moved whenever the
+        // speed changes so a new speed doesn't make the replay jump or stall
+        float anchorSpeed = speed;
+        long anchorNanos = System.nanoTime();
+        long anchorTimestamp = Long.MIN_VALUE;
+
+        for (int i = position; i < size; i++) {
+            if (stopRequested) {
+                return false;
+            }
+            timestamp = reader.getTimestampNanos(i, timestamp);
+
+            float currentSpeed = speed;
+            if (currentSpeed > 0) {
+                if (anchorTimestamp == Long.MIN_VALUE || currentSpeed != anchorSpeed) {
+                    anchorSpeed = currentSpeed;
+                    anchorNanos = System.nanoTime();
+                    anchorTimestamp = timestamp;
+                }
+                long dueNanos = anchorNanos + (long) ((timestamp - anchorTimestamp) / currentSpeed);
+                if (!waitUntil(dueNanos)) {
+                    return false;
+                }
+            } else {
+                anchorTimestamp = Long.MIN_VALUE;
+            }
+
+            listener.onSensorDataUpdated(reader.getSensorType(i), timestamp,
+                    reader.getX(i), reader.getY(i), reader.getZ(i));
+            position = i + 1;
+        }
+        return true;
+    }
+
+    // Returns false if stop() was called while waiting
+    private boolean waitUntil(long dueNanos) {
+        long remaining;
+        while ((remaining = dueNanos - System.nanoTime()) > 0) {
+            if (stopRequested) {
+                return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        return true;
+    }
+
+    // Samples delivered so far
+    public int getPosition() {
+        return position;
+    }
+
+    public int size() {
+        return reader.size();
+    }
+
+    public BinarySessionReader getReader() {
+        return reader;
+    }
+
+    // Sensor types in the session, primary first. Multi-sensor sessions are scanned from
+    // the start, so a sensor that only appears late in a very long session is missed.
+    public static int[] findSensorTypes(BinarySessionReader reader) {
+        int[] types = new int[4];
+        int count = 0;
+        types[count++] = reader.getSensorType();
+        if (reader.isMultiSensor()) {
+            int limit = Math.min(reader.size(), SENSOR_SCAN_LIMIT);
+            for (int i = 0; i < limit; i++) {
+                int type = reader.getSensorType(i);
+                boolean known = false;
+                for (int j = 0; j < count && !known; j++) {
+                    known = types[j] == type;
+                }
+                if (!known) {
+                    if (count == types.length) {
+                        types = Arrays.copyOf(types, count * 2);
+                    }
+                    types[count++] = type;
+                }
+            }
+        }
+        return Arrays.copyOf(types, count);
+    }
+}
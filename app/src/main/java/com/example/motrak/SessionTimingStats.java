@@ -0,0 +1,100 @@
+package com.example.motrak;
+
+// Timing quality of one sensor over a session.
+// Jitter is the spread of the intervals between consecutive event timestamps; latency is
+// how long after its hardware timestamp an event reached the listener. Both clocks are
+// elapsedRealtimeNanos, so the numbers are immune to wall-clock adjustments.
+// Updated on the sensor thread without allocating, readable from any thread.
+public class SessionTimingStats {
+    private long lastTimestamp = -1;
+
+    // Running mean and sum of squared deviations of the interval (Welford)
+    private long intervalCount = 0;
+    private double intervalMean = 0;
+    private double intervalM2 = 0;
+    private long minInterval = Long.MAX_VALUE;
+    private long maxInterval = 0;
+
+    private long latencyCount = 0;
+    private double latencySum = 0;
+    private long maxLatency = 0;
+
+    // Published for other threads after every sample
+    private volatile float meanIntervalMs = 0f;
+    private volatile float jitterMs = 0f;
+    private volatile float maxIntervalMs = 0f;
+    private volatile float meanLatencyMs = 0f;
+    private volatile float maxLatencyMs = 0f;
+
+    public void onSample(long timestampNanos, long arrivalNanos) {
+        if (lastTimestamp >= 0) {
+            long interval = timestampNanos - lastTimestamp;
+            intervalCount++;
+            double delta = interval - intervalMean;
+            intervalMean += delta / intervalCount;
+            intervalM2 += delta * (interval - intervalMean);
+            minInterval = Math.min(minInterval, interval);
+            maxInterval = Math.max(maxInterval, interval);
+
+            meanIntervalMs = (float) (intervalMean / 1e6);
+            jitterMs = (float) (Math.sqrt(intervalM2 / intervalCount) / 1e6);
+            maxIntervalMs = maxInterval / 1e6f;
+        }
+        lastTimestamp = timestampNanos;
+
+        // Batched events are delivered late on purpose; they still count
+        long latency = arrivalNanos - timestampNanos;
+        latencyCount++;
+        latencySum += latency;
+        maxLatency = Math.max(maxLatency, latency);
+        meanLatencyMs = (float) (latencySum / latencyCount / 1e6);
+        maxLatencyMs = maxLatency / 1e6f;
+    }
+
+    public float getMeanIntervalMs() {
+        return meanIntervalMs;
+    }
+
+    // Standard deviation of the inter-sample interval
+    public float getJitterMs() {
+        return jitterMs;
+    }
+
+    public float getMaxIntervalMs() {
+        return maxIntervalMs;
+    }
+
+    public float getMeanLatencyMs() {
+        return meanLatencyMs;
+    }
+
+    public float getMaxLatencyMs() {
+        return maxLatencyMs;
+    }
+
+    // Only meaningful on the sensor thread
+    public long getMinIntervalNanos() {
+        return intervalCount > 0 ? minInterval : 0;
+    }
+
+    public long getSampleCount() {
+        return latencyCount;
+    }
+
+    public void reset() {
+        lastTimestamp = -1;
+        intervalCount = 0;
+        intervalMean = 0;
+        intervalM2 = 0;
+        minInterval = Long.MAX_VALUE;
+        maxInterval = 0;
+        latencyCount = 0;
+        latencySum = 0;
+        maxLatency = 0;
+        meanIntervalMs = 0f;
+        jitterMs = 0f;
+        maxIntervalMs = 0f;
+        meanLatencyMs = 0f;
+        maxLatencyMs = 0f;
+    }
+}
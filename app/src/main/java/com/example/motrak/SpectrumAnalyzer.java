@@ -0,0 +1,282 @@
+package com.example.motrak;
+
+import java.util.Arrays;
+
+// Sliding-window spectrum of one sensor's three axes, for vibration analysis.
+// Samples are appended as they arrive on the sensor thread; every hopSize samples the
+// last windowSize samples are mean-removed, Hann-windowed and transformed, and the
+// single-sided amplitude spectrum, dominant frequency and RMS of each axis are published.
+// X and Y share one complex FFT (x + iy) and are separated afterwards, so a window costs
+// two transforms instead of three. Every buffer is allocated in the constructor.
+// The UI thread picks up the latest results with copyLatest().
+public class SpectrumAnalyzer {
+    public static final int MIN_WINDOW_SIZE = 64;
+    public static final int MAX_WINDOW_SIZE = 1024;
+
+    // Results of one window. Filled by the analyzer; readers keep their own instance.
+    public static class Spectrum {
+        private final int binCount;
+        // [axis][bin], in sensor units; bin k is at k * sampleRate / windowSize
+        private final float[][] amplitudes;
+        private final float[] dominantFrequencyHz = new float[3];
+        private final float[] rms = new float[3];
+        private float sampleRateHz;
+        private long timestampNanos;
+        private int sequence;
+
+        Spectrum(int binCount) {
+            this.binCount = binCount;
+            this.amplitudes = new float[3][binCount];
+        }
+
+        void copyFrom(Spectrum other) {
+            for (int axis = 0; axis < 3; axis++) {
+                System.arraycopy(other.amplitudes[axis], 0, amplitudes[axis], 0, binCount);
+                dominantFrequencyHz[axis] = other.dominantFrequencyHz[axis];
+                rms[axis] = other.rms[axis];
+            }
+            sampleRateHz = other.sampleRateHz;
+            timestampNanos = other.timestampNanos;
+            sequence = other.sequence;
+        }
+
+        public int getBinCount() {
+            return binCount;
+        }
+
+        public float getAmplitude(int axis, int bin) {
+            return amplitudes[axis][bin];
+        }
+
+        // Frequency of the strongest component, interpolated between bins; 0 if there is none
+        public float getDominantFrequencyHz(int axis) {
+            return dominantFrequencyHz[axis];
+        }
+
+        // RMS of the window with the mean (gravity, offsets) removed
+        public float getRms(int axis) {
+            return rms[axis];
+        }
+
+        // Measured from the sample timestamps of the window
+        public float getSampleRateHz() {
+            return sampleRateHz;
+        }
+
+        public float getBinFrequencyHz(int bin) {
+            return bin * sampleRateHz / (2 * (binCount - 1));
+        }
+
+        // Timestamp of the newest sample in the window
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        // Incremented for every published window; 0 before the first one
+        public int getSequence() {
+            return sequence;
+        }
+    }
+
+    private final int sensorType;
+    private final int windowSize;
+    private final int hopSize;
+    private final Fft fft;
+    private final float[] hann;
+    private final float hannSum;
+
+    // Sliding window of the incoming samples
+    private final float[][] history = new float[3][];
+    private final long[] timestamps;
+    private int head = 0;
+    private int count = 0;
+    private int samplesSinceUpdate = 0;
+
+    // FFT work arrays
+    private final float[] xyRe;
+    private final float[] xyIm;
+    private final float[] zRe;
+    private final float[] zIm;
+
+    // Written on the sensor thread, then copied to published
+    private final Spectrum work;
+    private final Spectrum published;
+    private final Object lock = new Object();
+
+    public SpectrumAnalyzer(int sensorType, int windowSize, int hopSize) {
+        if (!Fft.isPowerOfTwo(windowSize) || windowSize < 4) {
+            throw new IllegalArgumentException("Window size must be a power of two: " + windowSize);
+        }
+        if (hopSize < 1 || hopSize > windowSize) {
+            throw new IllegalArgumentException("Hop size must be in 1.." + windowSize + ": " + hopSize);
+        }
+        this.sensorType = sensorType;
+        this.windowSize = windowSize;
+        this.hopSize = hopSize;
+        this.fft = new Fft(windowSize);
+
+        hann = new float[windowSize];
+        float sum = 0;
+        for (int i = 0; i < windowSize; i++) {
+            hann[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / windowSize));
+            sum += hann[i];
+        }
+        hannSum = sum;
+
+        for (int axis = 0; axis < 3; axis++) {
+            history[axis] = new float[windowSize];
+        }
+        timestamps = new long[windowSize];
+        xyRe = new float[windowSize];
+        xyIm = new float[windowSize];
+        zRe = new float[windowSize];
+        zIm = new float[windowSize];
+
+        work = new Spectrum(windowSize / 2 + 1);
+        published = new Spectrum(windowSize / 2 + 1);
+    }
+
+    // About two seconds of samples, rounded down to a power of two
+    public static int windowSizeFor(float sampleRateHz) {
+        int size = Integer.highestOneBit(Math.max(1, (int) (sampleRateHz * 2)));
+        return Math.max(MIN_WINDOW_SIZE, Math.min(MAX_WINDOW_SIZE, size));
+    }
+
+    public int getSensorType() {
+        return sensorType;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    // Sensor thread only
+    public void onSample(long timestampNanos, float x, float y, float z) {
+        history[0][head] = x;
+        history[1][head] = y;
+        history[2][head] = z;
+        timestamps[head] = timestampNanos;
+        head = (head + 1) & (windowSize - 1);
+        if (count < windowSize) {
+            count++;
+        }
+
+        if (++samplesSinceUpdate >= hopSize && count == windowSize) {
+            samplesSinceUpdate = 0;
+            analyze();
+        }
+    }
+
+    // Sensor thread only; drops the window but keeps the last published results
+    public void reset() {
+        head = 0;
+        count = 0;
+        samplesSinceUpdate = 0;
+    }
+
+    // Copy the latest results into out (from newSpectrum()) if they are newer than what it holds
+    public boolean copyLatest(Spectrum out) {
+        synchronized (lock) {
+            if (published.sequence == out.sequence) {
+                return false;
+            }
+            out.copyFrom(published);
+            return true;
+        }
+    }
+
+    public Spectrum newSpectrum() {
+        return new Spectrum(windowSize / 2 + 1);
+    }
+
+    private void analyze() {
+        // The window is full, so head is the oldest sample
+        int mask = windowSize - 1;
+        long oldest = timestamps[head];
+        long newest = timestamps[(head + mask) & mask];
+        work.sampleRateHz = newest > oldest ? (windowSize - 1) * 1e9f / (newest - oldest) : 0;
+        work.timestampNanos = newest;
+
+        fillWindow(0, xyRe);
+        fillWindow(1, xyIm);
+        fillWindow(2, zRe);
+        Arrays.fill(zIm, 0);
+
+        fft.transform(xyRe, xyIm);
+        fft.transform(zRe, zIm);
+
+        // Single-sided amplitude, scaled so a sine of amplitude A centred on a bin reads A
+        float scale = 1f / hannSum;
+        int bins = work.binCount;
+        for (int k = 0; k < bins; k++) {
+            int mirror = (windowSize - k) & mask;
+            float factor = (k == 0 || k == bins - 1) ? scale : 2 * scale;
+
+            // X = (F[k] + conj(F[N-k])) / 2, Y = (F[k] - conj(F[N-k])) / 2i
+            float xr = 0.5f * (xyRe[k] + xyRe[mirror]);
+            float xi = 0.5f * (xyIm[k] - xyIm[mirror]);
+            float yr = 0.5f * (xyIm[k] + xyIm[mirror]);
+            float yi = 0.5f * (xyRe[mirror] - xyRe[k]);
+
+            work.amplitudes[0][k] = factor * (float) Math.sqrt(xr * xr + xi * xi);
+            work.amplitudes[1][k] = factor * (float) Math.sqrt(yr * yr + yi * yi);
+            work.amplitudes[2][k] = factor * (float) Math.sqrt(zRe[k] * zRe[k] + zIm[k] * zIm[k]);
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            work.dominantFrequencyHz[axis] = dominantFrequency(work.amplitudes[axis], work.sampleRateHz);
+        }
+
+        synchronized (lock) {
+            work.sequence = published.sequence + 1;
+            published.copyFrom(work);
+        }
+    }
+
+    // Copies one axis in time order with the mean removed and the window applied; records its RMS
+    private void fillWindow(int axis, float[] out) {
+        float[] samples = history[axis];
+        int mask = windowSize - 1;
+
+        double sum = 0;
+        for (int i = 0; i < windowSize; i++) {
+            sum += samples[i];
+        }
+        float mean = (float) (sum / windowSize);
+
+        double sumSquares = 0;
+        for (int i = 0; i < windowSize; i++) {
+            float value = samples[(head + i) & mask] - mean;
+            sumSquares += value * value;
+            out[i] = value * hann[i];
+        }
+        work.rms[axis] = (float) Math.sqrt(sumSquares / windowSize);
+    }
+
+    // Strongest non-DC bin, refined by fitting a parabola through it and its neighbours
+    private float dominantFrequency(float[] amplitudes, float sampleRateHz) {
+        int bins = amplitudes.length;
+        int peak = 0;
+        float peakAmplitude = 0;
+        for (int k = 1; k < bins; k++) {
+            if (amplitudes[k] > peakAmplitude) {
+                peakAmplitude = amplitudes[k];
+                peak = k;
+            }
+        }
+        if (peak == 0) {
+            return 0;
+        }
+
+        float offset = 0;
+        if (peak < bins - 1) {
+            float left = amplitudes[peak - 1];
+            float right = amplitudes[peak + 1];
+            float denominator = left - 2 * peakAmplitude + right;
+            if (denominator != 0) {
+                offset = 0.5f * (left - right) / denominator;
+            }
+        }
+        return (peak + offset) * sampleRateHz / windowSize;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.motrak;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free single-producer/single-consumer queue for 3-axis samples tagged with their
+// sensor type. The sensor thread offers samples and the UI thread drains them once per frame.
+// Storage is preallocated primitive arrays, so neither side allocates per sample.
+public class SpscSampleQueue {
+
+    // Receives drained samples on the consumer thread
+    public interface SampleConsumer {
+        void accept(int sensorType, long timestamp, float x, float y, float z);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final int[] sensorTypes;
+    private final long[] timestamps;
+    private final float[] values;
+
+    // Next slot to write (owned by producer) and next slot to read (owned by consumer)
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SpscSampleQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.sensorTypes = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.values = new float[capacity * 3];
+    }
+
+    // Producer side. Returns false and counts a drop if the consumer has fallen behind.
+    public boolean offer(int sensorType, long timestamp, float x, float y, float z) {
+        long currentTail = tail.get();
+        if (currentTail - head.get() >= capacity) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        int slot = (int) (currentTail & mask);
+        sensorTypes[slot] = sensorType;
+        timestamps[slot] = timestamp;
+        int base = slot * 3;
+        values[base] = x;
+        values[base + 1] = y;
+        values[base + 2] = z;
+
+        // Publish the slot to the consumer
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    // Consumer side. Hands up to maxSamples queued samples to the consumer, oldest first.
+    public int drain(SampleConsumer consumer, int maxSamples) {
+        long currentHead = head.get();
+        long available = tail.get() - currentHead;
+        int count = (int) Math.min(available, maxSamples);
+
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((currentHead + i) & mask);
+            int base = slot * 3;
+            consumer.accept(sensorTypes[slot], timestamps[slot], values[base], values[base + 1], values[base + 2]);
+        }
+
+        // Release the slots back to the producer
+        head.lazySet(currentHead + count);
+        return count;
+    }
+
+    public int drain(SampleConsumer consumer) {
+        return drain(consumer, capacity);
+    }
+
+    // Consumer side. Discards everything queued so far.
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
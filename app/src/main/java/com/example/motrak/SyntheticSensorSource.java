@@ -0,0 +1,250 @@
+package com.example.motrak;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+// SensorSource that generates its samples, so buffering, filtering, recording and export can
+// be load-tested without hardware, on a plain JVM. Every sensor type gets the same signal at
+// the same instants, at rates up to MAX_RATE_HZ. Timestamps come from the clock given to the
+// constructor, which must be the elapsedRealtimeNanos clock on a device like every other
+// source's (see SensorDataManager.createSyntheticSource()). start() produces samples in real
+// time on a thread of its own; generate() produces them back to back on the calling thread
+// for tests and benchmarks. Allocation-free per sample.
+public class SyntheticSensorSource implements SensorSource {
+    // Signal shapes, see setSignal()
+    public static final int SIGNAL_SINE = 0;
+    public static final int SIGNAL_NOISE = 1;
+    public static final int SIGNAL_STEP = 2;
+    public static final int SIGNAL_RECORDED = 3;
+
+    public static final int MAX_RATE_HZ = 10_000;
+    public static final int MIN_SAMPLING_PERIOD_US = 1_000_000 / MAX_RATE_HZ;
+
+    // In real time, due samples are delivered in bursts about this far apart
+    private static final long TICK_NANOS = 1_000_000L;
+    private static final long DEFAULT_PERIOD_NANOS = 1_000_000L;
+
+    private volatile int signal = SIGNAL_SINE;
+    private volatile float amplitude = 1f;
+    private volatile float frequencyHz = 1f;
+    private volatile float offset = 0f;
+    private volatile float noise = 0f;
+    private final Random random = new Random(42);
+
+    // Looped by SIGNAL_RECORDED
+    private volatile float[][] recorded = {{0f}, {0f}, {0f}};
+
+    private int[] sensorTypes = new int[0];
+    private long periodNanos = DEFAULT_PERIOD_NANOS;
+    private SensorDataListener listener;
+    private long startTimestampNanos;
+    // Sample instants produced since configure()
+    private long sampleIndex;
+
+    private volatile boolean running = false;
+    private Thread thread;
+
+    // Current time in nanoseconds, on the clock of the sample timestamps
+    private final LongSupplier clock;
+
+    public SyntheticSensorSource(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    // SIGNAL_SINE: sine of the given amplitude and frequency, shifted by a third of a period
+    // on each axis. SIGNAL_NOISE: Gaussian noise with amplitude as standard deviation, drawn
+    // independently per axis. SIGNAL_STEP: square wave between 0 and amplitude, starting
+    // low, with the given frequency. SIGNAL_RECORDED: the waveform from setRecordedWaveform(),
+    // looped. Takes effect from the next sample.
+    public void setSignal(int signal) {
+        this.signal = signal;
+    }
+
+    public int getSignal() {
+        return signal;
+    }
+
+    public void setAmplitude(float amplitude) {
+        this.amplitude = amplitude;
+    }
+
+    public void setFrequency(float frequencyHz) {
+        this.frequencyHz = frequencyHz;
+    }
+
+    // Added to every axis, e.g. 9.81 to stand in for gravity on an accelerometer
+    public void setOffset(float offset) {
+        this.offset = offset;
+    }
+
+    // Standard deviation of Gaussian noise added on top of the signal (0 for none)
+    public void setNoise(float standardDeviation) {
+        this.noise = standardDeviation;
+    }
+
+    // Seed of the noise, for reproducible runs
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    // Waveform for SIGNAL_RECORDED, played at the source's rate; the arrays are used as given
+    public void setRecordedWaveform(float[] x, float[] y, float[] z) {
+        if (x.length == 0 || x.length != y.length || x.length != z.length) {
+            throw new IllegalArgumentException("Need three non-empty axes of equal length");
+        }
+        recorded = new float[][]{x, y, z};
+    }
+
+    // Waveform for SIGNAL_RECORDED taken from one sensor of a recorded session
+    public void setRecordedWaveform(BinarySessionReader reader, int sensorType) {
+        int count = 0;
+        for (int i = 0; i < reader.size(); i++) {
+            if (reader.getSensorType(i) == sensorType) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("No samples of sensor type " + sensorType);
+        }
+        float[][] axes = new float[3][count];
+        int n = 0;
+        for (int i = 0; i < reader.size(); i++) {
+            if (reader.getSensorType(i) == sensorType) {
+                for (int axis = 0; axis < 3; axis++) {
+                    axes[axis][n] = reader.get(i, axis);
+                }
+                n++;
+            }
+        }
+        setRecordedWaveform(axes[0], axes[1], axes[2]);
+    }
+
+    @Override
+    public boolean isAvailable(int sensorType) {
+        return true;
+    }
+
+    @Override
+    public boolean start(int[] sensorTypes, int samplingPeriodUs, SensorDataListener listener) {
+        stop();
+        configure(sensorTypes, samplingPeriodUs, listener);
+        running = true;
+        thread = new Thread(this::run, "MoTrak-Synthetic");
+        thread.start();
+        return true;
+    }
+
+    // Set up for generate() without starting the real-time thread. The sampling period is
+    // clamped to MIN_SAMPLING_PERIOD_US; timestamps start at the clock's current time.
+    public void configure(int[] sensorTypes, int samplingPeriodUs, SensorDataListener listener) {
+        this.sensorTypes = sensorTypes.clone();
+        this.periodNanos = Math.max(samplingPeriodUs, MIN_SAMPLING_PERIOD_US) * 1000L;
+        this.listener = listener;
+        startTimestampNanos = clock.getAsLong();
+        sampleIndex = 0;
+    }
+
+    private void run() {
+        long produced = 0;
+        while (running) {
+            // Everything due by now, including the sample at the start time
+            long due = (clock.getAsLong() - startTimestampNanos) / periodNanos + 1;
+            generate((int) (due - produced));
+            produced = due;
+            LockSupport.parkNanos(this, TICK_NANOS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread stopping = thread;
+        thread = null;
+        if (stopping == null || stopping == Thread.currentThread()) {
+            return;
+        }
+        LockSupport.unpark(stopping);
+        try {
+            stopping.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Produce the next count sample instants on the calling thread, one sample per sensor type each
+    public void generate(int count) {
+        int activeSignal = signal;
+        float activeAmplitude = amplitude;
+        float activeOffset = offset;
+        float activeNoise = noise;
+        double cyclesPerSample = frequencyHz * (periodNanos / 1e9);
+        float[][] waveform = recorded;
+
+        for (int n = 0; n < count; n++) {
+            long index = sampleIndex++;
+            long timestamp = startTimestampNanos + index * periodNanos;
+            float x;
+            float y;
+            float z;
+            switch (activeSignal) {
+                case SIGNAL_NOISE:
+                    x = (float) (random.nextGaussian() * activeAmplitude);
+                    y = (float) (random.nextGaussian() * activeAmplitude);
+                    z = (float) (random.nextGaussian() * activeAmplitude);
+                    break;
+                case SIGNAL_STEP: {
+                    // Low for the first half of every period
+                    double cycles = index * cyclesPerSample;
+                    x = cycles - Math.floor(cycles) < 0.5 ? 0f : activeAmplitude;
+                    y = x;
+                    z = x;
+                    break;
+                }
+                case SIGNAL_RECORDED: {
+                    int i = (int) (index % waveform[0].length);
+                    x = waveform[0][i];
+                    y = waveform[1][i];
+                    z = waveform[2][i];
+                    break;
+                }
+                default: {
+                    double phase = 2 * Math.PI * (index * cyclesPerSample % 1.0);
+                    x = (float) (activeAmplitude * Math.sin(phase));
+                    y = (float) (activeAmplitude * Math.sin(phase - 2 * Math.PI / 3));
+                    z = (float) (activeAmplitude * Math.sin(phase - 4 * Math.PI / 3));
+                    break;
+                }
+            }
+            x += activeOffset;
+            y += activeOffset;
+            z += activeOffset;
+
+            for (int type : sensorTypes) {
+                if (activeNoise > 0) {
+                    listener.onSensorDataUpdated(type, timestamp,
+                            x + (float) (random.nextGaussian() * activeNoise),
+                            y + (float) (random.nextGaussian() * activeNoise),
+                            z + (float) (random.nextGaussian() * activeNoise));
+                } else {
+                    listener.onSensorDataUpdated(type, timestamp, x, y, z);
+                }
+            }
+        }
+    }
+
+    // Sample instants produced so far
+    public long getSampleCount() {
+        return sampleIndex;
+    }
+
+    // Timestamp of the first sample after configure() or start()
+    public long getStartTimestampNanos() {
+        return startTimestampNanos;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.motrak;
+
+// Gate in front of the session recorder that only persists the samples around a trigger.
+// While idle, samples go into a pre-trigger ring in memory and nothing reaches the
+// recorder. A trigger, either from an EventDetector rule (the gate listens for events) or
+// from trigger() on any thread, writes out the last preTriggerNanos of the ring and then
+// passes samples through until postTriggerNanos after the latest trigger; triggers within
+// that window extend it. The recording keeps full fidelity inside the windows and holds
+// nothing in between, so an idle session costs no disk writes at all.
+// Sensor thread only, apart from trigger(). Allocation-free once constructed.
+public class TriggeredCapture implements EventDetector.EventListener {
+    private final long preTriggerNanos;
+    private final long postTriggerNanos;
+
+    // Pre-trigger ring, oldest at head
+    private final int capacity;
+    private final int[] types;
+    private final long[] timestamps;
+    private final float[] values;
+    private int head = 0;
+    private int size = 0;
+
+    private volatile boolean manualTrigger = false;
+    private boolean eventTriggered = false;
+    private long eventTimestampNanos;
+
+    private boolean capturing = false;
+    private long captureEndNanos;
+
+    private long triggerCount = 0;
+    private long persistedSamples = 0;
+    private long discardedSamples = 0;
+
+    // capacity must hold preTriggerNanos of samples from every captured sensor; if it is
+    // smaller, the pre-trigger window comes out shorter
+    public TriggeredCapture(long preTriggerNanos, long postTriggerNanos, int capacity) {
+        if (preTriggerNanos < 0 || postTriggerNanos < 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Need non-negative windows and a positive capacity");
+        }
+        this.preTriggerNanos = preTriggerNanos;
+        this.postTriggerNanos = postTriggerNanos;
+        this.capacity = capacity;
+        this.types = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.values = new float[capacity * 3];
+    }
+
+    // Ring capacity for the pre-trigger window at the given total sample rate, with room
+    // for sensors that deliver faster than requested
+    public static int capacityFor(long preTriggerNanos, float totalRateHz) {
+        return Math.max(1, (int) Math.ceil(preTriggerNanos / 1e9 * totalRateHz * 1.5));
+    }
+
+    // Any thread; takes effect with the next sample
+    public void trigger() {
+        manualTrigger = true;
+    }
+
+    // Every event triggers except the end of a threshold crossing. Called on the sensor
+    // thread before the sample that raised the event reaches onSample().
+    @Override
+    public void onEvent(EventDetector.Rule rule, int event, long timestampNanos, float value) {
+        if (event == EventDetector.EVENT_THRESHOLD_EXIT) {
+            return;
+        }
+        if (!eventTriggered || timestampNanos < eventTimestampNanos) {
+            eventTimestampNanos = timestampNanos;
+        }
+        eventTriggered = true;
+    }
+
+    // Sensor thread, for every sample of the session
+    public void onSample(SessionRecorder recorder, int sensorType, long timestampNanos,
+                         float x, float y, float z) {
+        if (manualTrigger || eventTriggered) {
+            // A free fall reports its start, earlier than the sample that confirmed it
+            long triggerNanos = eventTriggered ? Math.min(eventTimestampNanos, timestampNanos) : timestampNanos;
+            manualTrigger = false;
+            eventTriggered = false;
+            onTrigger(recorder, triggerNanos);
+        }
+
+        if (capturing && timestampNanos > captureEndNanos) {
+            capturing = false;
+        }
+        if (capturing) {
+            recorder.append(sensorType, timestampNanos, x, y, z);
+            persistedSamples++;
+            return;
+        }
+
+        if (size == capacity) {
+            discardedSamples++;
+            head = head + 1 == capacity ? 0 : head + 1;
+            size--;
+        }
+        int slot = head + size;
+        if (slot >= capacity) {
+            slot -= capacity;
+        }
+        types[slot] = sensorType;
+        timestamps[slot] = timestampNanos;
+        values[slot * 3] = x;
+        values[slot * 3 + 1] = y;
+        values[slot * 3 + 2] = z;
+        size++;
+    }
+
+    private void onTrigger(SessionRecorder recorder, long triggerNanos) {
+        triggerCount++;
+        captureEndNanos = capturing
+                ? Math.max(captureEndNanos, triggerNanos + postTriggerNanos)
+                : triggerNanos + postTriggerNanos;
+        capturing = true;
+
+        // Write out the pre-trigger window in arrival order; older samples are dropped
+        long windowStart = triggerNanos - preTriggerNanos;
+        for (int i = 0; i < size; i++) {
+            int slot = head + i;
+            if (slot >= capacity) {
+                slot -= capacity;
+            }
+            if (timestamps[slot] < windowStart) {
+                discardedSamples++;
+                continue;
+            }
+            recorder.append(types[slot], timestamps[slot],
+                    values[slot * 3], values[slot * 3 + 1], values[slot * 3 + 2]);
+            persistedSamples++;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    // Between a trigger and the end of its post-trigger window
+    public boolean isCapturing() {
+        return capturing;
+    }
+
+    public long getTriggerCount() {
+        return triggerCount;
+    }
+
+    // Samples handed to the recorder so far
+    public long getPersistedSamples() {
+        return persistedSamples;
+    }
+
+    // Samples that left the ring without a trigger; the rest of the session's samples
+    // are still in it
+    public long getDiscardedSamples() {
+        return discardedSamples;
+    }
+
+    public long getPreTriggerNanos() {
+        return preTriggerNanos;
+    }
+
+    public long getPostTriggerNanos() {
+        return postTriggerNanos;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the binary session format: {@link BinaryRecordEncoder} written through
+ * {@link SessionRecorder} and read back with {@link BinarySessionReader}.
+ */
+public class BinarySessionTest {
+    private static final long START_NANOS = 5_000_000_000L;
+    private static final long PERIOD_NANOS = 2_500_000L; // 400 Hz
+
+    private File record(boolean deltaTime, int samples) throws IOException {
+        File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+
+        BinaryRecordEncoder encoder = new BinaryRecordEncoder(1, 400f, START_NANOS, 1234L, deltaTime);
+        // Enough chunks that nothing is dropped even if the writer thread is slow to start
+        SessionRecorder recorder = new SessionRecorder(file, encoder, 64 * 1024, 64);
+        recorder.start();
+        for (int i = 0; i < samples; i++) {
+            recorder.append(1, timestamp(i), i, -i, i * 0.25f);
+        }
+        recorder.stop();
+        assertEquals(0, recorder.getDroppedSamples());
+        return file;
+    }
+
+    private static long timestamp(int i) {
+        // A three-second gap in the middle, longer than a nanosecond int delta could hold
+        return START_NANOS + i * PERIOD_NANOS + (i >= 5000 ? 3_000_000_000L : 0);
+    }
+
+    @Test
+    public void reader_readsHeaderAndRecords() throws IOException {
+        File file = record(false, 10_000);
+        assertEquals(BinarySessionFormat.HEADER_SIZE + 10_000 * BinarySessionFormat.RECORD_SIZE, file.length());
+
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertEquals(10_000, reader.size());
+            assertEquals(1, reader.getSensorType());
+            assertEquals(400f, reader.getNominalRateHz(), 0f);
+            assertEquals(START_NANOS, reader.getStartTimeNanos());
+            assertEquals(1234L, reader.getStartWallClockMs());
+            assertFalse(reader.isDeltaTime());
+
+            assertEquals(timestamp(7777), reader.getTimestampNanos(7777));
+            assertEquals(7777f, reader.getX(7777), 0f);
+            assertEquals(-7777f, reader.getY(7777), 0f);
+            assertEquals(7777 * 0.25f, reader.getZ(7777), 0f);
+        }
+    }
+
+    @Test
+    public void reader_reconstructsDeltaEncodedTimestamps() throws IOException {
+        File file = record(true, 10_000);
+
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertTrue(reader.isDeltaTime());
+            // Random access in any order, across checkpoints and the gap
+            int[] indices = {9999, 0, 4999, 5000, 1024, 1025, 3071};
+            for (int i : indices) {
+                assertEquals("sample " + i, timestamp(i), reader.getTimestampNanos(i));
+            }
+        }
+    }
+
+    @Test
+    public void recorder_reportsTimeOffsetsPastTheIntRange() throws IOException {
+        // 35 minutes fit the microsecond offset, 36 don't (Integer.MAX_VALUE us is ~35.8 min)
+        long[] timestamps = {START_NANOS, START_NANOS + 35 * 60_000_000_000L,
+                START_NANOS + 36 * 60_000_000_000L, START_NANOS + 37 * 60_000_000_000L};
+        for (boolean deltaTime : new boolean[]{false, true}) {
+            File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+            file.deleteOnExit();
+            SessionRecorder recorder = new SessionRecorder(file,
+                    new BinaryRecordEncoder(1, 400f, START_NANOS, 0L, deltaTime), 64 * 1024, 4);
+            recorder.start();
+            for (int i = 0; i < timestamps.length; i++) {
+                recorder.append(1, timestamps[i], i, 0, 0);
+            }
+            IOException error = null;
+            try {
+                recorder.stop();
+            } catch (IOException e) {
+                error = e;
+            }
+
+            try (BinarySessionReader reader = new BinarySessionReader(file)) {
+                if (deltaTime) {
+                    // Gaps of a minute are fine as deltas
+                    assertNull(error);
+                    assertEquals(4, reader.size());
+                    assertEquals(timestamps[3], reader.getTimestampNanos(3));
+                } else {
+                    // Reported instead of clamped; the samples before it are kept intact
+                    assertNotNull(error);
+                    assertEquals(2, recorder.getRecordedSamples());
+                    assertEquals(2, recorder.getDroppedSamples());
+                    assertEquals(2, reader.size());
+                    assertEquals(timestamps[1], reader.getTimestampNanos(1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void exportCsv_matchesStreamingCsvLayout() throws IOException {
+        File file = record(true, 3);
+        File csv = File.createTempFile("session", ".csv");
+        csv.deleteOnExit();
+
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            reader.exportCsv(csv);
+        }
+
+        List<String> lines = Files.readAllLines(csv.toPath());
+        assertEquals(4, lines.size());
+        assertEquals(CsvRecordEncoder.HEADER.trim(), lines.get(0));
+        assertEquals("2.500,1.000000,-1.000000,0.250000", lines.get(2));
+    }
+
+    @Test
+    public void reader_keepsSensorTypePerRecord() throws IOException {
+        File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+
+        BinaryRecordEncoder encoder = new BinaryRecordEncoder(1, 400f, START_NANOS, 1234L, true, true);
+        SessionRecorder recorder = new SessionRecorder(file, encoder);
+        recorder.start();
+        recorder.append(1, timestamp(0), 1, 2, 3);
+        recorder.append(4, timestamp(0), 0.1f, 0.2f, 0.3f);
+        recorder.append(1, timestamp(1), 4, 5, 6);
+        recorder.stop();
+
+        File csv = File.createTempFile("session", ".csv");
+        csv.deleteOnExit();
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertTrue(reader.isMultiSensor());
+            assertEquals(3, reader.size());
+            assertEquals(1, reader.getSensorType(0));
+            assertEquals(4, reader.getSensorType(1));
+            assertEquals(timestamp(0), reader.getTimestampNanos(1));
+            assertEquals(0.2f, reader.getY(1), 0f);
+            reader.exportCsv(csv);
+        }
+
+        List<String> lines = Files.readAllLines(csv.toPath());
+        assertEquals(CsvRecordEncoder.MULTI_SENSOR_HEADER.trim(), lines.get(0));
+        assertEquals("0.000,4,0.100000,0.200000,0.300000", lines.get(2));
+    }
+
+    @Test
+    public void reader_readsVersion1Files() throws IOException {
+        // Single-sensor layout: 16-byte records without a sensor type
+        ByteBuffer out = ByteBuffer.allocate(BinarySessionFormat.HEADER_SIZE
+                + 2 * BinarySessionFormat.RECORD_SIZE_SINGLE_SENSOR).order(BinarySessionFormat.BYTE_ORDER);
+        out.putInt(BinarySessionFormat.MAGIC);
+        out.putShort(BinarySessionFormat.VERSION_SINGLE_SENSOR);
+        out.putShort((short) 0);
+        out.putInt(4);
+        out.putFloat(200f);
+        out.putLong(START_NANOS);
+        out.putLong(1234L);
+        out.putInt(0).putFloat(1).putFloat(2).putFloat(3);
+        out.putInt(5000).putFloat(4).putFloat(5).putFloat(6);
+
+        File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        Files.write(file.toPath(), out.array());
+
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertEquals(2, reader.size());
+            assertFalse(reader.isMultiSensor());
+            assertEquals(4, reader.getSensorType(1));
+            assertEquals(START_NANOS + 5_000_000L, reader.getTimestampNanos(1));
+            assertEquals(6f, reader.getZ(1), 0f);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void reader_rejectsOtherFiles() throws IOException {
+        File file = File.createTempFile("not-a-session", ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "Time (ms),X,Y,Z\n0,1,2,3\n0,1,2,3\n".getBytes());
+        new BinarySessionReader(file).close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BiquadFilter}.
+ */
+public class BiquadFilterTest {
+    private static final float RATE_HZ = 400f;
+
+    // Peak amplitude of a unit sine after filtering, measured once the filter has settled
+    private static float filteredAmplitude(BiquadFilter filter, float frequencyHz) {
+        float[] values = new float[3];
+        float peak = 0;
+        int samples = (int) (RATE_HZ * 4);
+        for (int i = 0; i < samples; i++) {
+            float input = (float) Math.sin(2 * Math.PI * frequencyHz * i / RATE_HZ);
+            values[0] = input;
+            values[1] = -input;
+            values[2] = 1f;
+            filter.process(1, i * 2_500_000L, values);
+            if (i >= samples / 2) {
+                peak = Math.max(peak, Math.abs(values[0]));
+            }
+        }
+        return peak;
+    }
+
+    @Test
+    public void lowPass_matchesButterworthReferenceCoefficients() {
+        // scipy.signal.butter(2, 1000, fs=48000)
+        double[] c = BiquadFilter.lowPass(1, 48_000f, 1_000f).getCoefficients();
+        assertEquals(0.0039161266, c[0], 1e-9);
+        assertEquals(0.0078322533, c[1], 1e-9);
+        assertEquals(0.0039161266, c[2], 1e-9);
+        assertEquals(-1.8153410827, c[3], 1e-9);
+        assertEquals(0.8310055893, c[4], 1e-9);
+    }
+
+    @Test
+    public void lowPass_passesSlowSignalsAndRejectsFastOnes() {
+        assertEquals(1f, filteredAmplitude(BiquadFilter.lowPass(1, RATE_HZ, 5f), 1f), 0.02f);
+        // 50 Hz is three octaves above the cutoff: about -36 dB for a second-order filter
+        assertEquals(0.01f, filteredAmplitude(BiquadFilter.lowPass(1, RATE_HZ, 5f), 50f), 0.005f);
+        // Half power at the cutoff
+        assertEquals(Math.sqrt(0.5), filteredAmplitude(BiquadFilter.lowPass(1, RATE_HZ, 20f), 20f), 0.01f);
+    }
+
+    @Test
+    public void highPass_removesOffsetAndPassesFastSignals() {
+        BiquadFilter filter = BiquadFilter.highPass(1, RATE_HZ, 0.5f);
+        float[] values = new float[3];
+        for (int i = 0; i < RATE_HZ * 10; i++) {
+            values[0] = 9.81f;
+            values[1] = 0;
+            values[2] = 0;
+            filter.process(1, i, values);
+        }
+        assertEquals(0f, values[0], 0.01f);
+
+        assertEquals(1f, filteredAmplitude(BiquadFilter.highPass(1, RATE_HZ, 0.5f), 20f), 0.02f);
+    }
+
+    @Test
+    public void process_ignoresOtherSensorTypes() {
+        BiquadFilter filter = BiquadFilter.lowPass(1, RATE_HZ, 5f);
+        float[] values = {3f, 4f, 5f};
+        filter.process(4, 0, values);
+        assertArrayEquals(new float[]{3f, 4f, 5f}, values, 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lowPass_rejectsCutoffAboveNyquist() {
+        BiquadFilter.lowPass(1, 100f, 60f);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ComplementaryFilter}.
+ */
+public class ComplementaryFilterTest {
+    private static final int ACCELEROMETER = 1;
+    private static final int GYROSCOPE = 4;
+    private static final long PERIOD_NANOS = 10_000_000L; // 100 Hz
+
+    @Test
+    public void process_cancelsGyroDriftWithAccelerometerTilt() {
+        ComplementaryFilter filter = new ComplementaryFilter(ACCELEROMETER, GYROSCOPE, 0.5f);
+        float roll = (float) Math.toRadians(30);
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+
+        for (int i = 0; i < 3000; i++) {
+            long timestamp = i * PERIOD_NANOS;
+            // Stationary, rolled 30 degrees
+            accel[0] = 0;
+            accel[1] = (float) (9.81 * Math.sin(roll));
+            accel[2] = (float) (9.81 * Math.cos(roll));
+            filter.process(ACCELEROMETER, timestamp, accel);
+
+            // Gyro with a constant bias on every axis
+            gyro[0] = 0.02f;
+            gyro[1] = 0.02f;
+            gyro[2] = 0.02f;
+            filter.process(GYROSCOPE, timestamp, gyro);
+        }
+
+        // Bias error is limited to bias * time constant instead of growing without bound
+        assertEquals(roll, gyro[0], 0.011f);
+        assertEquals(0f, gyro[1], 0.011f);
+        assertEquals(gyro[0], filter.getRoll(), 0f);
+        // Yaw has no reference: 30 s of 0.02 rad/s bias
+        assertEquals(0.6f, filter.getYaw(), 0.01f);
+        // Accelerometer samples are not modified
+        assertEquals(0f, accel[0], 0f);
+    }
+
+    @Test
+    public void process_followsFastRotationFromTheGyroscope() {
+        ComplementaryFilter filter = new ComplementaryFilter(ACCELEROMETER, GYROSCOPE, 1f);
+        float[] accel = {0, 0, 9.81f};
+        float[] gyro = new float[3];
+        filter.process(ACCELEROMETER, 0, accel);
+        filter.process(GYROSCOPE, 0, gyro);
+
+        // Rotate at 1 rad/s for 0.2 s; the accelerometer lags (still reads level)
+        for (int i = 1; i <= 20; i++) {
+            gyro[0] = 1f;
+            gyro[1] = 0;
+            gyro[2] = 0;
+            filter.process(GYROSCOPE, i * PERIOD_NANOS, gyro);
+        }
+
+        // Mostly the integrated 0.2 rad, slightly pulled back toward level
+        assertTrue(gyro[0] > 0.17f && gyro[0] < 0.2f);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the compressed session format: {@link CompressedRecordEncoder} written
+ * through {@link SessionRecorder} and read back with {@link BinarySessionReader}.
+ */
+public class CompressedSessionTest {
+    private static final long START_NANOS = 5_000_000_000L;
+    private static final long PERIOD_NANOS = 2_500_000L; // 400 Hz
+    // Output step of a typical phone accelerometer, in m/s^2
+    private static final float RESOLUTION = 0.0023942017f;
+
+    // A phone held in the hand: gravity, slow motion and sensor noise, quantized to the
+    // sensor's resolution, with timestamps jittering by up to 20 us
+    private static class Signal {
+        final int samples;
+        final int[] types;
+        final long[] timestamps;
+        final float[][] values;
+
+        Signal(int samples) {
+            this.samples = samples;
+            types = new int[samples];
+            timestamps = new long[samples];
+            values = new float[samples][3];
+            Random random = new Random(7);
+            for (int i = 0; i < samples; i++) {
+                types[i] = 1;
+                timestamps[i] = START_NANOS + i * PERIOD_NANOS + random.nextInt(40_000) - 20_000;
+                double motion = Math.sin(i * 0.01);
+                values[i][0] = quantize(0.8 * motion + random.nextGaussian() * 0.02);
+                values[i][1] = quantize(1.5 + 0.3 * motion + random.nextGaussian() * 0.02);
+                values[i][2] = quantize(9.7 - 0.2 * motion + random.nextGaussian() * 0.02);
+            }
+        }
+
+        private static float quantize(double value) {
+            return Math.round(value / RESOLUTION) * RESOLUTION;
+        }
+    }
+
+    private static File record(SessionRecorder.RecordEncoder encoder, Signal signal) throws IOException {
+        File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        SessionRecorder recorder = new SessionRecorder(file, encoder, 64 * 1024, 64);
+        recorder.start();
+        for (int i = 0; i < signal.samples; i++) {
+            float[] v = signal.values[i];
+            recorder.append(signal.types[i], signal.timestamps[i], v[0], v[1], v[2]);
+        }
+        recorder.stop();
+        assertEquals(0, recorder.getDroppedSamples());
+        return file;
+    }
+
+    private static void assertSamples(Signal signal, BinarySessionReader reader) {
+        assertEquals(signal.samples, reader.size());
+        long timestamp = 0;
+        for (int i = 0; i < signal.samples; i++) {
+            // Microsecond resolution, as in the plain format
+            long expected = START_NANOS + Math.round((signal.timestamps[i] - START_NANOS) / 1000.0) * 1000;
+            timestamp = reader.getTimestampNanos(i, timestamp);
+            assertEquals(expected, timestamp);
+            assertEquals(signal.types[i], reader.getSensorType(i));
+            for (int axis = 0; axis < 3; axis++) {
+                assertEquals(Float.floatToRawIntBits(signal.values[i][axis]),
+                        Float.floatToRawIntBits(reader.get(i, axis)));
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip_isExactAndSmall() throws IOException {
+        Signal signal = new Signal(20_000);
+        CompressedRecordEncoder encoder = new CompressedRecordEncoder(1, 400f, START_NANOS, 1234L, false);
+        File file = record(encoder, signal);
+        // 19 full blocks and the rest from finish()
+        assertEquals(20, encoder.getBlockCount());
+
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertTrue(reader.isCompressed());
+            assertFalse(reader.isDeltaTime());
+            assertEquals(1, reader.getSensorType());
+            assertEquals(400f, reader.getNominalRateHz(), 0f);
+            assertEquals(START_NANOS, reader.getStartTimeNanos());
+            assertEquals(1234L, reader.getStartWallClockMs());
+            assertSamples(signal, reader);
+
+            // Random access, backwards across blocks
+            for (int i : new int[]{19_999, 10_240, 10_239, 3, 15_000}) {
+                assertEquals(signal.values[i][2], reader.getZ(i), 0f);
+            }
+
+            // Noise leaves the low bits of every reading random, yet this is about half the
+            // plain format's 20 bytes a sample and under 30% of the CSV export
+            File csv = File.createTempFile("session", ".csv");
+            csv.deleteOnExit();
+            reader.exportCsv(csv);
+            long plainSize = BinarySessionFormat.HEADER_SIZE + 20_000L * BinarySessionFormat.RECORD_SIZE;
+            assertTrue("compressed " + file.length(), file.length() < plainSize * 0.55);
+            assertTrue("compressed " + file.length() + ", csv " + csv.length(), file.length() < csv.length() * 0.3);
+        }
+    }
+
+    @Test
+    public void roundTrip_shrinksSteadySignalsFurther() throws IOException {
+        // A phone lying still with a quiet sensor: readings repeat, timestamps are regular
+        Signal signal = new Signal(20_000);
+        for (int i = 0; i < signal.samples; i++) {
+            signal.timestamps[i] = START_NANOS + i * PERIOD_NANOS;
+            signal.values[i] = new float[]{0.0023942017f, -0.0047884034f, i % 50 == 0 ? 9.8150f : 9.8126f};
+        }
+        File file = record(new CompressedRecordEncoder(1, 400f, START_NANOS, 0L, false), signal);
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertSamples(signal, reader);
+        }
+        // Well under a byte a sample
+        assertTrue("compressed " + file.length(), file.length() < 20_000);
+    }
+
+    @Test
+    public void roundTrip_keepsSpecialValuesGapsAndManySensors() throws IOException {
+        Signal signal = new Signal(3000);
+        for (int i = 0; i < signal.samples; i++) {
+            // Twenty sensors take turns, more than a block has room for
+            signal.types[i] = 1 + i % 20;
+        }
+        // A gap of an hour, too long for a 32-bit change in microseconds
+        for (int i = 2000; i < signal.samples; i++) {
+            signal.timestamps[i] += 3_600_000_000_000L;
+        }
+        signal.values[10] = new float[]{Float.NaN, Float.POSITIVE_INFINITY, -0f};
+        signal.values[11] = new float[]{Float.MAX_VALUE, Float.MIN_VALUE, Float.NEGATIVE_INFINITY};
+
+        File file = record(new CompressedRecordEncoder(1, 400f, START_NANOS, 0L, true), signal);
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertTrue(reader.isMultiSensor());
+            assertSamples(signal, reader);
+            assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20},
+                    SessionReplayer.findSensorTypes(reader));
+        }
+    }
+
+    @Test
+    public void reader_dropsATruncatedLastBlock() throws IOException {
+        Signal signal = new Signal(2500);
+        File file = record(new CompressedRecordEncoder(1, 400f, START_NANOS, 0L, false), signal);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            // The two complete blocks remain
+            assertEquals(2 * BinarySessionFormat.MAX_BLOCK_SAMPLES, reader.size());
+            assertEquals(signal.values[2047][0], reader.getX(2047), 0f);
+        }
+    }
+
+    @Test
+    public void recordedSession_convertsWithoutLoss() throws IOException {
+        // A session in the plain format, re-encoded as the app would compress an older recording
+        Signal signal = new Signal(5000);
+        File plain = record(new BinaryRecordEncoder(1, 400f, START_NANOS, 99L, true), signal);
+        File compressed;
+        try (BinarySessionReader reader = new BinarySessionReader(plain)) {
+            CompressedRecordEncoder encoder = new CompressedRecordEncoder(reader.getSensorType(),
+                    reader.getNominalRateHz(), reader.getStartTimeNanos(), reader.getStartWallClockMs(), false);
+            compressed = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+            compressed.deleteOnExit();
+            SessionRecorder recorder = new SessionRecorder(compressed, encoder, 64 * 1024, 64);
+            recorder.start();
+            long timestamp = 0;
+            for (int i = 0; i < reader.size(); i++) {
+                timestamp = reader.getTimestampNanos(i, timestamp);
+                recorder.append(reader.getSensorType(i), timestamp, reader.getX(i), reader.getY(i), reader.getZ(i));
+            }
+            recorder.stop();
+        }
+
+        // Both export the same CSV
+        File plainCsv = File.createTempFile("plain", ".csv");
+        File compressedCsv = File.createTempFile("compressed", ".csv");
+        plainCsv.deleteOnExit();
+        compressedCsv.deleteOnExit();
+        try (BinarySessionReader plainReader = new BinarySessionReader(plain);
+             BinarySessionReader compressedReader = new BinarySessionReader(compressed)) {
+            assertEquals(99L, compressedReader.getStartWallClockMs());
+            plainReader.exportCsv(plainCsv);
+            compressedReader.exportCsv(compressedCsv);
+        }
+        assertTrue(Arrays.equals(Files.readAllBytes(plainCsv.toPath()), Files.readAllBytes(compressedCsv.toPath())));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EventDetector}.
+ */
+public class EventDetectorTest {
+    private static final int ACCELEROMETER = 1;
+    private static final int GYROSCOPE = 4;
+    private static final long PERIOD_NANOS = 10_000_000L; // 100 Hz
+
+    // Records events as "type@sample=value"
+    private static class Recorder implements EventDetector.EventListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onEvent(EventDetector.Rule rule, int event, long timestampNanos, float value) {
+            events.add(event + "@" + timestampNanos / PERIOD_NANOS + "=" + value);
+        }
+    }
+
+    private static Recorder feedX(EventDetector detector, float... values) {
+        Recorder recorder = new Recorder();
+        detector.addListener(recorder);
+        for (int i = 0; i < values.length; i++) {
+            detector.onSample(ACCELEROMETER, i * PERIOD_NANOS, values[i], 0, 0);
+        }
+        return recorder;
+    }
+
+    @Test
+    public void thresholdRule_firesOncePerCrossingWithHysteresis() {
+        EventDetector detector = new EventDetector();
+        detector.addRule(new EventDetector.ThresholdRule(ACCELEROMETER, EventDetector.AXIS_X, 5f, 4f));
+        // Noise around the enter level fires once; it takes a drop below 4 to exit
+        Recorder recorder = feedX(detector, 1, 5.5f, 4.8f, 5.2f, 4.5f, 3.9f, 4.6f, 6f);
+        assertEquals(3, recorder.events.size());
+        assertEquals(EventDetector.EVENT_THRESHOLD_ENTER + "@1=5.5", recorder.events.get(0));
+        assertEquals(EventDetector.EVENT_THRESHOLD_EXIT + "@5=3.9", recorder.events.get(1));
+        assertEquals(EventDetector.EVENT_THRESHOLD_ENTER + "@7=6.0", recorder.events.get(2));
+
+        // Falling: enter below -2, exit above -1
+        EventDetector falling = new EventDetector();
+        falling.addRule(new EventDetector.ThresholdRule(ACCELEROMETER, EventDetector.AXIS_X, -2f, -1f));
+        recorder = feedX(falling, 0, -2.5f, -1.5f, -0.5f);
+        assertEquals(2, recorder.events.size());
+        assertEquals(EventDetector.EVENT_THRESHOLD_EXIT + "@3=-0.5", recorder.events.get(1));
+    }
+
+    @Test
+    public void peakRule_reportsProminentPeaksWithTheirTimestamps() {
+        EventDetector detector = new EventDetector();
+        detector.addRule(new EventDetector.PeakRule(ACCELEROMETER, EventDetector.AXIS_X, 2f, 1f, 0));
+        Recorder recorder = feedX(detector,
+                0, 1, 3, 2.5f, 2.8f, 1.5f, // peak of 3 at 2; the wiggle at 4 isn't prominent
+                2, 1.8f, 0.5f,             // 2 doesn't rise far enough from 1.5
+                4, 5, 1,                   // peak of 5 at 10
+                6);                        // not confirmed yet
+        assertEquals(2, recorder.events.size());
+        assertEquals(EventDetector.EVENT_PEAK + "@2=3.0", recorder.events.get(0));
+        assertEquals(EventDetector.EVENT_PEAK + "@10=5.0", recorder.events.get(1));
+
+        // A minimum interval of 5 samples drops the second one
+        EventDetector spaced = new EventDetector();
+        spaced.addRule(new EventDetector.PeakRule(ACCELEROMETER, EventDetector.AXIS_X, 2f, 1f, 5 * PERIOD_NANOS));
+        recorder = feedX(spaced, 0, 3, 0, 3, 0, 0, 0, 0, 3, 0);
+        assertEquals(2, recorder.events.size());
+        assertEquals(EventDetector.EVENT_PEAK + "@8=3.0", recorder.events.get(1));
+    }
+
+    @Test
+    public void shakeRule_needsEnoughJoltsWithinTheWindow() {
+        EventDetector detector = new EventDetector();
+        // Three jolts of more than 10 m/s^2 from gravity within half a second
+        detector.addRule(new EventDetector.ShakeRule(ACCELEROMETER, 10f, 3, 50 * PERIOD_NANOS));
+        Recorder recorder = new Recorder();
+        detector.addListener(recorder);
+        float[] magnitudes = new float[200];
+        Arrays.fill(magnitudes, EventDetector.GRAVITY);
+        // 10 (over two samples), 40 and 70: too spread out
+        magnitudes[10] = 25f;
+        magnitudes[11] = 30f;
+        magnitudes[40] = -5f;
+        magnitudes[70] = 25f;
+        // 100 and 110 complete a shake with 70; 120 starts over
+        magnitudes[100] = 22f;
+        magnitudes[110] = 28f;
+        magnitudes[111] = 26f;
+        magnitudes[120] = 21f;
+        for (int i = 0; i < magnitudes.length; i++) {
+            detector.onSample(ACCELEROMETER, i * PERIOD_NANOS, 0, 0, magnitudes[i]);
+            // Other sensors are ignored
+            detector.onSample(GYROSCOPE, i * PERIOD_NANOS, 0, 0, 100f);
+        }
+
+        assertEquals(1, recorder.events.size());
+        assertEquals(EventDetector.EVENT_SHAKE + "@110=" + (28f - EventDetector.GRAVITY), recorder.events.get(0));
+        assertEquals(1, detector.getEventCount());
+    }
+
+    @Test
+    public void freeFallRule_firesOncePerFall() {
+        EventDetector detector = new EventDetector();
+        detector.addRule(new EventDetector.FreeFallRule(ACCELEROMETER, 3f, 5 * PERIOD_NANOS));
+        Recorder recorder = new Recorder();
+        detector.addListener(recorder);
+        for (int i = 0; i < 100; i++) {
+            // Dropped at 20 for 20 samples, a short dip at 60
+            boolean falling = (i >= 20 && i < 40) || (i >= 60 && i < 63);
+            float z = falling ? (i == 30 ? 0.2f : 0.5f) : EventDetector.GRAVITY;
+            detector.onSample(ACCELEROMETER, i * PERIOD_NANOS, 0, 0.1f, z);
+        }
+        assertEquals(1, recorder.events.size());
+        // Reported at sample 25 with the start of the fall and the lowest magnitude so far
+        assertEquals(EventDetector.EVENT_FREE_FALL + "@20=" + (float) Math.sqrt(0.1f * 0.1f + 0.5f * 0.5f),
+                recorder.events.get(0));
+
+        detector.reset();
+        detector.removeListener(recorder);
+        detector.onSample(ACCELEROMETER, 0, 0, 0, 0);
+        assertEquals(1, recorder.events.size());
+    }
+
+    @Test
+    public void pipeline_runsTheRulesOnRawValues() {
+        SamplePipeline pipeline = new SamplePipeline(16);
+        pipeline.setChannels(new SensorChannel[]{new SensorChannel(ACCELEROMETER, 8)});
+        // A filter that zeroes everything must not hide the crossing
+        pipeline.setFilter(new SampleFilter() {
+            @Override
+            public void process(int sensorType, long timestampNanos, float[] values) {
+                values[0] = 0;
+                values[1] = 0;
+                values[2] = 0;
+            }
+
+            @Override
+            public void reset() {
+            }
+        });
+        EventDetector detector = new EventDetector();
+        detector.addRule(new EventDetector.ThresholdRule(ACCELEROMETER, EventDetector.AXIS_MAGNITUDE, 10f, 9f));
+        pipeline.setEventDetector(detector);
+
+        pipeline.onSample(ACCELEROMETER, 0, 0, 0, 0, 9.5f);
+        pipeline.onSample(ACCELEROMETER, PERIOD_NANOS, 0, 6, 8, 1);
+        assertEquals(1, detector.getEventCount());
+        assertTrue(((EventDetector.ThresholdRule) detector.getRules()[0]).isInside());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Fft}.
+ */
+public class FftTest {
+    @Test
+    public void transform_matchesDirectDft() {
+        int n = 64;
+        Random random = new Random(42);
+        float[] re = new float[n];
+        float[] im = new float[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = random.nextFloat() * 2 - 1;
+            im[i] = random.nextFloat() * 2 - 1;
+        }
+        float[] inputRe = re.clone();
+        float[] inputIm = im.clone();
+
+        new Fft(n).transform(re, im);
+
+        for (int k = 0; k < n; k++) {
+            double sumRe = 0;
+            double sumIm = 0;
+            for (int t = 0; t < n; t++) {
+                double angle = -2 * Math.PI * k * t / n;
+                sumRe += inputRe[t] * Math.cos(angle) - inputIm[t] * Math.sin(angle);
+                sumIm += inputRe[t] * Math.sin(angle) + inputIm[t] * Math.cos(angle);
+            }
+            assertEquals("re[" + k + "]", sumRe, re[k], 1e-4);
+            assertEquals("im[" + k + "]", sumIm, im[k], 1e-4);
+        }
+    }
+
+    @Test
+    public void transform_putsACosineInItsBins() {
+        int n = 256;
+        float[] re = new float[n];
+        float[] im = new float[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = (float) Math.cos(2 * Math.PI * 10 * i / n);
+        }
+
+        new Fft(n).transform(re, im);
+
+        assertEquals(n / 2f, re[10], 1e-3f);
+        assertEquals(n / 2f, re[n - 10], 1e-3f);
+        assertEquals(0f, re[11], 1e-3f);
+        assertEquals(0f, im[10], 1e-3f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPowerOfTwo() {
+        new Fft(100);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrameStats}.
+ */
+public class FrameStatsTest {
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    @Test
+    public void onRedraw_reportsRatesOncePerSecond() {
+        FrameStats stats = new FrameStats();
+        for (int frame = 0; frame <= 60; frame++) {
+            stats.onDrawTime(frame % 2 == 0 ? 2_000_000L : 4_000_000L);
+            stats.onRedraw(frame * FRAME_NANOS, 5);
+            if (frame < 60) {
+                assertEquals(0f, stats.getRedrawsPerSecond(), 0f);
+            }
+        }
+
+        assertEquals(61f, stats.getRedrawsPerSecond(), 0.1f);
+        assertEquals(5f, stats.getSamplesPerFrame(), 0f);
+        assertEquals(3f, stats.getMeanDrawMs(), 0.05f);
+        assertEquals(4f, stats.getMaxDrawMs(), 0f);
+    }
+
+    @Test
+    public void reset_clearsTheWindow() {
+        FrameStats stats = new FrameStats();
+        stats.onDrawTime(10_000_000L);
+        stats.onRedraw(0, 1);
+        stats.onRedraw(2_000_000_000L, 1);
+        stats.reset();
+
+        assertEquals(0f, stats.getMeanDrawMs(), 0f);
+        stats.onDrawTime(1_000_000L);
+        stats.onRedraw(0, 1);
+        stats.onRedraw(1_000_000_000L, 1);
+        assertEquals(1f, stats.getMaxDrawMs(), 0f);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link GravityRemovalFilter}.
+ */
+public class GravityRemovalFilterTest {
+    @Test
+    public void process_leavesLinearAccelerationOnly() {
+        GravityRemovalFilter filter = new GravityRemovalFilter(1, 0.5f);
+        float[] values = new float[3];
+        long periodNanos = 5_000_000L; // 200 Hz
+        float peak = 0;
+        for (int i = 0; i < 2000; i++) {
+            // Tilted device shaken at 5 Hz along x
+            float shake = (float) Math.sin(2 * Math.PI * 5 * i * periodNanos / 1e9);
+            values[0] = 2f + shake;
+            values[1] = 3f;
+            values[2] = 8.8f;
+            filter.process(1, i * periodNanos, values);
+            if (i > 1000) {
+                peak = Math.max(peak, values[0]);
+                assertEquals(0f, values[1], 1e-4f);
+                assertEquals(0f, values[2], 1e-4f);
+            }
+        }
+
+        assertEquals(1f, peak, 0.1f);
+        // The 5 Hz shake leaks through a 0.5 s time constant with about 1/(2*pi*5*0.5) of its amplitude
+        assertEquals(2f, filter.getGravity(0), 0.1f);
+        assertEquals(8.8f, filter.getGravity(2), 1e-4f);
+    }
+
+    @Test
+    public void process_timeConstantDoesNotDependOnRate() {
+        // After one time constant a step has decayed to about 1/e at any rate
+        for (int rateHz : new int[]{50, 400}) {
+            GravityRemovalFilter filter = new GravityRemovalFilter(1, 0.2f);
+            float[] values = new float[3];
+            long periodNanos = 1_000_000_000L / rateHz;
+            filter.process(1, 0, values);
+            for (int i = 1; i <= rateHz / 5; i++) {
+                values[0] = 1f;
+                values[1] = 0;
+                values[2] = 0;
+                filter.process(1, i * periodNanos, values);
+            }
+            assertEquals("rate " + rateHz, 1 / Math.E, values[0], 0.02f);
+        }
+    }
+}
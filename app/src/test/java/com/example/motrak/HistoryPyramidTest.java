@@ -0,0 +1,117 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HistoryPyramid}.
+ */
+public class HistoryPyramidTest {
+    private static final long PERIOD_NANOS = 2_500_000L; // 400 Hz
+
+    // Deterministic, not monotonic, different per axis
+    private static float value(long n, int axis) {
+        return (float) Math.sin(n * 0.37 + axis) * (1 + n % 7);
+    }
+
+    private static HistoryPyramid filled(int rawCapacity, int levelCapacity, long samples) {
+        HistoryPyramid history = new HistoryPyramid(rawCapacity, 10, 3, levelCapacity);
+        for (long n = 0; n < samples; n++) {
+            history.add(n * PERIOD_NANOS, value(n, 0), value(n, 1), value(n, 2));
+        }
+        return history;
+    }
+
+    @Test
+    public void summaries_matchTheSamplesTheyCover() {
+        HistoryPyramid history = filled(1000, 1000, 25_000);
+
+        for (int level = 1; level < history.getLevelCount(); level++) {
+            long size = history.getBucketSize(level);
+            // Level 1 holds back to 15000, the others to 0
+            for (long start : new long[]{15_000, 15_000 + 7 * size, 24_000 - size}) {
+                for (int axis = 0; axis < 3; axis++) {
+                    float min = Float.POSITIVE_INFINITY;
+                    float max = Float.NEGATIVE_INFINITY;
+                    double sum = 0;
+                    for (long n = start; n < start + size; n++) {
+                        min = Math.min(min, value(n, axis));
+                        max = Math.max(max, value(n, axis));
+                        sum += value(n, axis);
+                    }
+                    long sequence = start + size / 2;
+                    assertEquals(min, history.getMin(level, axis, sequence), 0f);
+                    assertEquals(max, history.getMax(level, axis, sequence), 0f);
+                    assertEquals(sum / size, history.getMean(level, axis, sequence), 1e-4);
+                }
+            }
+        }
+        // 1000x summaries complete up to 25000; the last 10x ones too
+        assertEquals(Float.NaN, history.getMin(3, 0, 25_000), 0f);
+        assertEquals(value(24_999, 1), history.getMin(0, 1, 24_999), 0f);
+    }
+
+    @Test
+    public void oldestSequence_followsEvictionPerLevel() {
+        HistoryPyramid history = filled(100, 100, 1_000_000);
+
+        assertEquals(1_000_000 - 100, history.getOldestSequence(0));
+        assertEquals(1_000_000 - 1000, history.getOldestSequence(1));
+        assertEquals(1_000_000 - 10_000, history.getOldestSequence(2));
+        assertEquals(1_000_000 - 100_000, history.getOldestSequence());
+        assertEquals(Long.MIN_VALUE, history.getTimestamp(1_000_000 - 100_001));
+        // Raw timestamps are exact; summaries report their first sample's
+        assertEquals(999_950 * PERIOD_NANOS, history.getTimestamp(999_950));
+        assertEquals(999_000 * PERIOD_NANOS, history.getTimestamp(999_005));
+        assertEquals(900_000 * PERIOD_NANOS, history.getTimestamp(900_999));
+
+        history.clear();
+        assertTrue(history.isEmpty());
+        assertEquals(0, history.getOldestSequence());
+        assertEquals(0, history.collect(0, 0, 100, 0, 100));
+    }
+
+    @Test
+    public void collect_staysBoundedOverAnHour() {
+        // An hour at 400 Hz and a bit, so the newest samples aren't summarized yet
+        long samples = 3600L * 400 + 123;
+        HistoryPyramid history = filled(16_384, 16_384, samples);
+        assertEquals(0, history.getOldestSequence());
+
+        // 1440 summaries of 1000 samples for a 1500-pixel plot, then the finer levels' tails
+        long base = samples - 1000;
+        int points = history.collect(0, 0, samples - 1, base, 1500);
+        assertTrue("points " + points, points >= 2 * 1440 && points <= 2 * 1440 + 2 * (1 + 2) + 3);
+        // In order, from the start of the hour to the newest sample
+        assertEquals(-base, history.getPosition(0), 1000f);
+        assertEquals(999f, history.getPosition(points - 1), 0f);
+        for (int i = 1; i < points; i++) {
+            assertTrue(history.getPosition(i) > history.getPosition(i - 1));
+        }
+        assertEquals(value(samples - 1, 0), history.getValue(points - 1), 0f);
+
+        // A short range comes back raw
+        points = history.collect(2, samples - 500, samples - 1, base, 1000);
+        assertEquals(500, points);
+        assertEquals(500f, history.getPosition(0), 0f);
+        assertEquals(value(samples - 500, 2), history.getValue(0), 0f);
+    }
+
+    @Test
+    public void collect_keepsTheOrderOfMinimumAndMaximum() {
+        HistoryPyramid history = new HistoryPyramid(10, 10, 1, 10);
+        // A falling then a rising summary
+        for (int n = 0; n < 20; n++) {
+            float x = n < 10 ? 10 - n : n;
+            history.add(n, x, 0, 0);
+        }
+        assertEquals(4, history.collect(0, 0, 19, 0, 2));
+        assertEquals(10f, history.getValue(0), 0f);
+        assertEquals(1f, history.getValue(1), 0f);
+        assertEquals(10f, history.getValue(2), 0f);
+        assertEquals(19f, history.getValue(3), 0f);
+        assertEquals(2.5f, history.getPosition(0), 0f);
+        assertEquals(17.5f, history.getPosition(3), 0f);
+    }
+}
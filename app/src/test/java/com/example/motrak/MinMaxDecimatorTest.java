@@ -0,0 +1,81 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link MinMaxDecimator}.
+ */
+public class MinMaxDecimatorTest {
+    @Test
+    public void collect_boundsPointCountByColumns() {
+        MinMaxDecimator decimator = new MinMaxDecimator(50_000, 1000);
+        for (int i = 0; i < 120_000; i++) {
+            decimator.add((float) Math.sin(i * 0.01), 0, 0);
+        }
+
+        int points = decimator.collect(0);
+        assertTrue("Got " + points + " points", points <= 4 * 1002);
+        assertTrue(points > 1000);
+    }
+
+    @Test
+    public void collect_keepsExtremesOfEachBucket() {
+        int window = 1000;
+        MinMaxDecimator decimator = new MinMaxDecimator(window, 100);
+        float[] values = new float[2500];
+        for (int i = 0; i < values.length; i++) {
+            // Sparse spikes that a naive stride would skip
+            values[i] = (i % 37 == 0) ? 10f : (i % 53 == 0 ? -10f : (float) Math.sin(i * 0.05));
+            decimator.add(0, values[i], 0);
+        }
+
+        int points = decimator.collect(1);
+        int windowStart = values.length - window;
+        float plottedMax = -Float.MAX_VALUE;
+        float plottedMin = Float.MAX_VALUE;
+        float previous = -1;
+        for (int i = 0; i < points; i++) {
+            float position = decimator.getPosition(i);
+            assertTrue("Positions must increase", position > previous);
+            assertTrue(position >= 0 && position < window);
+            // Every plotted point is a real sample at that position
+            assertEquals(values[windowStart + (int) position], decimator.getValue(i), 0f);
+            plottedMax = Math.max(plottedMax, decimator.getValue(i));
+            plottedMin = Math.min(plottedMin, decimator.getValue(i));
+            previous = position;
+        }
+
+        assertEquals(10f, plottedMax, 0f);
+        assertEquals(-10f, plottedMin, 0f);
+        // The newest sample is always the last point
+        assertEquals(window - 1, decimator.getPosition(points - 1), 0f);
+    }
+
+    @Test
+    public void collectRange_onlyEmitsBucketsAroundTheRange() {
+        MinMaxDecimator decimator = new MinMaxDecimator(50_000, 1000);
+        for (int i = 0; i < 70_000; i++) {
+            decimator.add(i, 0, 0);
+        }
+
+        // Buckets of 50 samples: positions 10000..10999 touch 20 of them
+        int points = decimator.collect(0, 10_000, 10_999);
+        assertTrue("Got " + points + " points", points <= 4 * 20);
+        assertEquals(10_000f, decimator.getPosition(0), 0f);
+        assertEquals(10_999f, decimator.getPosition(points - 1), 0f);
+        // Values are the sample numbers, so positions map back to the window start
+        assertEquals(20_000f + 10_999f, decimator.getValue(points - 1), 0f);
+
+        assertEquals(0, decimator.collect(0, 5, 4));
+    }
+
+    @Test
+    public void clear_emptiesOutput() {
+        MinMaxDecimator decimator = new MinMaxDecimator(100, 10);
+        decimator.add(1, 2, 3);
+        decimator.clear();
+        assertEquals(0, decimator.collect(0));
+    }
+}
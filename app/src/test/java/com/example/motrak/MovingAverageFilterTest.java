@@ -0,0 +1,50 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link MovingAverageFilter}.
+ */
+public class MovingAverageFilterTest {
+    @Test
+    public void process_averagesTheLastWindow() {
+        MovingAverageFilter filter = new MovingAverageFilter(SampleFilter.ANY_SENSOR, 4);
+        float[] expected = {1f, 1.5f, 2f, 2.5f, 3.5f, 4.5f};
+        float[] values = new float[3];
+        for (int i = 0; i < expected.length; i++) {
+            values[0] = i + 1;
+            values[1] = -(i + 1);
+            values[2] = 10f;
+            filter.process(1, i, values);
+            assertEquals("sample " + i, expected[i], values[0], 1e-6f);
+            assertEquals(-expected[i], values[1], 1e-6f);
+            assertEquals(10f, values[2], 1e-6f);
+        }
+    }
+
+    @Test
+    public void process_stepSettlesAfterOneWindow() {
+        MovingAverageFilter filter = new MovingAverageFilter(1, 8);
+        float[] values = new float[3];
+        for (int i = 0; i < 100; i++) {
+            values[0] = i < 50 ? 0f : 1f;
+            filter.process(1, i, values);
+            if (i >= 57) {
+                assertEquals(1f, values[0], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void reset_forgetsHistory() {
+        MovingAverageFilter filter = new MovingAverageFilter(1, 4);
+        float[] values = {100f, 0, 0};
+        filter.process(1, 0, values);
+        filter.reset();
+        values[0] = 2f;
+        filter.process(1, 1, values);
+        assertEquals(2f, values[0], 0f);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NumberFormatter}.
+ */
+public class NumberFormatterTest {
+    private final char[] buffer = new char[NumberFormatter.MAX_LENGTH];
+
+    private String format(double value, int decimals) {
+        int length = NumberFormatter.formatFixed(value, decimals, buffer, 0);
+        return new String(buffer, 0, length);
+    }
+
+    @Test
+    public void formatFixed_matchesStringFormat() {
+        double[] values = {0, 1, -1, 0.05, 9.95, -12.34, 15, -15, 123456.789, 0.5, 2.25};
+        for (double value : values) {
+            for (int decimals = 0; decimals <= 4; decimals++) {
+                String expected = String.format(Locale.US, "%." + decimals + "f", value);
+                assertEquals(value + " @ " + decimals, expected, format(value, decimals));
+            }
+        }
+    }
+
+    @Test
+    public void formatFixed_dropsSignOfNegativeZero() {
+        assertEquals("0.0", format(-0.01, 1));
+        assertEquals("0", format(-0.0, 0));
+    }
+
+    @Test
+    public void formatFixed_writesAtOffset() {
+        buffer[0] = 't';
+        buffer[1] = '=';
+        int length = NumberFormatter.formatFixed(3.14159, 2, buffer, 2);
+        assertEquals("t=3.14", new String(buffer, 0, 2 + length));
+    }
+
+    @Test
+    public void formatFixed_handlesNonFiniteValues() {
+        assertEquals("NaN", format(Double.NaN, 1));
+        assertEquals("-Infinity", format(Double.NEGATIVE_INFINITY, 1));
+    }
+}
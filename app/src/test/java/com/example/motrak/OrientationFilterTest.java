@@ -0,0 +1,194 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link OrientationFilter}.
+ */
+public class OrientationFilterTest {
+    private static final int ACCELEROMETER = 1;
+    private static final int GYROSCOPE = 4;
+    private static final long PERIOD_NANOS = 5_000_000L; // 200 Hz
+    private static final float GRAVITY = 9.81f;
+
+    private static OrientationFilter[] bothAlgorithms() {
+        return new OrientationFilter[]{
+                OrientationFilter.madgwick(ACCELEROMETER, GYROSCOPE, 0.1f),
+                OrientationFilter.mahony(ACCELEROMETER, GYROSCOPE, 1f, 0.1f)};
+    }
+
+    // A phone turned by hand: roll and pitch swing, yaw turns steadily. Accelerometer and
+    // gyroscope readings follow from the true angles, with noise and a gyro bias, and are
+    // recorded to a multi-sensor session like a capture on the device.
+    private static File recordTrace(double[][] angles, int samples) throws IOException {
+        File file = File.createTempFile("trace", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        SessionRecorder recorder = new SessionRecorder(file,
+                new CompressedRecordEncoder(ACCELEROMETER, 200f, 0, 0, true));
+        recorder.start();
+        Random random = new Random(3);
+        for (int i = 0; i < samples; i++) {
+            double t = i * PERIOD_NANOS / 1e9;
+            double roll = 0.6 * Math.sin(2 * Math.PI * 0.5 * t);
+            double pitch = 0.4 * Math.sin(2 * Math.PI * 0.3 * t);
+            double yaw = 0.2 * t;
+            double rollRate = 0.6 * 2 * Math.PI * 0.5 * Math.cos(2 * Math.PI * 0.5 * t);
+            double pitchRate = 0.4 * 2 * Math.PI * 0.3 * Math.cos(2 * Math.PI * 0.3 * t);
+            double yawRate = 0.2;
+            angles[i][0] = roll;
+            angles[i][1] = pitch;
+            angles[i][2] = yaw;
+
+            // Gravity and Euler rates in the device frame
+            long timestamp = i * PERIOD_NANOS;
+            recorder.append(ACCELEROMETER, timestamp,
+                    (float) (-GRAVITY * Math.sin(pitch) + 0.05 * random.nextGaussian()),
+                    (float) (GRAVITY * Math.cos(pitch) * Math.sin(roll) + 0.05 * random.nextGaussian()),
+                    (float) (GRAVITY * Math.cos(pitch) * Math.cos(roll) + 0.05 * random.nextGaussian()));
+            recorder.append(GYROSCOPE, timestamp,
+                    (float) (rollRate - yawRate * Math.sin(pitch) + 0.01 + 0.005 * random.nextGaussian()),
+                    (float) (pitchRate * Math.cos(roll) + yawRate * Math.cos(pitch) * Math.sin(roll)
+                            - 0.01 + 0.005 * random.nextGaussian()),
+                    (float) (-pitchRate * Math.sin(roll) + yawRate * Math.cos(pitch) * Math.cos(roll)
+                            + 0.002 + 0.005 * random.nextGaussian()));
+        }
+        recorder.stop();
+        return file;
+    }
+
+    private static double angleError(double expected, double actual) {
+        return Math.abs(Math.IEEEremainder(actual - expected, 2 * Math.PI));
+    }
+
+    @Test
+    public void recordedTrace_tracksTheTrueOrientation() throws IOException {
+        int samples = 20 * 200;
+        double[][] angles = new double[samples][3];
+        File trace = recordTrace(angles, samples);
+
+        for (OrientationFilter filter : bothAlgorithms()) {
+            double maxTiltError = 0;
+            double maxYawError = 0;
+            float[] values = new float[3];
+            float[] quaternion = new float[4];
+            try (BinarySessionReader reader = new BinarySessionReader(trace)) {
+                assertEquals(2 * samples, reader.size());
+                long timestamp = 0;
+                for (int i = 0; i < reader.size(); i++) {
+                    timestamp = reader.getTimestampNanos(i, timestamp);
+                    int type = reader.getSensorType(i);
+                    values[0] = reader.getX(i);
+                    values[1] = reader.getY(i);
+                    values[2] = reader.getZ(i);
+                    filter.process(type, timestamp, values);
+                    // After a second to settle
+                    int sample = i / 2;
+                    if (type == GYROSCOPE && sample >= 200) {
+                        maxTiltError = Math.max(maxTiltError, angleError(angles[sample][0], values[0]));
+                        maxTiltError = Math.max(maxTiltError, angleError(angles[sample][1], values[1]));
+                        maxYawError = Math.max(maxYawError, angleError(angles[sample][2], values[2]));
+                    }
+                }
+            }
+
+            String name = filter.getAlgorithm() == OrientationFilter.ALGORITHM_MADGWICK ? "madgwick" : "mahony";
+            // Within 3 degrees of roll and pitch throughout
+            assertTrue(name + " tilt error " + maxTiltError, maxTiltError < Math.toRadians(3));
+            // Yaw only drifts with the 0.002 rad/s z bias over 20 s
+            assertTrue(name + " yaw error " + maxYawError, maxYawError < 0.06);
+            filter.getQuaternion(quaternion);
+            double norm = Math.sqrt(quaternion[0] * quaternion[0] + quaternion[1] * quaternion[1]
+                    + quaternion[2] * quaternion[2] + quaternion[3] * quaternion[3]);
+            assertEquals(1.0, norm, 1e-5);
+        }
+    }
+
+    @Test
+    public void mahony_learnsTheGyroBias() {
+        OrientationFilter mahony = OrientationFilter.mahony(ACCELEROMETER, GYROSCOPE, 1f, 0.1f);
+        OrientationFilter madgwick = OrientationFilter.madgwick(ACCELEROMETER, GYROSCOPE, 0.1f);
+        float roll = (float) Math.toRadians(30);
+        for (OrientationFilter filter : new OrientationFilter[]{mahony, madgwick}) {
+            float[] accel = new float[3];
+            float[] gyro = new float[3];
+            for (int i = 0; i < 200 * 120; i++) {
+                long timestamp = i * PERIOD_NANOS;
+                // Stationary, rolled 30 degrees, with a gyro bias on x and y
+                accel[0] = 0;
+                accel[1] = (float) (GRAVITY * Math.sin(roll));
+                accel[2] = (float) (GRAVITY * Math.cos(roll));
+                filter.process(ACCELEROMETER, timestamp, accel);
+                gyro[0] = 0.02f;
+                gyro[1] = -0.03f;
+                gyro[2] = 0;
+                filter.process(GYROSCOPE, timestamp, gyro);
+            }
+            assertEquals(0f, accel[0], 0f);
+            assertEquals(gyro[0], filter.getRoll(), 0f);
+        }
+
+        // The integral term cancels the bias, so the tilt comes out exact. Only the part
+        // across gravity is seen; the part along it turns yaw.
+        float[] bias = new float[3];
+        mahony.getGyroBias(bias);
+        assertEquals(0.02f, bias[0], 1e-3f);
+        assertEquals(-0.03 * Math.cos(roll) * Math.cos(roll), bias[1], 1e-3);
+        assertEquals(0.03 * Math.sin(roll) * Math.cos(roll), bias[2], 1e-3);
+        assertEquals(roll, mahony.getRoll(), 1e-3f);
+        assertEquals(0f, mahony.getPitch(), 1e-3f);
+        // Madgwick settles where its correction balances the bias: off by about bias / beta
+        assertEquals(roll, madgwick.getRoll(), 0.01f);
+        assertTrue(Math.abs(madgwick.getRoll() - roll) > Math.abs(mahony.getRoll() - roll));
+    }
+
+    @Test
+    public void process_startsFromTheMeasuredTiltAndSkipsGaps() {
+        for (OrientationFilter filter : bothAlgorithms()) {
+            float pitch = (float) Math.toRadians(-20);
+            float[] accel = {(float) (-GRAVITY * Math.sin(pitch)), 0, (float) (GRAVITY * Math.cos(pitch))};
+            float[] gyro = new float[3];
+            filter.process(ACCELEROMETER, 0, accel);
+            filter.process(GYROSCOPE, 0, gyro);
+            assertEquals(0f, gyro[0], 1e-6f);
+            assertEquals(pitch, gyro[1], 1e-6f);
+
+            // A minute without samples, e.g. between triggered windows: fast yaw is not integrated
+            gyro[2] = 2f;
+            filter.process(GYROSCOPE, 60_000_000_000L, gyro);
+            assertEquals(0f, gyro[2], 1e-6f);
+
+            // An eighth of a turn about the vertical at 0.5 rad/s, which gravity can't correct
+            for (int i = 1; i <= 314; i++) {
+                gyro[0] = (float) (-0.5 * Math.sin(pitch));
+                gyro[1] = 0;
+                gyro[2] = (float) (0.5 * Math.cos(pitch));
+                filter.process(GYROSCOPE, 60_000_000_000L + i * PERIOD_NANOS, gyro);
+            }
+            assertEquals(Math.PI / 4, filter.getYaw(), 0.01);
+            assertEquals(pitch, filter.getPitch(), 0.01);
+
+            filter.reset();
+            float[] quaternion = new float[4];
+            filter.getQuaternion(quaternion);
+            assertArrayEquals(new float[]{1, 0, 0, 0}, quaternion, 0f);
+        }
+    }
+
+    @Test
+    public void rotationVectorToQuaternion_restoresTheScalarPart() {
+        // 90 degrees about z
+        float half = (float) Math.sqrt(0.5);
+        float[] quaternion = new float[4];
+        OrientationFilter.rotationVectorToQuaternion(0, 0, half, quaternion);
+        assertArrayEquals(new float[]{half, 0, 0, half}, quaternion, 1e-6f);
+        // Rounding can push the vector part just past unit length
+        OrientationFilter.rotationVectorToQuaternion(0, 0, 1.0000001f, quaternion);
+        assertEquals(0f, quaternion[0], 0f);
+    }
+}
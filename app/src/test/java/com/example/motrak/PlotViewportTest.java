@@ -0,0 +1,112 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PlotViewport}.
+ */
+public class PlotViewportTest {
+    private static PlotViewport viewport(int windowSize, float plotWidth) {
+        PlotViewport viewport = new PlotViewport();
+        viewport.setWindowSize(windowSize);
+        viewport.setPlotWidth(plotWidth);
+        return viewport;
+    }
+
+    @Test
+    public void unzoomed_showsTheWholeWindow() {
+        PlotViewport viewport = viewport(1000, 900);
+
+        assertEquals(0, viewport.getFirstVisible(1000));
+        assertEquals(999, viewport.getLastVisible(1000));
+        assertEquals(900f, viewport.toX(999), 1e-3f);
+        // Window still filling up
+        assertEquals(299, viewport.getLastVisible(300));
+        assertEquals(-1, viewport.getFirstVisible(0));
+    }
+
+    @Test
+    public void zoom_limitsTheVisibleRangePlusOneSampleEachSide() {
+        PlotViewport viewport = viewport(50_000, 1000);
+        viewport.zoom(500, 0);
+
+        // 50k samples at 500x: about 100 samples span the plot
+        assertEquals(0, viewport.getFirstVisible(50_000));
+        int last = viewport.getLastVisible(50_000);
+        assertTrue("last " + last, last >= 100 && last <= 101);
+
+        viewport.pan(10_000);
+        int first = viewport.getFirstVisible(50_000);
+        last = viewport.getLastVisible(50_000);
+        assertTrue(viewport.toX(first) <= 0 && viewport.toX(first + 1) > 0);
+        assertTrue(viewport.toX(last) >= 1000 && viewport.toX(last - 1) < 1000);
+        assertTrue(last - first <= 102);
+    }
+
+    @Test
+    public void zoom_keepsTheFocusPointInPlace() {
+        PlotViewport viewport = viewport(1000, 800);
+        float before = viewport.positionAt(300);
+        viewport.zoom(2.5f, 300);
+        assertEquals(before, viewport.positionAt(300), 1e-2f);
+        viewport.zoom(1.5f, 600);
+        assertEquals(3.75f, viewport.getScale(), 1e-6f);
+    }
+
+    @Test
+    public void panAndZoom_stayWithinTheWindow() {
+        PlotViewport viewport = viewport(100, 800);
+        viewport.pan(500);
+        assertEquals(0f, viewport.getOffset(), 0f);
+
+        viewport.zoom(100, 0);
+        assertEquals(viewport.getMaxScale(), viewport.getScale(), 0f);
+        viewport.pan(1e6f);
+        assertEquals(99, viewport.getLastVisible(100));
+        assertEquals(800f, viewport.toX(99), 1e-2f);
+
+        viewport.zoom(0.01f, 400);
+        assertFalse(viewport.isZoomed());
+        assertEquals(0f, viewport.getOffset(), 0f);
+    }
+
+    @Test
+    public void setWindowSize_reclampsTheZoom() {
+        PlotViewport viewport = viewport(100_000, 800);
+        viewport.zoom(1000, 0);
+        viewport.setWindowSize(200);
+        assertEquals(199f / (PlotViewport.MIN_VISIBLE_SAMPLES - 1), viewport.getScale(), 1e-4f);
+    }
+
+    @Test
+    public void history_canBeZoomedOutToAndPannedInto() {
+        PlotViewport viewport = viewport(1000, 800);
+        viewport.setHistorySize(9000);
+        assertTrue(viewport.canPan());
+        assertFalse(viewport.showsHistory());
+
+        // All the way out: history and window share the plot, newest sample on the right edge
+        viewport.zoom(0.01f, 800);
+        assertEquals(999f / 9999f, viewport.getScale(), 1e-6f);
+        assertEquals(-9000f, viewport.positionAt(0), 1e-2f);
+        assertEquals(800f, viewport.toX(999), 1e-2f);
+        assertTrue(viewport.showsHistory());
+
+        // Back to one window's width, then dragged right by half of it
+        viewport.zoom(1f / viewport.getScale(), 800);
+        assertEquals(0f, viewport.positionAt(0), 1e-2f);
+        viewport.pan(-400);
+        assertTrue(viewport.showsHistory());
+        int first = viewport.getFirstVisiblePosition();
+        assertTrue("first " + first, first >= -501 && first <= -499);
+        viewport.pan(-1e9f);
+        assertEquals(-9000f, viewport.positionAt(0), 1e-2f);
+
+        // Losing the history pulls the view back into the window
+        viewport.setHistorySize(0);
+        assertEquals(0f, viewport.positionAt(0), 0f);
+        assertFalse(viewport.canPan());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RateMeter}.
+ */
+public class RateMeterTest {
+    @Test
+    public void onSample_measuresRateFromTimestamps() {
+        RateMeter meter = new RateMeter();
+        long periodNanos = 5_000_000L; // 200 Hz
+        for (int i = 0; i <= 400; i++) {
+            meter.onSample(1_000_000_000L + i * periodNanos);
+        }
+
+        assertEquals(200f, meter.getRateHz(), 0.5f);
+        assertEquals(401, meter.getTotalSamples());
+    }
+
+    @Test
+    public void reset_clearsRate() {
+        RateMeter meter = new RateMeter();
+        for (int i = 0; i <= 200; i++) {
+            meter.onSample(i * 10_000_000L);
+        }
+        meter.reset();
+
+        assertEquals(0f, meter.getRateHz(), 0f);
+        assertEquals(0, meter.getTotalSamples());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RollingStats}.
+ */
+public class RollingStatsTest {
+    @Test
+    public void add_matchesAFullScanOfTheWindow() {
+        int capacity = 37;
+        RollingStats stats = new RollingStats(capacity);
+        float[][] history = new float[3][5000];
+        Random random = new Random(7);
+
+        for (int n = 0; n < 5000; n++) {
+            // Drifting offset plus noise, with occasional spikes
+            for (int axis = 0; axis < 3; axis++) {
+                float value = (float) (axis * 9.81 + Math.sin(n / 300.0) * 5 + random.nextGaussian());
+                if (random.nextInt(50) == 0) {
+                    value += random.nextBoolean() ? 20 : -20;
+                }
+                history[axis][n] = value;
+            }
+            stats.add(history[0][n], history[1][n], history[2][n]);
+
+            int from = Math.max(0, n + 1 - capacity);
+            int count = n + 1 - from;
+            assertEquals(count, stats.size());
+            for (int axis = 0; axis < 3; axis++) {
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                double sum = 0;
+                for (int i = from; i <= n; i++) {
+                    min = Math.min(min, history[axis][i]);
+                    max = Math.max(max, history[axis][i]);
+                    sum += history[axis][i];
+                }
+                double mean = sum / count;
+                double squares = 0;
+                for (int i = from; i <= n; i++) {
+                    squares += (history[axis][i] - mean) * (history[axis][i] - mean);
+                }
+
+                assertEquals("min at " + n, min, stats.getMin(axis), 0f);
+                assertEquals("max at " + n, max, stats.getMax(axis), 0f);
+                assertEquals("mean at " + n, mean, stats.getMean(axis), 1e-3);
+                assertEquals("stddev at " + n, Math.sqrt(squares / count), stats.getStdDev(axis), 1e-3);
+                assertEquals("rms at " + n, Math.sqrt(mean * mean + squares / count), stats.getRms(axis), 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void add_tracksExtremesLeavingTheWindow() {
+        RollingStats stats = new RollingStats(3);
+        float[] samples = {5, 1, 4, 3, 9, 2, 2, 2};
+        float[] expectedMin = {5, 1, 1, 1, 3, 2, 2, 2};
+        float[] expectedMax = {5, 5, 5, 4, 9, 9, 9, 2};
+        for (int i = 0; i < samples.length; i++) {
+            stats.add(samples[i], -samples[i], 0);
+            assertEquals(expectedMin[i], stats.getMin(0), 0f);
+            assertEquals(expectedMax[i], stats.getMax(0), 0f);
+            assertEquals(-expectedMax[i], stats.getMin(1), 0f);
+        }
+        assertEquals(0f, stats.getStdDev(0), 0f);
+    }
+
+    @Test
+    public void clear_emptiesTheWindow() {
+        RollingStats stats = new RollingStats(4);
+        stats.add(1, 2, 3);
+        stats.add(7, 8, 9);
+        stats.clear();
+
+        assertTrue(stats.isEmpty());
+        assertTrue(Float.isNaN(stats.getMin(0)));
+        assertTrue(Float.isNaN(stats.getMean(2)));
+
+        stats.add(4, 4, 4);
+        assertEquals(4f, stats.getMax(1), 0f);
+        assertEquals(4f, stats.getRms(2), 1e-6f);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SamplePipeline} with a {@link FilterChain}.
+ */
+public class SamplePipelineTest {
+    @Test
+    public void onSample_filtersLiveDataButRecordsRawValues() throws IOException {
+        SamplePipeline pipeline = new SamplePipeline(16);
+        pipeline.setChannels(new SensorChannel[]{new SensorChannel(1, 8)});
+        pipeline.setFilter(new FilterChain()
+                .add(new MovingAverageFilter(1, 2))
+                .add(new GravityRemovalFilter(4, 1f)));
+
+        File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        SessionRecorder recorder = new SessionRecorder(file, new BinaryRecordEncoder(1, 100f, 0, 0, false));
+        recorder.start();
+        pipeline.setRecorder(recorder);
+
+        assertTrue(pipeline.onSample(1, 0, 0, 2f, 0, 0));
+        assertTrue(pipeline.onSample(1, 10_000_000L, 0, 4f, 0, 0));
+        assertFalse(pipeline.onSample(4, 20_000_000L, 0, 1f, 1f, 1f));
+        assertEquals(3f, pipeline.getOutput()[0], 0f);
+        recorder.stop();
+
+        float[] queued = new float[2];
+        int[] count = {0};
+        pipeline.getQueue().drain((type, timestamp, x, y, z) -> queued[count[0]++] = x);
+        assertArrayEquals(new float[]{2f, 3f}, queued, 0f);
+        assertEquals(3f, pipeline.getChannel(1).getBuffer().getX(1), 0f);
+
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertEquals(2, reader.size());
+            assertEquals(4f, reader.getX(1), 0f);
+        }
+    }
+}
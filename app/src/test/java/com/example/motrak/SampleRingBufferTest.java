@@ -0,0 +1,105 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SampleRingBuffer}.
+ */
+public class SampleRingBufferTest {
+    @Test
+    public void add_keepsInsertionOrderBeforeWrapping() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        buffer.add(10, 1f, 2f, 3f);
+        buffer.add(20, 4f, 5f, 6f);
+
+        assertEquals(2, buffer.size());
+        assertEquals(10, buffer.getTimestamp(0));
+        assertEquals(1f, buffer.getX(0), 0f);
+        assertEquals(5f, buffer.getY(1), 0f);
+        assertEquals(6f, buffer.getZ(1), 0f);
+    }
+
+    @Test
+    public void add_evictsOldestWhenFull() {
+        SampleRingBuffer buffer = new SampleRingBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i, i, i * 10, i * 100);
+        }
+
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.getTimestamp(0));
+        assertEquals(4, buffer.getTimestamp(2));
+        assertEquals(2f, buffer.getX(0), 0f);
+        assertEquals(30f, buffer.get(1, 1), 0f);
+        assertEquals(400f, buffer.get(2, 2), 0f);
+    }
+
+    @Test
+    public void setCapacity_keepsMostRecentSamples() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.add(i, i, 0, 0);
+        }
+
+        buffer.setCapacity(2);
+        assertEquals(2, buffer.size());
+        assertEquals(4, buffer.getTimestamp(0));
+        assertEquals(5, buffer.getTimestamp(1));
+
+        buffer.setCapacity(8);
+        assertEquals(2, buffer.size());
+        buffer.add(6, 6, 0, 0);
+        assertEquals(6f, buffer.getX(2), 0f);
+    }
+
+    @Test
+    public void clear_resetsSize() {
+        SampleRingBuffer buffer = new SampleRingBuffer(2);
+        buffer.add(1, 1, 1, 1);
+        buffer.clear();
+
+        assertTrue(buffer.isEmpty());
+        buffer.add(2, 2, 2, 2);
+        assertEquals(2, buffer.getTimestamp(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_outOfRangeThrows() {
+        SampleRingBuffer buffer = new SampleRingBuffer(2);
+        buffer.add(1, 1, 1, 1);
+        buffer.getX(1);
+    }
+
+    @Test
+    public void add_doesNotAllocatePerSample() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        org.junit.Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        SampleRingBuffer buffer = new SampleRingBuffer(1000);
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up so the measured loop runs compiled code
+        fill(buffer, 200_000);
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        fill(buffer, 1_000_000);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Allow a little slack for the measurement itself, far below one object per sample
+        assertTrue("Allocated " + allocated + " bytes for 1M samples", allocated < 4096);
+        assertEquals(1000, buffer.size());
+    }
+
+    private static void fill(SampleRingBuffer buffer, int count) {
+        for (int i = 0; i < count; i++) {
+            float v = i * 0.001f;
+            buffer.add(i, v, -v, v * 2);
+        }
+    }
+}
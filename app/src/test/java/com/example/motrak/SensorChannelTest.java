@@ -0,0 +1,33 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SensorChannel}.
+ */
+public class SensorChannelTest {
+    @Test
+    public void find_routesByTypeWithoutMixingBuffers() {
+        SensorChannel[] channels = {new SensorChannel(1, 8), new SensorChannel(4, 8)};
+        for (int i = 0; i <= 100; i++) {
+            long timestamp = i * 10_000_000L;
+            SensorChannel.find(channels, 1).onSample(timestamp, timestamp, i, 0, 0);
+            if (i % 2 == 0) {
+                SensorChannel.find(channels, 4).onSample(timestamp, timestamp, -i, 0, 0);
+            }
+        }
+
+        assertNull(SensorChannel.find(channels, 11));
+        assertEquals(100f, channels[0].getMeasuredRateHz(), 0.5f);
+        assertEquals(50f, channels[1].getMeasuredRateHz(), 0.5f);
+        assertEquals(100f, channels[0].getBuffer().getX(7), 0f);
+        assertEquals(-100f, channels[1].getBuffer().getX(7), 0f);
+        assertEquals(20f, channels[1].getTimingStats().getMeanIntervalMs(), 1e-4f);
+
+        channels[1].clear();
+        assertTrue(channels[1].getBuffer().isEmpty());
+        assertEquals(8, channels[0].getBuffer().size());
+    }
+}
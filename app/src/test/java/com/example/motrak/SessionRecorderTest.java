@@ -0,0 +1,62 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SessionRecorder} with {@link CsvRecordEncoder}.
+ */
+public class SessionRecorderTest {
+    @Test
+    public void stop_writesEverySampleAcrossChunks() throws IOException {
+        File file = File.createTempFile("session", ".csv");
+        file.deleteOnExit();
+
+        // Small chunks force many hand-offs to the writer thread
+        SessionRecorder recorder = new SessionRecorder(file, new CsvRecordEncoder(), 1024, 64);
+        recorder.start();
+        int total = 2000;
+        for (int i = 0; i < total; i++) {
+            recorder.append(1, 1_000_000_000L + i * 5_000_000L, i, -i * 0.5f, 9.81f);
+            if (i % 100 == 0) {
+                // Give the writer a chance to recycle chunks
+                Thread.yield();
+            }
+        }
+        recorder.stop();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(CsvRecordEncoder.HEADER.trim(), lines.get(0));
+        assertEquals(total + 1 - recorder.getDroppedSamples(), lines.size());
+        assertEquals(recorder.getRecordedSamples(), lines.size() - 1);
+        assertEquals("0.000,0.000000,0.000000,9.810000", lines.get(1));
+        assertEquals("5.000,1.000000,-0.500000,9.810000", lines.get(2));
+    }
+
+    @Test
+    public void append_afterStopIsIgnored() throws IOException {
+        File file = File.createTempFile("session", ".csv");
+        file.deleteOnExit();
+
+        SessionRecorder recorder = new SessionRecorder(file, new CsvRecordEncoder());
+        recorder.start();
+        recorder.append(1, 0, 1, 2, 3);
+        recorder.stop();
+        recorder.append(1, 1, 4, 5, 6);
+
+        assertEquals(1, recorder.getRecordedSamples());
+        assertEquals(2, Files.readAllLines(file.toPath()).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsChunksSmallerThanARecord() {
+        new SessionRecorder(new File("unused"), new CsvRecordEncoder(), 16, 4);
+    }
+}
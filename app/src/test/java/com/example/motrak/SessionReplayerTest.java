@@ -0,0 +1,94 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SessionReplayer}.
+ */
+public class SessionReplayerTest {
+    private static final long START_NANOS = 5_000_000_000L;
+    private static final long PERIOD_NANOS = 2_500_000L; // 400 Hz
+
+    private static File record(int samples, boolean multiSensor) throws IOException {
+        File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+
+        BinaryRecordEncoder encoder = new BinaryRecordEncoder(1, 400f, START_NANOS, 0L, true, multiSensor);
+        SessionRecorder recorder = new SessionRecorder(file, encoder, 64 * 1024, 64);
+        recorder.start();
+        for (int i = 0; i < samples; i++) {
+            int type = multiSensor && i % 3 == 2 ? 4 : 1;
+            recorder.append(type, START_NANOS + i * PERIOD_NANOS, i, -i, i * 0.5f);
+        }
+        recorder.stop();
+        return file;
+    }
+
+    @Test
+    public void replay_deliversEverySampleInOrder() throws IOException {
+        try (BinarySessionReader reader = new BinarySessionReader(record(5000, true))) {
+            AtomicInteger count = new AtomicInteger();
+            SessionReplayer replayer = new SessionReplayer(reader, (type, timestamp, x, y, z) -> {
+                int i = count.getAndIncrement();
+                assertEquals(i % 3 == 2 ? 4 : 1, type);
+                assertEquals(START_NANOS + i * PERIOD_NANOS, timestamp);
+                assertEquals(i, x, 0f);
+                assertEquals(-i, y, 0f);
+                assertEquals(i * 0.5f, z, 0f);
+            });
+            replayer.setSpeed(SessionReplayer.SPEED_UNLIMITED);
+
+            assertTrue(replayer.replay());
+            assertEquals(5000, count.get());
+            assertEquals(5000, replayer.getPosition());
+            assertArrayEquals(new int[]{1, 4}, SessionReplayer.findSensorTypes(reader));
+        }
+    }
+
+    @Test
+    public void replay_isPacedByTheRecordedTimestamps() throws IOException {
+        // 200 samples at 400 Hz: half a second of recording
+        try (BinarySessionReader reader = new BinarySessionReader(record(201, false))) {
+            SessionReplayer replayer = new SessionReplayer(reader, (type, timestamp, x, y, z) -> {
+            });
+
+            replayer.setSpeed(4f);
+            long start = System.nanoTime();
+            assertTrue(replayer.replay());
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            assertTrue("took " + elapsedMs + " ms", elapsedMs >= 120 && elapsedMs < 400);
+        }
+    }
+
+    @Test
+    public void stop_endsAReplayInProgress() throws IOException, InterruptedException {
+        // Ten seconds of recording at real time
+        try (BinarySessionReader reader = new BinarySessionReader(record(4000, false))) {
+            CountDownLatch firstSample = new CountDownLatch(1);
+            SessionReplayer replayer = new SessionReplayer(reader,
+                    (type, timestamp, x, y, z) -> firstSample.countDown());
+            AtomicBoolean completed = new AtomicBoolean(true);
+            CountDownLatch finished = new CountDownLatch(1);
+
+            replayer.start((finishedReplayer, done) -> {
+                completed.set(done);
+                finished.countDown();
+            });
+            assertTrue(firstSample.await(1, TimeUnit.SECONDS));
+            replayer.stop();
+
+            assertTrue(finished.await(1, TimeUnit.SECONDS));
+            assertFalse(completed.get());
+            assertTrue(replayer.getPosition() < 4000);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SessionTimingStats}.
+ */
+public class SessionTimingStatsTest {
+    @Test
+    public void onSample_perfectClockHasNoJitter() {
+        SessionTimingStats stats = new SessionTimingStats();
+        for (int i = 0; i < 100; i++) {
+            long timestamp = i * 5_000_000L;
+            stats.onSample(timestamp, timestamp + 2_000_000L);
+        }
+
+        assertEquals(5f, stats.getMeanIntervalMs(), 1e-4f);
+        assertEquals(0f, stats.getJitterMs(), 1e-4f);
+        assertEquals(2f, stats.getMeanLatencyMs(), 1e-4f);
+        assertEquals(100, stats.getSampleCount());
+    }
+
+    @Test
+    public void onSample_measuresIntervalSpreadAndWorstLatency() {
+        SessionTimingStats stats = new SessionTimingStats();
+        // Alternating 4 ms / 6 ms intervals: mean 5 ms, standard deviation 1 ms
+        long timestamp = 0;
+        for (int i = 0; i <= 1000; i++) {
+            stats.onSample(timestamp, timestamp + (i == 500 ? 30_000_000L : 1_000_000L));
+            timestamp += i % 2 == 0 ? 4_000_000L : 6_000_000L;
+        }
+
+        assertEquals(5f, stats.getMeanIntervalMs(), 1e-3f);
+        assertEquals(1f, stats.getJitterMs(), 1e-3f);
+        assertEquals(6f, stats.getMaxIntervalMs(), 1e-4f);
+        assertEquals(4_000_000L, stats.getMinIntervalNanos());
+        assertEquals(30f, stats.getMaxLatencyMs(), 1e-4f);
+    }
+
+    @Test
+    public void onSample_followsTimestampsOfBatchedEvents() {
+        SessionTimingStats stats = new SessionTimingStats();
+        // 100 Hz delivered in bursts of 10: each burst arrives together, 1 ms after its last sample
+        for (int batch = 0; batch < 50; batch++) {
+            long arrival = batch * 100_000_000L + 91_000_000L;
+            for (int i = 0; i < 10; i++) {
+                stats.onSample(batch * 100_000_000L + i * 10_000_000L, arrival);
+            }
+        }
+
+        assertEquals(10f, stats.getMeanIntervalMs(), 1e-4f);
+        assertEquals(0f, stats.getJitterMs(), 1e-4f);
+        assertEquals(10_000_000L, stats.getMinIntervalNanos());
+        // The batching delay shows up as latency instead: 1 to 91 ms
+        assertEquals(46f, stats.getMeanLatencyMs(), 1e-3f);
+        assertEquals(91f, stats.getMaxLatencyMs(), 1e-4f);
+    }
+
+    @Test
+    public void reset_startsANewSession() {
+        SessionTimingStats stats = new SessionTimingStats();
+        stats.onSample(0, 1_000_000L);
+        stats.onSample(10_000_000L, 11_000_000L);
+        stats.reset();
+        stats.onSample(50_000_000L, 50_000_000L);
+
+        assertEquals(0f, stats.getMeanIntervalMs(), 0f);
+        assertEquals(0f, stats.getMaxLatencyMs(), 0f);
+        assertEquals(1, stats.getSampleCount());
+    }
+}
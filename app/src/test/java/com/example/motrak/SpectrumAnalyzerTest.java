@@ -0,0 +1,100 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SpectrumAnalyzer}.
+ */
+public class SpectrumAnalyzerTest {
+    private static final float RATE_HZ = 400f;
+    private static final long PERIOD_NANOS = 2_500_000L;
+
+    // x: 50 Hz, amplitude 2; y: 12.3 Hz, amplitude 0.5; z: gravity only
+    private static void feed(SpectrumAnalyzer analyzer, int from, int samples) {
+        for (int i = from; i < from + samples; i++) {
+            double t = i / (double) RATE_HZ;
+            analyzer.onSample(i * PERIOD_NANOS,
+                    (float) (2 * Math.sin(2 * Math.PI * 50 * t)),
+                    (float) (0.5 * Math.sin(2 * Math.PI * 12.3 * t) + 1),
+                    9.81f);
+        }
+    }
+
+    @Test
+    public void onSample_findsDominantFrequencyAndRmsPerAxis() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(1, 512, 128);
+        feed(analyzer, 0, 1024);
+
+        SpectrumAnalyzer.Spectrum spectrum = analyzer.newSpectrum();
+        assertTrue(analyzer.copyLatest(spectrum));
+
+        assertEquals(RATE_HZ, spectrum.getSampleRateHz(), 0.01f);
+        assertEquals(257, spectrum.getBinCount());
+        assertEquals(200f, spectrum.getBinFrequencyHz(256), 1e-3f);
+
+        assertEquals(50f, spectrum.getDominantFrequencyHz(0), 0.1f);
+        assertEquals(12.3f, spectrum.getDominantFrequencyHz(1), 0.3f);
+        // No vibration on z: only the (removed) gravity offset
+        assertEquals(0f, spectrum.getDominantFrequencyHz(2), 0f);
+
+        // 50 Hz falls exactly on bin 64
+        assertEquals(2f, spectrum.getAmplitude(0, 64), 0.01f);
+        assertEquals(0f, spectrum.getAmplitude(1, 64), 0.01f);
+
+        assertEquals(2 / Math.sqrt(2), spectrum.getRms(0), 0.01f);
+        assertEquals(0.5 / Math.sqrt(2), spectrum.getRms(1), 0.02f);
+        assertEquals(0f, spectrum.getRms(2), 1e-4f);
+    }
+
+    @Test
+    public void onSample_publishesOncePerHop() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(1, 256, 64);
+        SpectrumAnalyzer.Spectrum spectrum = analyzer.newSpectrum();
+
+        feed(analyzer, 0, 255);
+        assertFalse(analyzer.copyLatest(spectrum));
+
+        feed(analyzer, 255, 1);
+        assertTrue(analyzer.copyLatest(spectrum));
+        assertEquals(1, spectrum.getSequence());
+        assertEquals(255 * PERIOD_NANOS, spectrum.getTimestampNanos());
+        assertFalse(analyzer.copyLatest(spectrum));
+
+        feed(analyzer, 256, 64 * 3);
+        assertTrue(analyzer.copyLatest(spectrum));
+        assertEquals(4, spectrum.getSequence());
+    }
+
+    @Test
+    public void windowSizeFor_coversAboutTwoSeconds() {
+        assertEquals(512, SpectrumAnalyzer.windowSizeFor(400f));
+        assertEquals(64, SpectrumAnalyzer.windowSizeFor(16.7f));
+        assertEquals(SpectrumAnalyzer.MAX_WINDOW_SIZE, SpectrumAnalyzer.windowSizeFor(5000f));
+    }
+
+    @Test
+    public void onSample_doesNotAllocateInSteadyState() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        org.junit.Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(1, 512, 64);
+        SpectrumAnalyzer.Spectrum spectrum = analyzer.newSpectrum();
+        // Warm up so JIT compilation doesn't count
+        feed(analyzer, 0, 20_000);
+        analyzer.copyLatest(spectrum);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        feed(analyzer, 20_000, 100_000);
+        analyzer.copyLatest(spectrum);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("Allocated " + allocated + " bytes for 1500 windows", allocated < 4096);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SpscSampleQueue}.
+ */
+public class SpscSampleQueueTest {
+    @Test
+    public void drain_returnsSamplesInOrder() {
+        SpscSampleQueue queue = new SpscSampleQueue(4);
+        queue.offer(1, 1, 1f, 2f, 3f);
+        queue.offer(4, 2, 4f, 5f, 6f);
+
+        SampleRingBuffer target = new SampleRingBuffer(4);
+        int[] types = new int[2];
+        int[] count = {0};
+        assertEquals(2, queue.drain((sensorType, timestamp, x, y, z) -> {
+            types[count[0]++] = sensorType;
+            target.add(timestamp, x, y, z);
+        }));
+        assertEquals(0, queue.size());
+        assertArrayEquals(new int[]{1, 4}, types);
+        assertEquals(1, target.getTimestamp(0));
+        assertEquals(6f, target.getZ(1), 0f);
+    }
+
+    @Test
+    public void offer_dropsWhenFull() {
+        SpscSampleQueue queue = new SpscSampleQueue(2);
+        assertTrue(queue.offer(1, 1, 0, 0, 0));
+        assertTrue(queue.offer(1, 2, 0, 0, 0));
+        assertFalse(queue.offer(1, 3, 0, 0, 0));
+        assertEquals(1, queue.getDroppedCount());
+
+        queue.clear();
+        assertTrue(queue.offer(1, 4, 0, 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPowerOfTwo() {
+        new SpscSampleQueue(100);
+    }
+
+    @Test
+    public void producerAndConsumerThreads_preserveEverySample() throws InterruptedException {
+        final int total = 500_000;
+        SpscSampleQueue queue = new SpscSampleQueue(1024);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                while (!queue.offer(1, i, i, -i, i * 0.5f)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        long[] expected = {0};
+        boolean[] ordered = {true};
+        SpscSampleQueue.SampleConsumer consumer = (sensorType, timestamp, x, y, z) -> {
+            if (timestamp != expected[0] || x != (float) timestamp || y != -(float) timestamp) {
+                ordered[0] = false;
+            }
+            expected[0]++;
+        };
+        while (expected[0] < total) {
+            if (queue.drain(consumer, 64) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+
+        assertTrue(ordered[0]);
+        assertEquals(total, expected[0]);
+    }
+}
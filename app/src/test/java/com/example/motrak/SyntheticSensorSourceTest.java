@@ -0,0 +1,138 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SyntheticSensorSource}.
+ */
+public class SyntheticSensorSourceTest {
+    private static final int ACCELEROMETER = 1;
+    private static final int GYROSCOPE = 4;
+    // Stands in for elapsedRealtimeNanos in generate() tests
+    private static final long CLOCK_NANOS = 7_000_000_000L;
+
+    // Collects the x values of one sensor type
+    private static class Capture implements SensorDataListener {
+        final List<Float> x = new ArrayList<>();
+        final List<Long> timestamps = new ArrayList<>();
+        int otherSamples = 0;
+
+        @Override
+        public void onSensorDataUpdated(int sensorType, long timestampNanos, float x, float y, float z) {
+            if (sensorType != ACCELEROMETER) {
+                otherSamples++;
+                return;
+            }
+            this.x.add(x);
+            timestamps.add(timestampNanos);
+        }
+    }
+
+    @Test
+    public void generate_producesTheRequestedSine() {
+        SyntheticSensorSource source = new SyntheticSensorSource(() -> CLOCK_NANOS);
+        source.setAmplitude(2f);
+        source.setFrequency(10f);
+        source.setOffset(9.81f);
+        Capture capture = new Capture();
+        source.configure(new int[]{ACCELEROMETER, GYROSCOPE}, 1000, capture); // 1 kHz
+        source.generate(200);
+
+        assertEquals(200, capture.x.size());
+        assertEquals(200, capture.otherSamples);
+        // Quarter and three quarters of the 100-sample period
+        assertEquals(9.81f, capture.x.get(0), 1e-4f);
+        assertEquals(11.81f, capture.x.get(25), 1e-4f);
+        assertEquals(7.81f, capture.x.get(175), 1e-4f);
+        assertEquals(1_000_000L, capture.timestamps.get(1) - capture.timestamps.get(0));
+        // On the injected clock, which is elapsedRealtimeNanos on a device
+        assertEquals(CLOCK_NANOS, (long) capture.timestamps.get(0));
+        assertEquals(CLOCK_NANOS, source.getStartTimestampNanos());
+    }
+
+    @Test
+    public void generate_producesStepsAndLoopsRecordings() {
+        SyntheticSensorSource source = new SyntheticSensorSource(() -> CLOCK_NANOS);
+        source.setSignal(SyntheticSensorSource.SIGNAL_STEP);
+        source.setAmplitude(5f);
+        source.setFrequency(1f);
+        Capture capture = new Capture();
+        source.configure(new int[]{ACCELEROMETER}, 10_000, capture); // 100 Hz
+        source.generate(150);
+        assertEquals(0f, capture.x.get(49), 0f);
+        assertEquals(5f, capture.x.get(50), 0f);
+        assertEquals(5f, capture.x.get(99), 0f);
+        assertEquals(0f, capture.x.get(100), 0f);
+
+        source.setSignal(SyntheticSensorSource.SIGNAL_RECORDED);
+        source.setRecordedWaveform(new float[]{1, 2, 3}, new float[3], new float[3]);
+        capture.x.clear();
+        source.generate(5);
+        // Indexed by sample count, which continues at 150
+        assertEquals(1f, capture.x.get(0), 0f);
+        assertEquals(3f, capture.x.get(2), 0f);
+        assertEquals(2f, capture.x.get(4), 0f);
+    }
+
+    @Test
+    public void generate_isClampedToTheMaximumRate() {
+        SyntheticSensorSource source = new SyntheticSensorSource(() -> CLOCK_NANOS);
+        Capture capture = new Capture();
+        source.configure(new int[]{ACCELEROMETER}, 1, capture);
+        source.generate(2);
+        assertEquals(1_000_000_000L / SyntheticSensorSource.MAX_RATE_HZ,
+                capture.timestamps.get(1) - capture.timestamps.get(0));
+    }
+
+    @Test
+    public void start_feedsThePipelineAt10kHz() throws IOException, InterruptedException {
+        // Noisy accelerometer through a low-pass filter, buffered and recorded, as in a capture
+        SamplePipeline pipeline = new SamplePipeline(4096);
+        SensorChannel channel = new SensorChannel(ACCELEROMETER, 100_000);
+        pipeline.setChannels(new SensorChannel[]{channel});
+        pipeline.setFilter(BiquadFilter.lowPass(ACCELEROMETER, SyntheticSensorSource.MAX_RATE_HZ, 50f));
+
+        File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        // Real time needs a running clock; the recording is based on the same one
+        LongSupplier clock = System::nanoTime;
+        SyntheticSensorSource source = new SyntheticSensorSource(clock);
+        source.setSignal(SyntheticSensorSource.SIGNAL_NOISE);
+        source.setOffset(9.81f);
+        SessionRecorder recorder = new SessionRecorder(file, new BinaryRecordEncoder(ACCELEROMETER,
+                SyntheticSensorSource.MAX_RATE_HZ, clock.getAsLong(), 0L, true), 64 * 1024, 64);
+        recorder.start();
+        pipeline.setRecorder(recorder);
+
+        assertTrue(source.start(new int[]{ACCELEROMETER}, SyntheticSensorSource.MIN_SAMPLING_PERIOD_US,
+                (type, timestamp, x, y, z) -> {
+                    pipeline.onSample(type, timestamp, timestamp, x, y, z);
+                    pipeline.getQueue().clear();
+                }));
+        Thread.sleep(300);
+        source.stop();
+        assertFalse(source.isRunning());
+        recorder.stop();
+
+        // Roughly 3000 samples; the scheduler may add or take a tick or two
+        long count = source.getSampleCount();
+        assertTrue("generated " + count, count > 1500 && count < 4500);
+        assertEquals(count, channel.getBuffer().size());
+        SampleRingBuffer buffer = channel.getBuffer();
+        assertEquals(100_000L, buffer.getTimestamp(1) - buffer.getTimestamp(0));
+        // Filtered noise stays close to the offset
+        assertEquals(9.81f, buffer.getZ(buffer.size() - 1), 0.5f);
+
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            assertEquals(count, reader.size());
+        }
+    }
+}
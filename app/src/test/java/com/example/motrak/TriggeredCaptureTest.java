@@ -0,0 +1,122 @@
+package com.example.motrak;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TriggeredCapture}.
+ */
+public class TriggeredCaptureTest {
+    private static final int ACCELEROMETER = 1;
+    private static final int GYROSCOPE = 4;
+    private static final long PERIOD_NANOS = 10_000_000L; // 100 Hz
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    private static SessionRecorder startRecorder() throws IOException {
+        File file = File.createTempFile("session", BinarySessionFormat.FILE_EXTENSION);
+        file.deleteOnExit();
+        SessionRecorder recorder = new SessionRecorder(file,
+                new BinaryRecordEncoder(ACCELEROMETER, 100f, 0, 0, true), 4096, 4);
+        recorder.start();
+        return recorder;
+    }
+
+    // Sample indices of the recording, from the timestamps
+    private static int[] readIndices(SessionRecorder recorder) throws IOException {
+        recorder.stop();
+        try (BinarySessionReader reader = new BinarySessionReader(recorder.getFile())) {
+            int[] indices = new int[reader.size()];
+            long timestamp = 0;
+            for (int i = 0; i < indices.length; i++) {
+                timestamp = reader.getTimestampNanos(i, timestamp);
+                indices[i] = (int) (timestamp / PERIOD_NANOS);
+            }
+            return indices;
+        }
+    }
+
+    private static void assertRange(int[] indices, int offset, int first, int last) {
+        for (int i = first; i <= last; i++) {
+            assertEquals(i, indices[offset + i - first]);
+        }
+    }
+
+    @Test
+    public void idleSession_writesNothing() throws IOException {
+        SessionRecorder recorder = startRecorder();
+        TriggeredCapture capture = new TriggeredCapture(SECOND_NANOS, SECOND_NANOS, 150);
+        for (int i = 0; i < 1000; i++) {
+            capture.onSample(recorder, ACCELEROMETER, i * PERIOD_NANOS, 0, 0, EventDetector.GRAVITY);
+        }
+        assertFalse(capture.isCapturing());
+        assertEquals(0, readIndices(recorder).length);
+        assertEquals(BinarySessionFormat.HEADER_SIZE, recorder.getFile().length());
+        // The last 150 are still held in the ring
+        assertEquals(850, capture.getDiscardedSamples());
+        assertEquals(0, capture.getPersistedSamples());
+    }
+
+    @Test
+    public void thresholdTrigger_keepsTheWindowAroundIt() throws IOException {
+        SamplePipeline pipeline = new SamplePipeline(16);
+        pipeline.setChannels(new SensorChannel[]{new SensorChannel(ACCELEROMETER, 8)});
+        // One second before, two after
+        TriggeredCapture capture = new TriggeredCapture(SECOND_NANOS, 2 * SECOND_NANOS,
+                TriggeredCapture.capacityFor(SECOND_NANOS, 100f));
+        EventDetector detector = new EventDetector();
+        detector.addRule(new EventDetector.ThresholdRule(ACCELEROMETER, EventDetector.AXIS_MAGNITUDE, 20f, 15f));
+        detector.addListener(capture);
+        pipeline.setEventDetector(detector);
+        pipeline.setTriggeredCapture(capture);
+        SessionRecorder recorder = startRecorder();
+        pipeline.setRecorder(recorder);
+
+        for (int i = 0; i < 1000; i++) {
+            float z = i == 500 ? 25f : EventDetector.GRAVITY;
+            pipeline.onSample(ACCELEROMETER, i * PERIOD_NANOS, 0, 0, 0, z);
+        }
+
+        int[] indices = readIndices(recorder);
+        assertEquals(301, indices.length);
+        assertRange(indices, 0, 400, 700);
+        assertEquals(1, capture.getTriggerCount());
+        assertEquals(301, capture.getPersistedSamples());
+    }
+
+    @Test
+    public void triggers_extendTheWindowAndKeepAllSensors() throws IOException {
+        SessionRecorder recorder = startRecorder();
+        TriggeredCapture capture = new TriggeredCapture(SECOND_NANOS / 10, SECOND_NANOS / 2, 100);
+        for (int i = 0; i < 400; i++) {
+            if (i == 100 || i == 140) {
+                capture.trigger();
+            }
+            // A free fall confirmed at 300 that started at 290
+            if (i == 300) {
+                capture.onEvent(null, EventDetector.EVENT_FREE_FALL, 290 * PERIOD_NANOS, 0.5f);
+            }
+            // Threshold exits don't trigger
+            if (i == 250) {
+                capture.onEvent(null, EventDetector.EVENT_THRESHOLD_EXIT, i * PERIOD_NANOS, 0f);
+            }
+            capture.onSample(recorder, ACCELEROMETER, i * PERIOD_NANOS, 0, 0, 1f);
+            capture.onSample(recorder, GYROSCOPE, i * PERIOD_NANOS, 0, 0, 2f);
+        }
+
+        int[] indices = readIndices(recorder);
+        // 90..190 for the two manual triggers, 280..340 for the fall; both sensors each time
+        assertEquals(2 * (101 + 61), indices.length);
+        for (int i = 0; i < indices.length; i += 2) {
+            assertEquals(indices[i], indices[i + 1]);
+        }
+        assertEquals(90, indices[0]);
+        assertEquals(190, indices[2 * 101 - 1]);
+        assertEquals(280, indices[2 * 101]);
+        assertEquals(340, indices[indices.length - 1]);
+        assertEquals(3, capture.getTriggerCount());
+    }
+}
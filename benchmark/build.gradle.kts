@@ -0,0 +1,72 @@
+// Plain-JVM microbenchmarks for the sample ingestion, render preparation and export paths.
+// Runs without a device or emulator:
+//   ./gradlew :benchmark:jmh
+// Results (ns/sample and, from the gc profiler, gc.alloc.rate.norm = bytes/sample) are
+// written to benchmark/build/results/jmh/results.txt.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The app classes under test have no Android dependencies, so they are compiled
+// straight from the app sources. Add new pure-Java classes here to benchmark them.
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("../app/src/main/java"))
+            include(
+                "com/example/motrak/BinaryRecordEncoder.java",
+                "com/example/motrak/BinarySessionFormat.java",
+                "com/example/motrak/BinarySessionReader.java",
+                "com/example/motrak/BiquadFilter.java",
+                "com/example/motrak/ComplementaryFilter.java",
+                "com/example/motrak/CompressedBlockDecoder.java",
+                "com/example/motrak/CompressedRecordEncoder.java",
+                "com/example/motrak/CsvRecordEncoder.java",
+                "com/example/motrak/EventDetector.java",
+                "com/example/motrak/Fft.java",
+                "com/example/motrak/FilterChain.java",
+                "com/example/motrak/FrameStats.java",
+                "com/example/motrak/GravityRemovalFilter.java",
+                "com/example/motrak/HistoryPyramid.java",
+                "com/example/motrak/MinMaxDecimator.java",
+                "com/example/motrak/MovingAverageFilter.java",
+                "com/example/motrak/NumberFormatter.java",
+                "com/example/motrak/OrientationFilter.java",
+                "com/example/motrak/PlotViewport.java",
+                "com/example/motrak/RateMeter.java",
+                "com/example/motrak/RollingStats.java",
+                "com/example/motrak/SampleFilter.java",
+                "com/example/motrak/SamplePipeline.java",
+                "com/example/motrak/SampleRingBuffer.java",
+                "com/example/motrak/SensorChannel.java",
+                "com/example/motrak/SensorDataListener.java",
+                "com/example/motrak/SensorSource.java",
+                "com/example/motrak/SessionRecorder.java",
+                "com/example/motrak/SessionReplayer.java",
+                "com/example/motrak/SessionTimingStats.java",
+                "com/example/motrak/SpectrumAnalyzer.java",
+                "com/example/motrak/SpscSampleQueue.java",
+                "com/example/motrak/SyntheticSensorSource.java",
+                "com/example/motrak/TriggeredCapture.java"
+            )
+        }
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    profilers = listOf("gc")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    timeOnIteration = "2s"
+    warmup = "1s"
+    // e.g. ./gradlew :benchmark:jmh -Pjmh.includes=Ingest
+    providers.gradleProperty("jmh.includes").orNull?.let { includes = listOf(it) }
+}
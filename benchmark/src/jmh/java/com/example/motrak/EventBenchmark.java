@@ -0,0 +1,55 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Sensor-thread cost of event detection per sample, with the app's shake and free-fall
+// rules alone and with a threshold and a peak rule on every axis added
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventBenchmark {
+    private static final int BATCH = 1024;
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    @Param({"app", "all"})
+    public String rules;
+
+    private EventDetector detector;
+    private SyntheticStream stream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        detector = new EventDetector();
+        detector.addRule(new EventDetector.ShakeRule(1, 1.5f * EventDetector.GRAVITY, 4, SECOND_NANOS));
+        detector.addRule(new EventDetector.FreeFallRule(1, 0.3f * EventDetector.GRAVITY, SECOND_NANOS / 10));
+        if (rules.equals("all")) {
+            for (int axis = EventDetector.AXIS_X; axis <= EventDetector.AXIS_MAGNITUDE; axis++) {
+                // Crossed every cycle of the stream's sines
+                detector.addRule(new EventDetector.ThresholdRule(1, axis, 0.3f, 0.1f));
+                detector.addRule(new EventDetector.PeakRule(1, axis, 0.2f, 0.3f, SECOND_NANOS / 20));
+            }
+        }
+        stream = new SyntheticStream(400);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long onSample() {
+        for (int i = 0; i < BATCH; i++) {
+            stream.next();
+            detector.onSample(1, stream.timestamp(), stream.x(), stream.y(), stream.z());
+        }
+        return detector.getEventCount();
+    }
+}
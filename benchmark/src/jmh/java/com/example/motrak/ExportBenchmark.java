@@ -0,0 +1,125 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Export cost per sample: the streaming CSV encoder, the legacy StringBuilder layout of
+// GraphView.exportDataAsCsv(), the compressed session encoder, and converting a recorded
+// session to CSV from the plain and the compressed binary format.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExportBenchmark {
+    private static final int SAMPLES = 100_000;
+
+    private final ByteBuffer chunk = ByteBuffer.allocateDirect(SessionRecorder.DEFAULT_CHUNK_SIZE);
+    private SampleRingBuffer data;
+    private File session;
+    private File compressedSession;
+    private File csv;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticStream stream = new SyntheticStream(400);
+        data = new SampleRingBuffer(SAMPLES);
+
+        session = File.createTempFile("bench", BinarySessionFormat.FILE_EXTENSION);
+        csv = File.createTempFile("bench", ".csv");
+        compressedSession = File.createTempFile("bench", BinarySessionFormat.FILE_EXTENSION);
+        SessionRecorder recorder = new SessionRecorder(session,
+                new BinaryRecordEncoder(1, 400f, stream.timestamp(), 0L, true), 64 * 1024, 64);
+        SessionRecorder compressedRecorder = new SessionRecorder(compressedSession,
+                new CompressedRecordEncoder(1, 400f, stream.timestamp(), 0L, false), 64 * 1024, 64);
+        recorder.start();
+        compressedRecorder.start();
+        for (int i = 0; i < SAMPLES; i++) {
+            stream.next();
+            data.add(stream.timestamp(), stream.x(), stream.y(), stream.z());
+            recorder.append(1, stream.timestamp(), stream.x(), stream.y(), stream.z());
+            compressedRecorder.append(1, stream.timestamp(), stream.x(), stream.y(), stream.z());
+        }
+        recorder.stop();
+        compressedRecorder.stop();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.delete();
+        compressedSession.delete();
+        csv.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public ByteBuffer encodeCsv() {
+        CsvRecordEncoder encoder = new CsvRecordEncoder();
+        chunk.clear();
+        encoder.writeHeader(chunk);
+        for (int i = 0; i < SAMPLES; i++) {
+            if (chunk.remaining() < encoder.maxRecordBytes()) {
+                chunk.clear();
+            }
+            encoder.encode(chunk, 1, data.getTimestamp(i), data.getX(i), data.getY(i), data.getZ(i));
+        }
+        return chunk;
+    }
+
+    // Blocks are compressed as they fill, on the capture thread
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public ByteBuffer encodeCompressed() {
+        CompressedRecordEncoder encoder = new CompressedRecordEncoder(1, 400f, data.getTimestamp(0), 0L, false);
+        chunk.clear();
+        encoder.writeHeader(chunk);
+        for (int i = 0; i < SAMPLES; i++) {
+            if (chunk.remaining() < encoder.maxRecordBytes()) {
+                chunk.clear();
+            }
+            encoder.encode(chunk, 1, data.getTimestamp(i), data.getX(i), data.getY(i), data.getZ(i));
+        }
+        return chunk;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public String stringBuilderCsv() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Time (ms),X,Y,Z\n");
+        for (int i = 0; i < SAMPLES; i++) {
+            builder.append(data.getTimestamp(i) / 1e6).append(",")
+                    .append(data.getX(i)).append(",")
+                    .append(data.getY(i)).append(",")
+                    .append(data.getZ(i)).append("\n");
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void binaryToCsv() throws IOException {
+        try (BinarySessionReader reader = new BinarySessionReader(session)) {
+            reader.exportCsv(csv);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void compressedToCsv() throws IOException {
+        try (BinarySessionReader reader = new BinarySessionReader(compressedSession)) {
+            reader.exportCsv(csv);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Added sensor-thread cost of the live filter chain, per sample, at the fastest capture
+// rate. Compare with IngestBenchmark (recording "none") for the cost of the rest of the pipeline.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterBenchmark {
+    private static final int BATCH = 1024;
+    private static final int ACCELEROMETER = 1;
+    private static final int GYROSCOPE = 4;
+    private static final float RATE_HZ = 400f;
+
+    @Param({"none", "lowPass", "movingAverage", "removeGravity", "complementary", "madgwick", "mahony", "chain"})
+    public String filter;
+
+    private SamplePipeline pipeline;
+    private SyntheticStream stream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pipeline = new SamplePipeline(4096);
+        pipeline.setChannels(new SensorChannel[]{
+                new SensorChannel(ACCELEROMETER, 1000), new SensorChannel(GYROSCOPE, 1000)});
+        pipeline.setFilter(createFilter(filter));
+        stream = new SyntheticStream((int) RATE_HZ);
+    }
+
+    private static SampleFilter createFilter(String name) {
+        switch (name) {
+            case "lowPass":
+                return BiquadFilter.lowPass(ACCELEROMETER, RATE_HZ, 5f);
+            case "movingAverage":
+                return new MovingAverageFilter(ACCELEROMETER, 20);
+            case "removeGravity":
+                return new GravityRemovalFilter(ACCELEROMETER, 0.5f);
+            case "complementary":
+                return new ComplementaryFilter(ACCELEROMETER, GYROSCOPE, 0.5f);
+            case "madgwick":
+                return OrientationFilter.madgwick(ACCELEROMETER, GYROSCOPE, 0.1f);
+            case "mahony":
+                return OrientationFilter.mahony(ACCELEROMETER, GYROSCOPE, 1f, 0.1f);
+            case "chain":
+                return new FilterChain()
+                        .add(new GravityRemovalFilter(ACCELEROMETER, 0.5f))
+                        .add(BiquadFilter.lowPass(ACCELEROMETER, RATE_HZ, 5f))
+                        .add(new ComplementaryFilter(ACCELEROMETER, GYROSCOPE, 0.5f));
+            default:
+                return null;
+        }
+    }
+
+    // Interleaved accelerometer and gyroscope events, as in a multi-sensor session
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void onSample() {
+        SpscSampleQueue queue = pipeline.getQueue();
+        for (int i = 0; i < BATCH; i++) {
+            stream.next();
+            long timestamp = stream.timestamp();
+            int type = (i & 1) == 0 ? ACCELEROMETER : GYROSCOPE;
+            pipeline.onSample(type, timestamp, timestamp, stream.x(), stream.y(), stream.z());
+        }
+        // Stand-in for the UI thread so the queue never fills up
+        queue.clear();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// UI-thread cost in GraphView: appending a sample (GraphView.updateData / queue drain),
+// preparing the plotted points for one frame (preparePlot + the coordinate mapping in
+// drawDataLine) for the whole window and zoomed in to 100 samples, and finding the
+// auto-scale range from the rolling statistics versus a scan. Path and Canvas are Android
+// classes, so the mapped coordinates are consumed by a Blackhole instead of Path.lineTo().
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GraphDataBenchmark {
+    private static final int BATCH = 1024;
+    // Plot width in pixels, as on a typical phone in portrait
+    private static final int COLUMNS = 920;
+    private static final int DECIMATION_POINTS_PER_COLUMN = 4;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int maxDataPoints;
+
+    @Param({"50", "400"})
+    public int rateHz;
+
+    private SampleRingBuffer data;
+    private MinMaxDecimator decimator;
+    private RollingStats stats;
+    private PlotViewport fullViewport;
+    private PlotViewport zoomedViewport;
+    private SpscSampleQueue queue;
+    private SpscSampleQueue.SampleConsumer consumer;
+    private SyntheticStream stream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = new SampleRingBuffer(maxDataPoints);
+        // Same rule as GraphView.updateDecimator()
+        decimator = maxDataPoints > COLUMNS * DECIMATION_POINTS_PER_COLUMN
+                ? new MinMaxDecimator(maxDataPoints, COLUMNS) : null;
+        stats = new RollingStats(maxDataPoints);
+        fullViewport = new PlotViewport();
+        fullViewport.setWindowSize(maxDataPoints);
+        fullViewport.setPlotWidth(COLUMNS);
+        // About 100 samples on screen, in the middle of the window
+        zoomedViewport = new PlotViewport();
+        zoomedViewport.setWindowSize(maxDataPoints);
+        zoomedViewport.setPlotWidth(COLUMNS);
+        zoomedViewport.zoom(maxDataPoints / 100f, COLUMNS / 2f);
+        queue = new SpscSampleQueue(2048);
+        consumer = (type, timestamp, x, y, z) -> append(timestamp, x, y, z);
+        stream = new SyntheticStream(rateHz);
+
+        // Start from a full window
+        for (int i = 0; i < maxDataPoints; i++) {
+            stream.next();
+            append(stream.timestamp(), stream.x(), stream.y(), stream.z());
+        }
+    }
+
+    private void append(long timestamp, float x, float y, float z) {
+        data.add(timestamp, x, y, z);
+        stats.add(x, y, z);
+        if (decimator != null) {
+            decimator.add(x, y, z);
+        }
+    }
+
+    // Producer and consumer on one thread: offer a batch, then drain it as doFrame() does
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void appendThroughQueue() {
+        for (int i = 0; i < BATCH; i++) {
+            stream.next();
+            queue.offer(1, stream.timestamp(), stream.x(), stream.y(), stream.z());
+        }
+        queue.drain(consumer);
+    }
+
+    // One frame's worth of point preparation for all three axes
+    @Benchmark
+    public void preparePlot(Blackhole blackhole) {
+        preparePlot(fullViewport, blackhole);
+    }
+
+    // Same, zoomed in: cost should not depend on maxDataPoints
+    @Benchmark
+    public void preparePlotZoomed(Blackhole blackhole) {
+        preparePlot(zoomedViewport, blackhole);
+    }
+
+    // Same steps as GraphView.onDraw() with preparePlot() and drawDataLine()
+    private void preparePlot(PlotViewport viewport, Blackhole blackhole) {
+        float startX = 80f;
+        float graphHeight = 1000f;
+        float minValue = -15f;
+        float maxValue = 15f;
+        int first = viewport.getFirstVisible(data.size());
+        int last = viewport.getLastVisible(data.size());
+        boolean decimated = decimator != null && last - first + 1 > COLUMNS * DECIMATION_POINTS_PER_COLUMN;
+
+        for (int axis = 0; axis < 3; axis++) {
+            int points = decimated ? decimator.collect(axis, first, last) : last - first + 1;
+            for (int i = 0; i < points; i++) {
+                float position = decimated ? decimator.getPosition(i) : first + i;
+                float value = decimated ? decimator.getValue(i) : data.get(first + i, axis);
+                float normalizedValue = (value - minValue) / (maxValue - minValue);
+                blackhole.consume(startX + viewport.toX(position));
+                blackhole.consume(80f + graphHeight - normalizedValue * graphHeight);
+            }
+        }
+    }
+
+    // Per-frame y range as GraphView.updateAutoScale() reads it: O(1) in the window length
+    @Benchmark
+    public float autoScaleRange() {
+        float low = Math.min(stats.getMin(0), Math.min(stats.getMin(1), stats.getMin(2)));
+        float high = Math.max(stats.getMax(0), Math.max(stats.getMax(1), stats.getMax(2)));
+        return high - low;
+    }
+
+    // The same range found by scanning the window, for comparison
+    @Benchmark
+    public float autoScaleRangeByScan() {
+        float low = Float.POSITIVE_INFINITY;
+        float high = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < data.size(); i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                float value = data.get(i, axis);
+                low = Math.min(low, value);
+                high = Math.max(high, value);
+            }
+        }
+        return high - low;
+    }
+}
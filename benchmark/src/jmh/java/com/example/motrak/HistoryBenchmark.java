@@ -0,0 +1,77 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// GraphView's history: the per-sample cost of keeping it, and one frame's worth of points
+// for all three axes zoomed out over the last minute or the whole session. The frame cost
+// should follow the plot width, not the number of samples behind it.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HistoryBenchmark {
+    private static final int BATCH = 1024;
+    private static final int RATE_HZ = 400;
+    // Plot width in pixels, as in GraphDataBenchmark
+    private static final int COLUMNS = 920;
+    // Same sizes as GraphView
+    private static final int CAPACITY = 16_384;
+
+    @Param({"60", "3600"})
+    public int sessionSeconds;
+
+    private HistoryPyramid history;
+    private SyntheticStream stream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        history = new HistoryPyramid(CAPACITY, 10, 3, CAPACITY);
+        stream = new SyntheticStream(RATE_HZ);
+        for (long i = 0; i < (long) sessionSeconds * RATE_HZ; i++) {
+            stream.next();
+            history.add(stream.timestamp(), stream.x(), stream.y(), stream.z());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long add() {
+        for (int i = 0; i < BATCH; i++) {
+            stream.next();
+            history.add(stream.timestamp(), stream.x(), stream.y(), stream.z());
+        }
+        return history.getTotalSamples();
+    }
+
+    @Benchmark
+    public float collectSession() {
+        return collect(history.getOldestSequence());
+    }
+
+    @Benchmark
+    public float collectLastMinute() {
+        return collect(history.getTotalSamples() - 60L * RATE_HZ);
+    }
+
+    private float collect(long from) {
+        long to = history.getTotalSamples() - 1;
+        float sum = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            int points = history.collect(axis, from, to, to, COLUMNS);
+            for (int i = 0; i < points; i++) {
+                sum += history.getPosition(i) + history.getValue(i);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Sensor-thread cost of one event: what SensorDataManager.onSourceSample does after
+// the source delivers it (channel buffer, rate and timing stats, UI queue, recorder).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IngestBenchmark {
+    private static final int BATCH = 1024;
+    private static final int SENSOR_TYPE = 1;
+
+    @Param({"100", "1000", "10000"})
+    public int maxDataPoints;
+
+    @Param({"50", "400"})
+    public int rateHz;
+
+    // Session recording format, if any; "triggered" is compressed behind an idle trigger gate
+    @Param({"none", "csv", "binary", "compressed", "triggered"})
+    public String recording;
+
+    private SamplePipeline pipeline;
+    private SyntheticStream stream;
+    private SessionRecorder recorder;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pipeline = new SamplePipeline(4096);
+        pipeline.setChannels(new SensorChannel[]{new SensorChannel(SENSOR_TYPE, maxDataPoints)});
+        stream = new SyntheticStream(rateHz);
+
+        if (!recording.equals("none")) {
+            file = File.createTempFile("bench", recording.equals("csv") ? ".csv" : BinarySessionFormat.FILE_EXTENSION);
+            SessionRecorder.RecordEncoder encoder;
+            if (recording.equals("csv")) {
+                encoder = new CsvRecordEncoder();
+            } else if (recording.equals("compressed") || recording.equals("triggered")) {
+                encoder = new CompressedRecordEncoder(SENSOR_TYPE, rateHz, stream.timestamp(), 0L, false);
+            } else {
+                encoder = new BinaryRecordEncoder(SENSOR_TYPE, rateHz, stream.timestamp(), 0L, true);
+            }
+            recorder = new SessionRecorder(file, encoder);
+            recorder.start();
+            if (recording.equals("triggered")) {
+                long windowNanos = 5_000_000_000L;
+                pipeline.setTriggeredCapture(new TriggeredCapture(windowNanos, windowNanos,
+                        TriggeredCapture.capacityFor(windowNanos, rateHz)));
+            }
+            pipeline.setRecorder(recorder);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (recorder != null) {
+            recorder.stop();
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void onSample() {
+        SpscSampleQueue queue = pipeline.getQueue();
+        for (int i = 0; i < BATCH; i++) {
+            stream.next();
+            long timestamp = stream.timestamp();
+            pipeline.onSample(SENSOR_TYPE, timestamp, timestamp, stream.x(), stream.y(), stream.z());
+        }
+        // Stand-in for the UI thread so the queue never fills up
+        queue.clear();
+    }
+}
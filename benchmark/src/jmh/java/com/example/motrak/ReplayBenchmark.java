@@ -0,0 +1,79 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// A recorded session replayed as fast as possible through the same pipeline as live
+// capture, with the UI queue drained the way GraphView does once per frame. Unlike the
+// synthetic streams of the other benchmarks, this covers reading the session file too.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReplayBenchmark {
+    private static final int SAMPLES = 100_000;
+    private static final int ACCELEROMETER = 1;
+
+    @Param({"raw", "lowPass"})
+    public String filter;
+
+    private File session;
+    private BinarySessionReader reader;
+    private SamplePipeline pipeline;
+    private final SpscSampleQueue.SampleConsumer sink = (type, timestamp, x, y, z) -> {
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticStream stream = new SyntheticStream(400);
+        session = File.createTempFile("bench", BinarySessionFormat.FILE_EXTENSION);
+        SessionRecorder recorder = new SessionRecorder(session,
+                new BinaryRecordEncoder(ACCELEROMETER, 400f, stream.timestamp(), 0L, true), 64 * 1024, 64);
+        recorder.start();
+        for (int i = 0; i < SAMPLES; i++) {
+            stream.next();
+            recorder.append(ACCELEROMETER, stream.timestamp(), stream.x(), stream.y(), stream.z());
+        }
+        recorder.stop();
+        reader = new BinarySessionReader(session);
+
+        pipeline = new SamplePipeline(4096);
+        pipeline.setChannels(new SensorChannel[]{new SensorChannel(ACCELEROMETER, 1000)});
+        if (filter.equals("lowPass")) {
+            pipeline.setFilter(BiquadFilter.lowPass(ACCELEROMETER, 400f, 5f));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        session.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public boolean replayUnlimited() {
+        SpscSampleQueue queue = pipeline.getQueue();
+        SessionReplayer replayer = new SessionReplayer(reader, (type, timestamp, x, y, z) -> {
+            pipeline.onSample(type, timestamp, timestamp, x, y, z);
+            // Keep the queue from filling up, as the render loop would
+            if (queue.size() >= 1024) {
+                queue.drain(sink);
+            }
+        });
+        replayer.setSpeed(SessionReplayer.SPEED_UNLIMITED);
+        return replayer.replay();
+    }
+}
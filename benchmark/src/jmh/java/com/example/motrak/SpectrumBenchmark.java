@@ -0,0 +1,48 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Sensor-thread cost of spectrum analysis, per sample: the FFT of every hop is amortized
+// over the samples that trigger it. The hop is a quarter window, as in MainActivity.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpectrumBenchmark {
+    private static final int BATCH = 1024;
+
+    @Param({"64", "512", "1024"})
+    public int windowSize;
+
+    private SpectrumAnalyzer analyzer;
+    private SpectrumAnalyzer.Spectrum spectrum;
+    private SyntheticStream stream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        analyzer = new SpectrumAnalyzer(1, windowSize, windowSize / 4);
+        spectrum = analyzer.newSpectrum();
+        stream = new SyntheticStream(400);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean onSample() {
+        for (int i = 0; i < BATCH; i++) {
+            stream.next();
+            analyzer.onSample(stream.timestamp(), stream.x(), stream.y(), stream.z());
+        }
+        // What the UI thread does once per frame
+        return analyzer.copyLatest(spectrum);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.motrak;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// SyntheticSensorSource driving the capture pipeline at its maximum rate, per sample.
+// "generate" alone is the cost of the signal, to subtract when the source is used as a
+// load generator for the stages behind it.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SyntheticSourceBenchmark {
+    private static final int BATCH = 1024;
+    private static final int SENSOR_TYPE = 1;
+
+    @Param({"sine", "noise", "step", "recorded"})
+    public String signal;
+
+    private SyntheticSensorSource source;
+    private SyntheticSensorSource pipelineSource;
+    private SamplePipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pipeline = new SamplePipeline(4096);
+        pipeline.setChannels(new SensorChannel[]{new SensorChannel(SENSOR_TYPE, 10_000)});
+        pipeline.setFilter(BiquadFilter.lowPass(SENSOR_TYPE, SyntheticSensorSource.MAX_RATE_HZ, 50f));
+
+        source = createSource();
+        source.configure(new int[]{SENSOR_TYPE}, SyntheticSensorSource.MIN_SAMPLING_PERIOD_US,
+                (type, timestamp, x, y, z) -> {
+                });
+        pipelineSource = createSource();
+        pipelineSource.configure(new int[]{SENSOR_TYPE}, SyntheticSensorSource.MIN_SAMPLING_PERIOD_US,
+                (type, timestamp, x, y, z) -> pipeline.onSample(type, timestamp, timestamp, x, y, z));
+    }
+
+    private SyntheticSensorSource createSource() {
+        // No elapsedRealtimeNanos off the device; only generate() is measured
+        SyntheticSensorSource created = new SyntheticSensorSource(System::nanoTime);
+        created.setFrequency(5f);
+        created.setOffset(9.81f);
+        switch (signal) {
+            case "noise":
+                created.setSignal(SyntheticSensorSource.SIGNAL_NOISE);
+                break;
+            case "step":
+                created.setSignal(SyntheticSensorSource.SIGNAL_STEP);
+                break;
+            case "recorded":
+                SyntheticStream stream = new SyntheticStream(SyntheticSensorSource.MAX_RATE_HZ);
+                float[][] axes = new float[3][4096];
+                for (int i = 0; i < 4096; i++) {
+                    stream.next();
+                    axes[0][i] = stream.x();
+                    axes[1][i] = stream.y();
+                    axes[2][i] = stream.z();
+                }
+                created.setSignal(SyntheticSensorSource.SIGNAL_RECORDED);
+                created.setRecordedWaveform(axes[0], axes[1], axes[2]);
+                break;
+            default:
+                created.setSignal(SyntheticSensorSource.SIGNAL_SINE);
+                break;
+        }
+        return created;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void generate() {
+        source.generate(BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void generateIntoPipeline() {
+        pipelineSource.generate(BATCH);
+        // Stand-in for the UI thread so the queue never fills up
+        pipeline.getQueue().clear();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.motrak;
+
+import java.util.Random;
+
+// Precomputed 3-axis samples (noisy sine on each axis, plus gravity on z) at a fixed rate,
+// so benchmarks measure the code under test and not the signal generation.
+final class SyntheticStream {
+    private static final int LENGTH = 4096; // Power of two
+
+    private final float[] x = new float[LENGTH];
+    private final float[] y = new float[LENGTH];
+    private final float[] z = new float[LENGTH];
+    private final long periodNanos;
+    private long timestamp = 1_000_000_000L;
+    private int position = 0;
+
+    SyntheticStream(int rateHz) {
+        periodNanos = 1_000_000_000L / rateHz;
+        Random random = new Random(42);
+        for (int i = 0; i < LENGTH; i++) {
+            double t = (double) i / rateHz;
+            x[i] = (float) (Math.sin(2 * Math.PI * 2 * t) + 0.05 * random.nextGaussian());
+            y[i] = (float) (0.5 * Math.cos(2 * Math.PI * 5 * t) + 0.05 * random.nextGaussian());
+            z[i] = (float) (9.81 + 0.2 * random.nextGaussian());
+        }
+    }
+
+    // Move to the next sample; read it with timestamp()/x()/y()/z()
+    void next() {
+        position = (position + 1) & (LENGTH - 1);
+        timestamp += periodNanos;
+    }
+
+    long timestamp() {
+        return timestamp;
+    }
+
+    float x() {
+        return x[position];
+    }
+
+    float y() {
+        return y[position];
+    }
+
+    float z() {
+        return z[position];
+    }
+}